@@ -186,6 +186,9 @@ public final class ArrayConstructor {
                                     resultPromise.fulfill(collectedArray);
                                 }
                                 return JSUndefined.INSTANCE;
+                            }, markFunction -> {
+                                markFunction.accept(mapFn);
+                                markFunction.accept(mapThisArg);
                             }),
                             resultPromise,
                             context
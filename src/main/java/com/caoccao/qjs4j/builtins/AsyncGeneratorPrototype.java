@@ -49,9 +49,7 @@ public final class AsyncGeneratorPrototype {
 
             if (currentIndex >= values.length) {
                 JSPromise promise = context.createJSPromise();
-                JSObject result = context.createJSObject();
-                result.set("value", JSUndefined.INSTANCE);
-                result.set("done", JSBoolean.TRUE);
+                JSObject result = context.createIteratorResult(JSUndefined.INSTANCE, true);
                 promise.fulfill(result);
                 return promise;
             }
@@ -62,14 +60,16 @@ public final class AsyncGeneratorPrototype {
             // In a real implementation, this would use setTimeout or similar
             // For now, we enqueue as a microtask to simulate async behavior
             context.enqueueMicrotask(() -> {
-                JSObject result = context.createJSObject();
-                result.set("value", values[currentIndex]);
-                result.set("done", JSBoolean.FALSE);
+                JSObject result = context.createIteratorResult(values[currentIndex], false);
                 promise.fulfill(result);
-            });
+            }, values[currentIndex], promise);
 
             return promise;
-        }, context);
+        }, context, markFunction -> {
+            for (JSValue value : values) {
+                markFunction.accept(value);
+            }
+        });
     }
 
     /**
@@ -96,9 +96,7 @@ public final class AsyncGeneratorPrototype {
             if (currentIndex >= promises.length) {
                 // All promises processed
                 JSPromise promise = context.createJSPromise();
-                JSObject result = context.createJSObject();
-                result.set("value", JSUndefined.INSTANCE);
-                result.set("done", JSBoolean.TRUE);
+                JSObject result = context.createIteratorResult(JSUndefined.INSTANCE, true);
                 promise.fulfill(result);
                 return promise;
             }
@@ -111,9 +109,7 @@ public final class AsyncGeneratorPrototype {
                     new JSPromise.ReactionRecord(
                             new JSNativeFunction("onFulfilled", 1, (childContext, thisArg, args) -> {
                                 JSValue value = args.length > 0 ? args[0] : JSUndefined.INSTANCE;
-                                JSObject result = context.createJSObject();
-                                result.set("value", value);
-                                result.set("done", JSBoolean.FALSE);
+                                JSObject result = context.createIteratorResult(value, false);
                                 resultPromise.fulfill(result);
                                 return JSUndefined.INSTANCE;
                             }),
@@ -132,7 +128,11 @@ public final class AsyncGeneratorPrototype {
             );
 
             return resultPromise;
-        }, context);
+        }, context, markFunction -> {
+            for (JSPromise promise : promises) {
+                markFunction.accept(promise);
+            }
+        });
     }
 
     /**
@@ -160,18 +160,14 @@ public final class AsyncGeneratorPrototype {
             if (currentIndex >= values.length) {
                 // All values yielded
                 JSPromise promise = context.createJSPromise();
-                JSObject result = context.createJSObject();
-                result.set("value", JSUndefined.INSTANCE);
-                result.set("done", JSBoolean.TRUE);
+                JSObject result = context.createIteratorResult(JSUndefined.INSTANCE, true);
                 promise.fulfill(result);
                 return promise;
             }
 
             // Yield next value
             JSPromise promise = context.createJSPromise();
-            JSObject result = context.createJSObject();
-            result.set("value", values[currentIndex]);
-            result.set("done", JSBoolean.FALSE);
+            JSObject result = context.createIteratorResult(values[currentIndex], false);
             promise.fulfill(result);
             return promise;
         }, context);
@@ -116,6 +116,21 @@ public final class GlobalObject {
         }
     }
 
+    /**
+     * Define global properties whose built-ins are created by an initializer on first access.
+     * The function prototype chains of the built-ins are initialized along with them.
+     */
+    private static void defineAutoInitProperties(
+            JSContext context, JSObject global, JSAutoInitProperty.Initializer initializer, String... names) {
+        JSAutoInitProperty autoInit = new JSAutoInitProperty(context, (childContext, builtins) -> {
+            initializer.initialize(childContext, builtins);
+            initializeFunctionPrototypeChains(childContext, builtins, new HashSet<>());
+        });
+        for (String name : names) {
+            global.set(name, autoInit);
+        }
+    }
+
     /**
      * encodeURI(uri)
      * Encode a URI by escaping certain characters.
@@ -308,36 +323,38 @@ public final class GlobalObject {
         initializeNumberConstructor(context, global);
         initializeFunctionConstructor(context, global);
         initializeAsyncFunctionConstructor(context, global);
-        initializeDateConstructor(context, global);
         initializeRegExpConstructor(context, global);
         initializeSymbolConstructor(context, global);
         initializeBigIntConstructor(context, global);
         initializeMapConstructor(context, global);
         initializeSetConstructor(context, global);
-        initializeWeakMapConstructor(context, global);
-        initializeWeakSetConstructor(context, global);
-        initializeWeakRefConstructor(context, global);
-        initializeFinalizationRegistryConstructor(context, global);
         initializeMathObject(context, global);
         initializeJSONObject(context, global);
-        initializeReflectObject(context, global);
-        initializeProxyConstructor(context, global);
         initializePromiseConstructor(context, global);
         initializeGeneratorPrototype(context, global);
         initializeIteratorConstructor(context, global);
 
-        // Binary data constructors
-        initializeArrayBufferConstructor(context, global);
-        initializeSharedArrayBufferConstructor(context, global);
-        initializeDataViewConstructor(context, global);
-        initializeTypedArrayConstructors(context, global);
-        initializeAtomicsObject(context, global);
-
         // Error constructors
         initializeErrorConstructors(context, global);
 
         // Initialize function prototype chains after all built-ins are set up
         initializeFunctionPrototypeChains(context, global, new HashSet<>());
+
+        // Rarely used built-ins are created on first access, binary data constructors included
+        defineAutoInitProperties(context, global, GlobalObject::initializeDateConstructor, "Date");
+        defineAutoInitProperties(context, global, GlobalObject::initializeWeakMapConstructor, "WeakMap");
+        defineAutoInitProperties(context, global, GlobalObject::initializeWeakSetConstructor, "WeakSet");
+        defineAutoInitProperties(context, global, GlobalObject::initializeWeakRefConstructor, "WeakRef");
+        defineAutoInitProperties(context, global, GlobalObject::initializeFinalizationRegistryConstructor, "FinalizationRegistry");
+        defineAutoInitProperties(context, global, GlobalObject::initializeReflectObject, "Reflect");
+        defineAutoInitProperties(context, global, GlobalObject::initializeProxyConstructor, "Proxy");
+        defineAutoInitProperties(context, global, GlobalObject::initializeArrayBufferConstructor, "ArrayBuffer");
+        defineAutoInitProperties(context, global, GlobalObject::initializeSharedArrayBufferConstructor, "SharedArrayBuffer");
+        defineAutoInitProperties(context, global, GlobalObject::initializeDataViewConstructor, "DataView");
+        defineAutoInitProperties(context, global, GlobalObject::initializeTypedArrayConstructors,
+                "Int8Array", "Uint8Array", "Uint8ClampedArray", "Int16Array", "Uint16Array", "Int32Array",
+                "Uint32Array", "Float16Array", "Float32Array", "Float64Array", "BigInt64Array", "BigUint64Array");
+        defineAutoInitProperties(context, global, GlobalObject::initializeAtomicsObject, "Atomics");
     }
 
     /**
@@ -43,7 +43,7 @@ public final class IteratorPrototype {
                 return JSIterator.IteratorResult.of(context, pair);
             }
             return JSIterator.IteratorResult.done(context);
-        });
+        }, array);
     }
 
     /**
@@ -61,7 +61,7 @@ public final class IteratorPrototype {
                 return JSIterator.IteratorResult.of(context, new JSNumber(index[0]++));
             }
             return JSIterator.IteratorResult.done(context);
-        });
+        }, array);
     }
 
     /**
@@ -217,7 +217,7 @@ public final class IteratorPrototype {
                 return JSIterator.IteratorResult.of(context, pair);
             }
             return JSIterator.IteratorResult.done(context);
-        });
+        }, set);
     }
 
     /**
@@ -965,13 +965,17 @@ public final class ObjectConstructor {
         }
 
         JSValue protoValue = args[1];
-        if (protoValue instanceof JSObject proto) {
-            obj.setPrototype(proto);
+        JSObject proto;
+        if (protoValue instanceof JSObject protoObj) {
+            proto = protoObj;
         } else if (protoValue instanceof JSNull) {
-            obj.setPrototype(null);
+            proto = null;
         } else {
             return context.throwTypeError("Object prototype may only be an Object or null");
         }
+        if (!obj.setPrototype(proto)) {
+            return context.throwTypeError(obj.isExtensible() ? "Cyclic __proto__ value" : "#<Object> is not extensible");
+        }
 
         return obj;
     }
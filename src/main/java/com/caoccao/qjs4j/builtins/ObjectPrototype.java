@@ -176,10 +176,14 @@ public final class ObjectPrototype {
             return JSUndefined.INSTANCE;
         }
 
+        boolean success = true;
         if (proto instanceof JSNull) {
-            obj.setPrototype(null);
+            success = obj.setPrototype(null);
         } else if (proto instanceof JSObject protoObj) {
-            obj.setPrototype(protoObj);
+            success = obj.setPrototype(protoObj);
+        }
+        if (!success) {
+            return context.throwTypeError(obj.isExtensible() ? "Cyclic __proto__ value" : "#<Object> is not extensible");
         }
 
         return JSUndefined.INSTANCE;
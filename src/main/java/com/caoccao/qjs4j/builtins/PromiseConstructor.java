@@ -57,6 +57,11 @@ public final class PromiseConstructor {
         JSArray results = context.createJSArray();
         final int[] remaining = {length}; // How many promises left to resolve
 
+        // The reactions on the elements are all that keep the combined state alive
+        JSMarkable capturedValues = markFunction -> {
+            markFunction.accept(results);
+            markFunction.accept(resultPromise);
+        };
         for (int i = 0; i < length; i++) {
             final int index = i;
             JSValue element = array.get(i);
@@ -73,7 +78,7 @@ public final class PromiseConstructor {
                                         resultPromise.fulfill(results);
                                     }
                                     return JSUndefined.INSTANCE;
-                                }),
+                                }, capturedValues),
                                 null,
                                 context
                         ),
@@ -81,7 +86,7 @@ public final class PromiseConstructor {
                                 new JSNativeFunction("onReject", 1, (childContext, thisValue, funcArgs) -> {
                                     resultPromise.reject(funcArgs[0]);
                                     return JSUndefined.INSTANCE;
-                                }),
+                                }, capturedValues),
                                 null,
                                 context
                         )
@@ -132,6 +137,10 @@ public final class PromiseConstructor {
         JSArray results = context.createJSArray();
         final int[] remaining = {length};
 
+        JSMarkable capturedValues = markFunction -> {
+            markFunction.accept(results);
+            markFunction.accept(resultPromise);
+        };
         for (int i = 0; i < length; i++) {
             final int index = i;
             JSValue element = array.get(i);
@@ -150,7 +159,7 @@ public final class PromiseConstructor {
                                         resultPromise.fulfill(results);
                                     }
                                     return JSUndefined.INSTANCE;
-                                }),
+                                }, capturedValues),
                                 null,
                                 context
                         ),
@@ -165,7 +174,7 @@ public final class PromiseConstructor {
                                         resultPromise.fulfill(results);
                                     }
                                     return JSUndefined.INSTANCE;
-                                }),
+                                }, capturedValues),
                                 null,
                                 context
                         )
@@ -219,6 +228,10 @@ public final class PromiseConstructor {
         JSArray errors = context.createJSArray();
         final int[] remaining = {length};
 
+        JSMarkable capturedValues = markFunction -> {
+            markFunction.accept(errors);
+            markFunction.accept(resultPromise);
+        };
         for (int i = 0; i < length; i++) {
             final int index = i;
             JSValue element = array.get(i);
@@ -229,7 +242,7 @@ public final class PromiseConstructor {
                                 new JSNativeFunction("onFulfill", 1, (childContext, thisValue, funcArgs) -> {
                                     resultPromise.fulfill(funcArgs[0]);
                                     return JSUndefined.INSTANCE;
-                                }),
+                                }, capturedValues),
                                 null,
                                 context
                         ),
@@ -241,7 +254,7 @@ public final class PromiseConstructor {
                                         resultPromise.reject(new JSString("AggregateError: All promises were rejected"));
                                     }
                                     return JSUndefined.INSTANCE;
-                                }),
+                                }, capturedValues),
                                 null,
                                 context
                         )
@@ -292,6 +305,7 @@ public final class PromiseConstructor {
         int length = (int) array.getLength();
         JSPromise resultPromise = context.createJSPromise();
 
+        JSMarkable capturedValues = markFunction -> markFunction.accept(resultPromise);
         for (int i = 0; i < length; i++) {
             JSValue element = array.get(i);
 
@@ -302,7 +316,7 @@ public final class PromiseConstructor {
                                 new JSNativeFunction("onFulfill", 1, (childContext, thisValue, funcArgs) -> {
                                     resultPromise.fulfill(funcArgs[0]);
                                     return JSUndefined.INSTANCE;
-                                }),
+                                }, capturedValues),
                                 null,
                                 context
                         ),
@@ -310,7 +324,7 @@ public final class PromiseConstructor {
                                 new JSNativeFunction("onReject", 1, (childContext, thisValue, funcArgs) -> {
                                     resultPromise.reject(funcArgs[0]);
                                     return JSUndefined.INSTANCE;
-                                }),
+                                }, capturedValues),
                                 null,
                                 context
                         )
@@ -371,14 +385,14 @@ public final class PromiseConstructor {
             JSValue value = funcArgs.length > 0 ? funcArgs[0] : JSUndefined.INSTANCE;
             promise.fulfill(value);
             return JSUndefined.INSTANCE;
-        });
+        }, markFunction -> markFunction.accept(promise));
 
         // Create reject function
         JSNativeFunction rejectFn = new JSNativeFunction("reject", 1, (childContext, thisValue, funcArgs) -> {
             JSValue reason = funcArgs.length > 0 ? funcArgs[0] : JSUndefined.INSTANCE;
             promise.reject(reason);
             return JSUndefined.INSTANCE;
-        });
+        }, markFunction -> markFunction.accept(promise));
 
         // Create result object
         JSObject result = context.createJSObject();
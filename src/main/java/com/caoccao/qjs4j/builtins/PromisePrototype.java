@@ -57,7 +57,7 @@ public final class PromisePrototype {
                     onFinally.call(childContext, JSUndefined.INSTANCE, new JSValue[0]);
                     // Pass through the fulfillment value
                     return funcArgs.length > 0 ? funcArgs[0] : JSUndefined.INSTANCE;
-                });
+                }, markFunction -> markFunction.accept(onFinally));
 
         JSNativeFunction onRejectedWrapper = new JSNativeFunction("onRejected", 1,
                 (childContext, thisValue, funcArgs) -> {
@@ -67,7 +67,7 @@ public final class PromisePrototype {
                     JSPromise rejectedPromise = new JSPromise();
                     rejectedPromise.reject(funcArgs.length > 0 ? funcArgs[0] : JSUndefined.INSTANCE);
                     return rejectedPromise;
-                });
+                }, markFunction -> markFunction.accept(onFinally));
 
         // Call then with both wrappers
         JSValue[] thenArgs = new JSValue[]{onFulfilledWrapper, onRejectedWrapper};
@@ -72,7 +72,7 @@ public final class ProxyConstructor {
             // Revoke the proxy - all subsequent operations will throw TypeError
             proxy.revoke();
             return JSUndefined.INSTANCE;
-        });
+        }, markFunction -> markFunction.accept(proxy));
         result.set("revoke", revokeFunc);
 
         return result;
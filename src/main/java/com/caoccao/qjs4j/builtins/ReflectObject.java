@@ -242,11 +242,9 @@ public final class ReflectObject {
 
         JSValue prototypeArg = args[1];
         if (prototypeArg instanceof JSNull) {
-            target.setPrototype(null);
-            return JSBoolean.TRUE;
+            return JSBoolean.valueOf(target.setPrototype(null));
         } else if (prototypeArg instanceof JSObject prototype) {
-            target.setPrototype(prototype);
-            return JSBoolean.TRUE;
+            return JSBoolean.valueOf(target.setPrototype(prototype));
         } else {
             return context.throwTypeError("Object prototype may only be an Object or null");
         }
@@ -29,17 +29,20 @@ import java.util.*;
  * Implements visitor pattern for traversing AST nodes and emitting appropriate bytecode.
  */
 public final class BytecodeCompiler {
-    private static final boolean EMIT_DEBUG = true; // temporary compiler emit diagnostics
     private final BytecodeEmitter emitter;
     private final Deque<LoopContext> loopStack;
     private final Deque<Scope> scopes;
     private boolean inGlobalScope;
     private boolean isInArrowFunction;  // Track if we're currently compiling an arrow function
     private boolean isInAsyncFunction;  // Track if we're currently compiling an async function
+    private boolean isInGeneratorFunction;  // Track if we're currently compiling a generator function
     private int maxLocalCount;
+    private BytecodeCompiler parent;  // Compiler of the enclosing function, used to resolve captured variables
     private Map<String, JSSymbol> privateSymbols;  // Private field symbols for current class
     private String sourceCode;  // Original source code for extracting function sources
+    private int statementStackDepth;  // Operand stack values held by enclosing statements, such as for-of iterators
     private boolean strictMode;  // Track strict mode context (inherited from parent or set by "use strict")
+    private int tryDepth;  // Number of enclosing try statements
 
     public BytecodeCompiler() {
         this(false);  // Default to non-strict mode
@@ -57,11 +60,15 @@ public final class BytecodeCompiler {
         this.loopStack = new ArrayDeque<>();
         this.inGlobalScope = false;
         this.isInAsyncFunction = false;
+        this.isInGeneratorFunction = false;
         this.isInArrowFunction = false;
         this.maxLocalCount = 0;
+        this.parent = null;
         this.sourceCode = null;
         this.privateSymbols = Map.of();  // Empty by default
         this.strictMode = inheritedStrictMode;
+        this.statementStackDepth = 0;
+        this.tryDepth = 0;
     }
 
     /**
@@ -172,6 +179,7 @@ public final class BytecodeCompiler {
         // Create a new compiler for the function body
         // Arrow functions inherit strict mode from parent (QuickJS behavior)
         BytecodeCompiler functionCompiler = new BytecodeCompiler(this.strictMode);
+        functionCompiler.parent = this;
 
         // Enter function scope and add parameters as locals
         functionCompiler.enterScope();
@@ -211,6 +219,7 @@ public final class BytecodeCompiler {
         // Arrow functions can have expression body or block statement body
         if (arrowExpr.body() instanceof BlockStatement block) {
             // Compile block body statements (don't call compileBlockStatement as it would create a new scope)
+            functionCompiler.hoistDeclarations(block.body());
             for (Statement stmt : block.body()) {
                 functionCompiler.compileStatement(stmt);
             }
@@ -282,13 +291,7 @@ public final class BytecodeCompiler {
         if (operator != AssignmentExpression.AssignmentOperator.ASSIGN) {
             // Load current value of left side
             if (left instanceof Identifier id) {
-                String name = id.name();
-                Integer localIndex = findLocalInScopes(name);
-                if (localIndex != null) {
-                    emitter.emitOpcodeU16(Opcode.GET_LOCAL, localIndex);
-                } else {
-                    emitter.emitOpcodeAtom(Opcode.GET_VAR, name);
-                }
+                emitGetVariable(id.name());
             } else if (left instanceof MemberExpression memberExpr) {
                 // For obj.prop += value, we need DUP2 pattern or similar
                 compileExpression(memberExpr.object());
@@ -343,14 +346,7 @@ public final class BytecodeCompiler {
 
         // Store the result to left side
         if (left instanceof Identifier id) {
-            String name = id.name();
-            Integer localIndex = findLocalInScopes(name);
-
-            if (localIndex != null) {
-                emitter.emitOpcodeU16(Opcode.SET_LOCAL, localIndex);
-            } else {
-                emitter.emitOpcodeAtom(Opcode.SET_VAR, name);
-            }
+            emitSetVariable(id.name());
         } else if (left instanceof MemberExpression memberExpr) {
             // obj[prop] = value or obj.prop = value or obj.#field = value
                 if (operator == AssignmentExpression.AssignmentOperator.ASSIGN) {
@@ -368,21 +364,12 @@ public final class BytecodeCompiler {
                         if ((op == UnaryExpression.UnaryOperator.INC || op == UnaryExpression.UnaryOperator.DEC)
                                 && operand instanceof Identifier propId) {
                             String name = ((Identifier) operand).name();
-                            Integer localIndex = findLocalInScopes(name);
                             // Push the variable, perform POST_INC/POST_DEC (produces old,new),
                             // then PUT back the new value to the variable (consumes new),
                             // leaving old on stack as the property.
-                            if (localIndex != null) {
-                                emitter.emitOpcodeU16(Opcode.GET_LOCAL, localIndex);
-                                emitter.emitOpcode(op == UnaryExpression.UnaryOperator.INC ? Opcode.POST_INC : Opcode.POST_DEC);
-                                emitter.emitOpcodeU16(Opcode.PUT_LOCAL, localIndex);
-                            } else {
-                                emitter.emitOpcodeAtom(Opcode.GET_VAR, name);
-                                emitter.emitOpcode(op == UnaryExpression.UnaryOperator.INC ? Opcode.POST_INC : Opcode.POST_DEC);
-                                emitter.emitOpcodeAtom(Opcode.PUT_VAR, name);
-                            }
-                            // Diagnostic: log compiler-side handling of postfix property expression
-                            System.out.println("Compiler: handled postfix property expression for '" + name + "' localIndex=" + localIndex);
+                            emitGetVariable(name);
+                            emitter.emitOpcode(op == UnaryExpression.UnaryOperator.INC ? Opcode.POST_INC : Opcode.POST_DEC);
+                            emitPutVariable(name);
                             // Now compile right side so stack is: obj, old, value
                             compileExpression(assignExpr.right());
                             // Rotate [obj, old, value] -> [value, obj, old]
@@ -459,6 +446,33 @@ public final class BytecodeCompiler {
     // ==================== Statement Compilation ====================
 
     private void compileBinaryExpression(BinaryExpression binExpr) {
+        JSValue folded = ConstantFolder.fold(binExpr);
+        if (folded != null) {
+            emitConstant(folded);
+            return;
+        }
+
+        // A constant left operand of a short-circuit operator decides which side is evaluated
+        BinaryExpression.BinaryOperator operator = binExpr.operator();
+        if (operator == BinaryExpression.BinaryOperator.LOGICAL_AND
+                || operator == BinaryExpression.BinaryOperator.LOGICAL_OR
+                || operator == BinaryExpression.BinaryOperator.NULLISH_COALESCING) {
+            JSValue left = ConstantFolder.fold(binExpr.left());
+            if (left != null) {
+                boolean isLeftSelected = switch (operator) {
+                    case LOGICAL_AND -> !ConstantFolder.isTruthy(left);
+                    case LOGICAL_OR -> ConstantFolder.isTruthy(left);
+                    default -> !left.isNullOrUndefined();
+                };
+                if (isLeftSelected) {
+                    emitConstant(left);
+                } else {
+                    compileExpression(binExpr.right());
+                }
+                return;
+            }
+        }
+
         // Compile operands
         compileExpression(binExpr.left());
         compileExpression(binExpr.right());
@@ -522,11 +536,12 @@ public final class BytecodeCompiler {
             compileCallExpressionWithSpread(callExpr);
         } else {
             // Use regular CALL for calls without spread
-            compileCallExpressionRegular(callExpr);
+            compileCallExpressionRegular(callExpr, Opcode.CALL);
         }
     }
 
-    private void compileCallExpressionRegular(CallExpression callExpr) {
+    private void compileCallExpressionRegular(CallExpression callExpr, Opcode callOpcode) {
+        int calleeStartPc = emitter.currentOffset();
         // Check if this is a method call (callee is a member expression)
         if (callExpr.callee() instanceof MemberExpression memberExpr) {
             // For method calls: obj.method()
@@ -568,6 +583,7 @@ public final class BytecodeCompiler {
 
             // Now stack is: receiver, method
             // Swap so method is on top: method, receiver
+            int calleeEndPc = emitter.currentOffset();
             emitter.emitOpcode(Opcode.SWAP);
 
             // Push arguments
@@ -576,15 +592,13 @@ public final class BytecodeCompiler {
             }
 
             // Call with argument count (will use receiver as thisArg)
-            emitter.emitOpcodeU16(Opcode.CALL, callExpr.arguments().size());
-            if (EMIT_DEBUG) {
-                System.out.println("EMIT DIAG: emit CALL (method) at offset=" + emitter.currentOffset());
-                emitter.debugDumpLast(96);
-            }
+            emitter.addCallSite(emitter.currentOffset(), calleeStartPc, calleeEndPc);
+            emitter.emitOpcodeU16(callOpcode, callExpr.arguments().size());
         } else {
             // Regular function call: func()
             // Push callee
             compileExpression(callExpr.callee());
+            int calleeEndPc = emitter.currentOffset();
 
             // Push undefined as receiver (thisArg for regular calls)
             emitter.emitOpcode(Opcode.UNDEFINED);
@@ -595,11 +609,8 @@ public final class BytecodeCompiler {
             }
 
             // Call with argument count
-            emitter.emitOpcodeU16(Opcode.CALL, callExpr.arguments().size());
-            if (EMIT_DEBUG) {
-                System.out.println("EMIT DIAG: emit CALL (regular) at offset=" + emitter.currentOffset());
-                emitter.debugDumpLast(96);
-            }
+            emitter.addCallSite(emitter.currentOffset(), calleeStartPc, calleeEndPc);
+            emitter.emitOpcodeU16(callOpcode, callExpr.arguments().size());
         }
     }
 
@@ -786,7 +797,7 @@ public final class BytecodeCompiler {
         }
 
         // Emit constructor in constant pool
-        emitter.emitOpcodeConstant(Opcode.PUSH_CONST, constructorFunc);
+        emitFunction(constructorFunc);
         // Stack: superClass constructor
 
         // Emit DEFINE_CLASS opcode with class name
@@ -811,7 +822,7 @@ public final class BytecodeCompiler {
 
                 // Compile method (no field initialization for regular methods)
                 JSBytecodeFunction methodFunc = compileMethodAsFunction(method, getMethodName(method), false, List.of(), Map.of(), false);
-                emitter.emitOpcodeConstant(Opcode.PUSH_CONST, methodFunc);
+                emitFunction(methodFunc);
                 // Stack: proto constructor method
 
                 // DEFINE_METHOD wants: obj method -> obj
@@ -828,7 +839,7 @@ public final class BytecodeCompiler {
                 // Compile method (no field initialization for regular methods)
                 // Pass private symbols to methods so they can access private fields
                 JSBytecodeFunction methodFunc = compileMethodAsFunction(method, getMethodName(method), false, List.of(), privateSymbols, false);
-                emitter.emitOpcodeConstant(Opcode.PUSH_CONST, methodFunc);
+                emitFunction(methodFunc);
                 // Stack: constructor proto method
 
                 // DEFINE_METHOD wants: obj method -> obj
@@ -863,7 +874,7 @@ public final class BytecodeCompiler {
             // Stack: proto constructor constructor
 
             // Push the static block function
-            emitter.emitOpcodeConstant(Opcode.PUSH_CONST, staticBlockFunc);
+            emitFunction(staticBlockFunc);
             // Stack: proto constructor constructor func
 
             // SWAP so we have: proto constructor func constructor
@@ -976,7 +987,7 @@ public final class BytecodeCompiler {
         }
 
         // Emit constructor in constant pool
-        emitter.emitOpcodeConstant(Opcode.PUSH_CONST, constructorFunc);
+        emitFunction(constructorFunc);
         // Stack: superClass constructor
 
         // Emit DEFINE_CLASS opcode with class name
@@ -992,7 +1003,7 @@ public final class BytecodeCompiler {
                 throw new CompilerException("Static methods not yet implemented");
             } else {
                 JSBytecodeFunction methodFunc = compileMethodAsFunction(method, getMethodName(method), false, List.of(), privateSymbols, false);
-                emitter.emitOpcodeConstant(Opcode.PUSH_CONST, methodFunc);
+                emitFunction(methodFunc);
                 // Stack: constructor proto method
 
                 String methodName = getMethodName(method);
@@ -1016,6 +1027,12 @@ public final class BytecodeCompiler {
     }
 
     private void compileConditionalExpression(ConditionalExpression condExpr) {
+        JSValue test = ConstantFolder.fold(condExpr.test());
+        if (test != null) {
+            compileExpression(ConstantFolder.isTruthy(test) ? condExpr.consequent() : condExpr.alternate());
+            return;
+        }
+
         // Compile test
         compileExpression(condExpr.test());
 
@@ -1174,6 +1191,7 @@ public final class BytecodeCompiler {
 
     private void compileForInStatement(ForInStatement forInStmt) {
         enterScope();
+        Scope loopScope = currentScope();
 
         // Get the loop variable name
         VariableDeclaration varDecl = forInStmt.left();
@@ -1185,8 +1203,11 @@ public final class BytecodeCompiler {
             throw new CompilerException("for-in loop variable must be an identifier");
         }
         String varName = id.name();
-        currentScope().declareLocal(varName);
-        Integer varIndex = currentScope().getLocal(varName);
+        // A var loop variable is the hoisted binding of the function when there is one
+        Integer varIndex = "var".equals(varDecl.kind()) ? findLocalInScopes(varName) : null;
+        if (varIndex == null) {
+            varIndex = currentScope().declareLocal(varName);
+        }
 
         // Compile the object expression
         compileExpression(forInStmt.right());
@@ -1223,7 +1244,15 @@ public final class BytecodeCompiler {
         // Stack: enum_obj
 
         // Compile loop body
+        statementStackDepth++;
         compileStatement(forInStmt.body());
+        statementStackDepth--;
+
+        // Continue statements close the captured locals of the iteration
+        int continueTarget = emitter.currentOffset();
+        if (!emitCloseLocals(loopScope)) {
+            continueTarget = loopStart;
+        }
 
         // Jump back to loop start
         emitter.emitOpcode(Opcode.GOTO);
@@ -1245,7 +1274,7 @@ public final class BytecodeCompiler {
 
         // Patch continue statements
         for (int continuePos : loop.continuePositions) {
-            emitter.patchJump(continuePos, loopStart);
+            emitter.patchJump(continuePos, continueTarget);
         }
 
         // Clean up stack: drop enum_obj using FOR_IN_END
@@ -1257,6 +1286,7 @@ public final class BytecodeCompiler {
 
     private void compileForOfStatement(ForOfStatement forOfStmt) {
         enterScope();
+        Scope loopScope = currentScope();
 
         // Compile the iterable expression
         compileExpression(forOfStmt.right());
@@ -1276,8 +1306,11 @@ public final class BytecodeCompiler {
         }
         Pattern pattern = varDecl.declarations().get(0).id();
 
-        // Declare all variables in the pattern (handles Identifier, ArrayPattern, ObjectPattern)
-        declarePatternVariables(pattern);
+        // Declare all variables in the pattern (handles Identifier, ArrayPattern, ObjectPattern),
+        // var bindings are declared by the assignment unless hoisted to the function
+        if (!"var".equals(varDecl.kind())) {
+            declarePatternVariables(pattern);
+        }
 
         // Save and temporarily disable inGlobalScope since for-of loop variables are always local
         boolean savedInGlobalScope = inGlobalScope;
@@ -1322,7 +1355,7 @@ public final class BytecodeCompiler {
             // Stack: iter, next, catch_offset, value
 
             // Assign value to pattern (handles Identifier, ArrayPattern, ObjectPattern)
-            compilePatternAssignment(pattern);
+            compilePatternAssignment(pattern, varDecl.kind());
             // Stack: iter, next, catch_offset
         } else {
             // Sync for-of: FOR_OF_NEXT pushes value and done separately
@@ -1336,12 +1369,20 @@ public final class BytecodeCompiler {
             // Stack: iter, next, catch_offset, value
 
             // Assign value to pattern (handles Identifier, ArrayPattern, ObjectPattern)
-            compilePatternAssignment(pattern);
+            compilePatternAssignment(pattern, varDecl.kind());
             // Stack: iter, next, catch_offset
         }
 
         // Compile loop body
+        statementStackDepth += 3;
         compileStatement(forOfStmt.body());
+        statementStackDepth -= 3;
+
+        // Continue statements close the captured locals of the iteration
+        int continueTarget = emitter.currentOffset();
+        if (!emitCloseLocals(loopScope)) {
+            continueTarget = loopStart;
+        }
 
         // Jump back to loop start
         emitter.emitOpcode(Opcode.GOTO);
@@ -1371,7 +1412,7 @@ public final class BytecodeCompiler {
 
         // Patch continue statements (jump back to loop start)
         for (int continuePos : loop.continuePositions) {
-            emitter.patchJump(continuePos, loopStart);
+            emitter.patchJump(continuePos, continueTarget);
         }
 
         // Clean up iterator from stack
@@ -1390,27 +1431,17 @@ public final class BytecodeCompiler {
 
     private void compileForStatement(ForStatement forStmt) {
         enterScope();
+        Scope loopScope = currentScope();
 
         // Compile init
         if (forStmt.init() != null) {
             if (forStmt.init() instanceof VariableDeclaration varDecl) {
                 compileVariableDeclaration(varDecl);
             } else if (forStmt.init() instanceof Expression expr) {
-                // Diagnostic: log the init expression kind to help debug missing init emissions
-                try {
-                    System.out.println("Compiler: for-init expr class=" + expr.getClass().getSimpleName() + " repr=" + expr);
-                } catch (Throwable t) {
-                    // ignore
-                }
                 compileExpression(expr);
                 emitter.emitOpcode(Opcode.DROP);
             } else if (forStmt.init() instanceof com.caoccao.qjs4j.compiler.ast.ExpressionStatement exprStmt) {
                 // For cases where parser wraps the expression in an ExpressionStatement
-                try {
-                    System.out.println("Compiler: for-init ExpressionStatement wrapping=" + exprStmt.expression().getClass().getSimpleName() + " repr=" + exprStmt.expression());
-                } catch (Throwable t) {
-                    // ignore
-                }
                 compileExpression(exprStmt.expression());
                 emitter.emitOpcode(Opcode.DROP);
             }
@@ -1421,8 +1452,9 @@ public final class BytecodeCompiler {
         loopStack.push(loop);
 
         int jumpToEnd = -1;
-        // Compile test
-        if (forStmt.test() != null) {
+        // Compile test, which a constant true test does not need
+        JSValue test = forStmt.test() != null ? ConstantFolder.fold(forStmt.test()) : null;
+        if (forStmt.test() != null && (test == null || !ConstantFolder.isTruthy(test))) {
             compileExpression(forStmt.test());
             jumpToEnd = emitter.emitJump(Opcode.IF_FALSE);
         }
@@ -1430,8 +1462,10 @@ public final class BytecodeCompiler {
         // Compile body
         compileStatement(forStmt.body());
 
-        // Update position for continue statements
+        // Update position for continue statements, each iteration gets new bindings
+        // for the captured locals, which start with the values of the previous one
         int updateStart = emitter.currentOffset();
+        emitCloseLocals(loopScope);
 
         // Compile update
         if (forStmt.update() != null) {
@@ -1469,11 +1503,13 @@ public final class BytecodeCompiler {
         // Create a new compiler for the function body
         // Nested functions inherit strict mode from parent (QuickJS behavior)
         BytecodeCompiler functionCompiler = new BytecodeCompiler(this.strictMode);
+        functionCompiler.parent = this;
 
         // Enter function scope and add parameters as locals
         functionCompiler.enterScope();
         functionCompiler.inGlobalScope = false;
         functionCompiler.isInAsyncFunction = funcDecl.isAsync();  // Track if this is an async function
+        functionCompiler.isInGeneratorFunction = funcDecl.isGenerator();
 
         // Check for "use strict" directive early and update strict mode
         // This ensures nested functions inherit the correct strict mode
@@ -1510,6 +1546,7 @@ public final class BytecodeCompiler {
         }
 
         // Compile function body statements
+        functionCompiler.hoistDeclarations(funcDecl.body().body());
         for (Statement stmt : funcDecl.body().body()) {
             functionCompiler.compileStatement(stmt);
         }
@@ -1601,10 +1638,13 @@ public final class BytecodeCompiler {
         // Create a new compiler for the function body
         // Nested functions inherit strict mode from parent (QuickJS behavior)
         BytecodeCompiler functionCompiler = new BytecodeCompiler(this.strictMode);
+        functionCompiler.parent = this;
 
         // Enter function scope and add parameters as locals
         functionCompiler.enterScope();
         functionCompiler.inGlobalScope = false;
+        functionCompiler.isInAsyncFunction = funcExpr.isAsync();
+        functionCompiler.isInGeneratorFunction = funcExpr.isGenerator();
 
         // Check for "use strict" directive early and update strict mode
         // This ensures nested functions inherit the correct strict mode
@@ -1641,6 +1681,7 @@ public final class BytecodeCompiler {
         }
 
         // Compile function body statements (don't call compileBlockStatement as it would create a new scope)
+        functionCompiler.hoistDeclarations(funcExpr.body().body());
         for (Statement stmt : funcExpr.body().body()) {
             functionCompiler.compileStatement(stmt);
         }
@@ -1713,17 +1754,25 @@ public final class BytecodeCompiler {
         }
 
     // Always check local scopes first, even in global scope (for nested blocks/loops)
-        // Search from innermost scope (most recently pushed) to outermost
-        Integer localIndex = findLocalInScopes(name);
-        if (localIndex != null) {
-            emitter.emitOpcodeU16(Opcode.GET_LOCAL, localIndex);
-        } else {
-            // Fallback to global variable access
-            emitter.emitOpcodeAtom(Opcode.GET_VAR, name);
-        }
+        // Search from innermost scope (most recently pushed) to outermost,
+        // then the enclosing functions, and fall back to global variable access
+        emitGetVariable(name);
     }
 
     private void compileIfStatement(IfStatement ifStmt) {
+        // Strip the branch that a constant condition never takes
+        JSValue test = ConstantFolder.fold(ifStmt.test());
+        if (test != null) {
+            boolean isTruthy = ConstantFolder.isTruthy(test);
+            if (!ConstantFolder.hasHoistedDeclaration(isTruthy ? ifStmt.alternate() : ifStmt.consequent())) {
+                Statement taken = isTruthy ? ifStmt.consequent() : ifStmt.alternate();
+                if (taken != null) {
+                    compileStatement(taken);
+                }
+                return;
+            }
+        }
+
         // Compile condition
         compileExpression(ifStmt.test());
 
@@ -1833,13 +1882,7 @@ public final class BytecodeCompiler {
 
         // Load the current value
         if (left instanceof Identifier id) {
-            String name = id.name();
-            Integer localIndex = findLocalInScopes(name);
-            if (localIndex != null) {
-                emitter.emitOpcodeU16(Opcode.GET_LOCAL, localIndex);
-            } else {
-                emitter.emitOpcodeAtom(Opcode.GET_VAR, name);
-            }
+            emitGetVariable(id.name());
         } else if (left instanceof MemberExpression memberExpr) {
             compileExpression(memberExpr.object());
             if (memberExpr.computed()) {
@@ -1907,13 +1950,7 @@ public final class BytecodeCompiler {
 
         // Store the result to left side
         if (left instanceof Identifier id) {
-            String name = id.name();
-            Integer localIndex = findLocalInScopes(name);
-            if (localIndex != null) {
-                emitter.emitOpcodeU16(Opcode.SET_LOCAL, localIndex);
-            } else {
-                emitter.emitOpcodeAtom(Opcode.SET_VAR, name);
-            }
+            emitSetVariable(id.name());
         } else if (left instanceof MemberExpression memberExpr) {
             if (memberExpr.computed()) {
                 emitter.emitOpcode(Opcode.PUT_ARRAY_EL);
@@ -1967,10 +2004,6 @@ public final class BytecodeCompiler {
             }
         } else if (memberExpr.property() instanceof Identifier propId) {
             // obj.prop
-            if (EMIT_DEBUG && "extend".equals(propId.name())) {
-                System.out.println("EMIT DIAG: emitting GET_FIELD 'extend' at offset=" + emitter.currentOffset());
-                emitter.debugDumpLast(128);
-            }
             emitter.emitOpcodeAtom(Opcode.GET_FIELD, propId.name());
         }
     }
@@ -1988,6 +2021,7 @@ public final class BytecodeCompiler {
             Map<String, JSSymbol> privateSymbols,
             boolean isConstructor) {
         BytecodeCompiler methodCompiler = new BytecodeCompiler();
+        methodCompiler.parent = this;
         methodCompiler.privateSymbols = privateSymbols;  // Make private symbols available in method
 
         FunctionExpression funcExpr = method.value();
@@ -1996,6 +2030,7 @@ public final class BytecodeCompiler {
         methodCompiler.enterScope();
         methodCompiler.inGlobalScope = false;
         methodCompiler.isInAsyncFunction = funcExpr.isAsync();
+        methodCompiler.isInGeneratorFunction = funcExpr.isGenerator();
 
         for (Identifier param : funcExpr.params()) {
             methodCompiler.currentScope().declareLocal(param.name());
@@ -2013,6 +2048,7 @@ public final class BytecodeCompiler {
         }
 
         // Compile method body statements
+        methodCompiler.hoistDeclarations(funcExpr.body().body());
         for (Statement stmt : funcExpr.body().body()) {
             methodCompiler.compileStatement(stmt);
         }
@@ -2087,10 +2123,6 @@ public final class BytecodeCompiler {
 
         // Call constructor
         emitter.emitOpcodeU16(Opcode.CALL_CONSTRUCTOR, newExpr.arguments().size());
-        if (EMIT_DEBUG) {
-            System.out.println("EMIT DIAG: emit CALL_CONSTRUCTOR at offset=" + emitter.currentOffset());
-            emitter.debugDumpLast(96);
-        }
     }
 
     private void compileObjectExpression(ObjectExpression objExpr) {
@@ -2112,16 +2144,22 @@ public final class BytecodeCompiler {
         }
     }
 
-    private void compilePatternAssignment(Pattern pattern) {
+    private void compilePatternAssignment(Pattern pattern, String kind) {
         if (pattern instanceof Identifier id) {
             // Simple identifier: value is on stack, just assign it
             String varName = id.name();
-            if (inGlobalScope) {
-                emitter.emitOpcodeAtom(Opcode.PUT_VAR, varName);
-            } else {
-                int localIndex = currentScope().declareLocal(varName);
-                emitter.emitOpcodeU16(Opcode.PUT_LOCAL, localIndex);
+            // A var binding is hoisted to the function scope, let and const bind in the current block
+            boolean isVar = "var".equals(kind);
+            Integer localIndex = isVar ? findLocalInScopes(varName) : currentScope().getLocal(varName);
+            if (localIndex == null) {
+                // Bindings at the top level of the program and its var bindings are global
+                if (inGlobalScope && (isVar || scopes.size() == 1)) {
+                    emitter.emitOpcodeAtom(Opcode.PUT_VAR, varName);
+                    return;
+                }
+                localIndex = currentScope().declareLocal(varName);
             }
+            emitter.emitOpcodeU16(Opcode.PUT_LOCAL, localIndex);
         } else if (pattern instanceof ObjectPattern objPattern) {
             // Object destructuring: { proxy, revoke } = value
             // Stack: [object]
@@ -2134,7 +2172,7 @@ public final class BytecodeCompiler {
                 // Get the property value
                 emitter.emitOpcodeAtom(Opcode.GET_FIELD, propName);
                 // Assign to the pattern (could be nested)
-                compilePatternAssignment(prop.value());
+                compilePatternAssignment(prop.value(), kind);
             }
             // Drop the original object
             emitter.emitOpcode(Opcode.DROP);
@@ -2171,7 +2209,7 @@ public final class BytecodeCompiler {
                         emitter.emitOpcode(Opcode.DROP);
                         // Stack: iter next catch_offset value
                         // Assign value to pattern
-                        compilePatternAssignment(element);
+                        compilePatternAssignment(element, kind);
                         // Stack: iter next catch_offset (after assignment drops the value)
                     } else {
                         // Skip element
@@ -2221,7 +2259,7 @@ public final class BytecodeCompiler {
 
                 // Assign array to rest pattern
                 RestElement restElement = (RestElement) arrPattern.elements().get(restIndex);
-                compilePatternAssignment(restElement.argument());
+                compilePatternAssignment(restElement.argument(), kind);
 
                 // Clean up iterator state: drop catch_offset, next, iter
                 emitter.emitOpcode(Opcode.DROP);
@@ -2240,7 +2278,7 @@ public final class BytecodeCompiler {
                         // Get array element
                         emitter.emitOpcode(Opcode.GET_ARRAY_EL);
                         // Assign to the pattern
-                        compilePatternAssignment(element);
+                        compilePatternAssignment(element, kind);
                     }
                     index++;
                 }
@@ -2293,6 +2331,10 @@ public final class BytecodeCompiler {
     // ==================== Expression Compilation ====================
 
     private void compileReturnStatement(ReturnStatement retStmt) {
+        if (isTailCallAllowed() && hasTailCall(retStmt.argument())) {
+            compileReturnValue(retStmt.argument());
+            return;
+        }
         if (retStmt.argument() != null) {
             compileExpression(retStmt.argument());
         } else {
@@ -2302,6 +2344,80 @@ public final class BytecodeCompiler {
         emitter.emitOpcode(isInAsyncFunction ? Opcode.RETURN_ASYNC : Opcode.RETURN);
     }
 
+    /**
+     * Compile a returned expression that contains calls in tail position.
+     * Following ECMAScript 15.10 (Tail Position Calls), the branches of a conditional,
+     * the right operand of a logical operator and the last expression of a comma
+     * sequence are in tail position. Every path ends with its own TAIL_CALL or RETURN,
+     * and logical operators short-circuit with jumps here.
+     */
+    private void compileReturnValue(Expression expr) {
+        if (isTailCall(expr)) {
+            // TAIL_CALL returns the result of the call
+            compileCallExpressionRegular((CallExpression) expr, Opcode.TAIL_CALL);
+            return;
+        }
+        if (expr instanceof ConditionalExpression condExpr) {
+            JSValue test = ConstantFolder.fold(condExpr.test());
+            if (test != null) {
+                compileReturnValue(ConstantFolder.isTruthy(test) ? condExpr.consequent() : condExpr.alternate());
+                return;
+            }
+            compileExpression(condExpr.test());
+            int jumpToAlternate = emitter.emitJump(Opcode.IF_FALSE);
+            compileReturnValue(condExpr.consequent());
+            emitter.patchJump(jumpToAlternate, emitter.currentOffset());
+            compileReturnValue(condExpr.alternate());
+            return;
+        }
+        if (expr instanceof BinaryExpression binExpr && isLogicalOperator(binExpr.operator())) {
+            BinaryExpression.BinaryOperator operator = binExpr.operator();
+            JSValue left = ConstantFolder.fold(binExpr.left());
+            if (left != null) {
+                boolean isLeftSelected = switch (operator) {
+                    case LOGICAL_AND -> !ConstantFolder.isTruthy(left);
+                    case LOGICAL_OR -> ConstantFolder.isTruthy(left);
+                    default -> !left.isNullOrUndefined();
+                };
+                if (isLeftSelected) {
+                    emitConstant(left);
+                    emitter.emitOpcode(Opcode.RETURN);
+                } else {
+                    compileReturnValue(binExpr.right());
+                }
+                return;
+            }
+            // Keep the left operand as the result unless the right operand is selected
+            compileExpression(binExpr.left());
+            emitter.emitOpcode(Opcode.DUP);
+            int jumpToReturnLeft;
+            switch (operator) {
+                case LOGICAL_AND -> jumpToReturnLeft = emitter.emitJump(Opcode.IF_FALSE);
+                case LOGICAL_OR -> jumpToReturnLeft = emitter.emitJump(Opcode.IF_TRUE);
+                default -> {
+                    emitter.emitOpcode(Opcode.IS_UNDEFINED_OR_NULL);
+                    jumpToReturnLeft = emitter.emitJump(Opcode.IF_FALSE);
+                }
+            }
+            emitter.emitOpcode(Opcode.DROP);
+            compileReturnValue(binExpr.right());
+            emitter.patchJump(jumpToReturnLeft, emitter.currentOffset());
+            emitter.emitOpcode(Opcode.RETURN);
+            return;
+        }
+        if (expr instanceof SequenceExpression seqExpr) {
+            List<Expression> exps = seqExpr.expressions();
+            for (int i = 0; i < exps.size() - 1; i++) {
+                compileExpression(exps.get(i));
+                emitter.emitOpcode(Opcode.DROP);
+            }
+            compileReturnValue(exps.get(exps.size() - 1));
+            return;
+        }
+        compileExpression(expr);
+        emitter.emitOpcode(Opcode.RETURN);
+    }
+
     private void compileStatement(Statement stmt) {
         compileStatement(stmt, false);
     }
@@ -2334,7 +2450,7 @@ public final class BytecodeCompiler {
         } else if (stmt instanceof ThrowStatement throwStmt) {
             compileThrowStatement(throwStmt);
         } else if (stmt instanceof TryStatement tryStmt) {
-            compileTryStatement(tryStmt);
+            compileTryStatement(tryStmt, isLastInProgram);
         } else if (stmt instanceof SwitchStatement switchStmt) {
             compileSwitchStatement(switchStmt);
         } else if (stmt instanceof VariableDeclaration varDecl) {
@@ -2352,11 +2468,13 @@ public final class BytecodeCompiler {
      */
     private JSBytecodeFunction compileStaticBlock(ClassDeclaration.StaticBlock staticBlock, String className) {
         BytecodeCompiler blockCompiler = new BytecodeCompiler();
+        blockCompiler.parent = this;
 
         blockCompiler.enterScope();
         blockCompiler.inGlobalScope = false;
 
         // Compile all statements in the static block
+        blockCompiler.hoistDeclarations(staticBlock.body());
         for (Statement stmt : staticBlock.body()) {
             blockCompiler.compileStatement(stmt);
         }
@@ -2553,6 +2671,12 @@ public final class BytecodeCompiler {
     }
 
     private void compileTemplateLiteral(TemplateLiteral templateLiteral) {
+        JSValue folded = ConstantFolder.fold(templateLiteral);
+        if (folded != null) {
+            emitConstant(folded);
+            return;
+        }
+
         // For untagged template literals, concatenate strings and expressions
         // Example: `Hello ${name}!` becomes "Hello " + name + "!"
 
@@ -2623,24 +2747,31 @@ public final class BytecodeCompiler {
         exitScope();
     }
 
-    private void compileTryStatement(TryStatement tryStmt) {
-        // Mark catch handler location
-        int catchJump = -1;
-        if (tryStmt.handler() != null) {
-            catchJump = emitter.emitJump(Opcode.CATCH);
-        }
+    private void compileTryStatement(TryStatement tryStmt, boolean isLastInProgram) {
+        // A call inside any part of the try statement may not replace the frame
+        tryDepth++;
+        // Following QuickJS, handlers are found through the exception table of the
+        // function, so entering and leaving the try block emits no instructions
+        int stackDepth = statementStackDepth;
+        int tryStart = emitter.currentOffset();
+        int tryLocalStart = currentScope().getLocalCount();
 
         // Compile try block - preserve value of last expression
         compileTryFinallyBlock(tryStmt.block());
+        int tryEnd = emitter.currentOffset();
+        int tryLocalEnd = currentScope().getLocalCount();
 
         // Jump over catch block
         int jumpOverCatch = emitter.emitJump(Opcode.GOTO);
 
+        int catchStart = -1;
+        int catchEnd = -1;
         if (tryStmt.handler() != null) {
-            // Patch catch jump
-            emitter.patchJump(catchJump, emitter.currentOffset());
+            // The handler starts with the exception on the stack
+            catchStart = emitter.currentOffset();
+            emitter.addExceptionHandler(tryStart, tryEnd, catchStart, stackDepth);
+            emitClearLocals(tryLocalStart, tryLocalEnd);
 
-            // Catch handler puts exception on stack
             TryStatement.CatchClause handler = tryStmt.handler();
 
             // Bind exception to parameter if present
@@ -2682,17 +2813,46 @@ public final class BytecodeCompiler {
                 inGlobalScope = savedGlobalScope;
                 exitScope();
             } else {
-                // No parameter, compile catch body without binding
+                // No parameter, drop the exception and compile catch body without binding
+                emitter.emitOpcode(Opcode.DROP);
                 compileTryFinallyBlock(handler.body());
             }
+            catchEnd = emitter.currentOffset();
+        }
+
+        if (tryStmt.finalizer() != null) {
+            // An exception from the try block (or from the catch block) runs the finally block and is rethrown
+            int jumpOverRethrow = emitter.emitJump(Opcode.GOTO);
+            int rethrowStart = emitter.currentOffset();
+            if (catchStart < 0) {
+                emitter.addExceptionHandler(tryStart, tryEnd, rethrowStart, stackDepth);
+            } else {
+                emitter.addExceptionHandler(catchStart, catchEnd, rethrowStart, stackDepth);
+            }
+            emitClearLocals(tryLocalStart, currentScope().getLocalCount());
+            statementStackDepth++;
+            compileTryFinallyBlock(tryStmt.finalizer());
+            statementStackDepth--;
+            emitter.emitOpcode(Opcode.DROP);
+            emitter.emitOpcode(Opcode.THROW);
+            emitter.patchJump(jumpOverRethrow, emitter.currentOffset());
         }
 
         // Patch jump over catch
         emitter.patchJump(jumpOverCatch, emitter.currentOffset());
 
-        // Compile finally block
+        // Compile finally block, its value does not replace the value of the try statement
         if (tryStmt.finalizer() != null) {
+            statementStackDepth++;
             compileTryFinallyBlock(tryStmt.finalizer());
+            statementStackDepth--;
+            emitter.emitOpcode(Opcode.DROP);
+        }
+        tryDepth--;
+
+        // Only the last statement of a program keeps its value as the completion value
+        if (!isLastInProgram) {
+            emitter.emitOpcode(Opcode.DROP);
         }
     }
 
@@ -2737,11 +2897,10 @@ public final class BytecodeCompiler {
                 compileExpression(operand);
                 emitter.emitOpcode(isPrefix ? (isInc ? Opcode.INC : Opcode.DEC)
                         : (isInc ? Opcode.POST_INC : Opcode.POST_DEC));
-                Integer localIndex = currentScope().getLocal(id.name());
-                if (localIndex != null) {
-                    emitter.emitOpcodeU16(isPrefix ? Opcode.SET_LOCAL : Opcode.PUT_LOCAL, localIndex);
+                if (isPrefix) {
+                    emitSetVariable(id.name());
                 } else {
-                    emitter.emitOpcodeAtom(isPrefix ? Opcode.SET_VAR : Opcode.PUT_VAR, id.name());
+                    emitPutVariable(id.name());
                 }
             } else if (operand instanceof MemberExpression memberExpr) {
                 if (memberExpr.computed()) {
@@ -2849,6 +3008,12 @@ public final class BytecodeCompiler {
             return;
         }
 
+        JSValue folded = ConstantFolder.fold(unaryExpr);
+        if (folded != null) {
+            emitConstant(folded);
+            return;
+        }
+
         compileExpression(unaryExpr.operand());
 
         Opcode op = switch (unaryExpr.operator()) {
@@ -2877,24 +3042,39 @@ public final class BytecodeCompiler {
             }
 
             // Assign to pattern (handles Identifier, ObjectPattern, ArrayPattern)
-            compilePatternAssignment(declarator.id());
+            compilePatternAssignment(declarator.id(), varDecl.kind());
         }
     }
 
     private void compileWhileStatement(WhileStatement whileStmt) {
+        JSValue test = ConstantFolder.fold(whileStmt.test());
+        if (test != null && !ConstantFolder.isTruthy(test) && !ConstantFolder.hasHoistedDeclaration(whileStmt.body())) {
+            return;
+        }
+
+        // The loop scope collects the locals of the body that escape into closures
+        enterScope();
+        Scope loopScope = currentScope();
         int loopStart = emitter.currentOffset();
         LoopContext loop = new LoopContext(loopStart);
         loopStack.push(loop);
 
-        // Compile test condition
-        compileExpression(whileStmt.test());
-
-        // Jump to end if false
-        int jumpToEnd = emitter.emitJump(Opcode.IF_FALSE);
+        // Compile test condition, which a constant true test does not need
+        int jumpToEnd = -1;
+        if (test == null || !ConstantFolder.isTruthy(test)) {
+            compileExpression(whileStmt.test());
+            jumpToEnd = emitter.emitJump(Opcode.IF_FALSE);
+        }
 
         // Compile body
         compileStatement(whileStmt.body());
 
+        // Continue statements close the captured locals of the iteration
+        int continueTarget = emitter.currentOffset();
+        if (!emitCloseLocals(loopScope)) {
+            continueTarget = loopStart;
+        }
+
         // Jump back to start
         emitter.emitOpcode(Opcode.GOTO);
         int backJumpPos = emitter.currentOffset();
@@ -2902,7 +3082,9 @@ public final class BytecodeCompiler {
 
         // Patch end jump
         int loopEnd = emitter.currentOffset();
-        emitter.patchJump(jumpToEnd, loopEnd);
+        if (jumpToEnd != -1) {
+            emitter.patchJump(jumpToEnd, loopEnd);
+        }
 
         // Patch all break statements
         for (int breakPos : loop.breakPositions) {
@@ -2911,10 +3093,11 @@ public final class BytecodeCompiler {
 
         // Patch all continue statements
         for (int continuePos : loop.continuePositions) {
-            emitter.patchJump(continuePos, loopStart);
+            emitter.patchJump(continuePos, continueTarget);
         }
 
         loopStack.pop();
+        exitScope();
     }
 
     private void compileYieldExpression(YieldExpression yieldExpr) {
@@ -2947,6 +3130,7 @@ public final class BytecodeCompiler {
             List<ClassDeclaration.PropertyDefinition> instanceFields,
             Map<String, JSSymbol> privateSymbols) {
         BytecodeCompiler constructorCompiler = new BytecodeCompiler();
+        constructorCompiler.parent = this;
         constructorCompiler.privateSymbols = privateSymbols;  // Make private symbols available
 
         constructorCompiler.enterScope();
@@ -3028,6 +3212,120 @@ public final class BytecodeCompiler {
 
     // ==================== Scope Management ====================
 
+    /**
+     * Close the locals of a loop that escape into closures at the end of an iteration,
+     * so that the closures created by the iteration keep their own bindings.
+     * Following QuickJS close_scopes() at the loop continue label. Locals that
+     * do not escape stay plain slots and need no per-iteration binding.
+     *
+     * @param loopScope the scope of the loop
+     * @return true if any CLOSE_LOC is emitted
+     */
+    private boolean emitCloseLocals(Scope loopScope) {
+        for (int localIndex : loopScope.getCapturedLocals()) {
+            emitter.emitOpcodeU16(Opcode.CLOSE_LOC, localIndex);
+        }
+        return !loopScope.getCapturedLocals().isEmpty();
+    }
+
+    /**
+     * Clear the locals of the blocks left by an exception, so that the values they
+     * hold are no longer reachable from the frame. Slots are not reused across
+     * blocks, so without this they would stay alive until the function returns.
+     * The locals that escape into closures are closed first to keep their values.
+     *
+     * @param fromIndex the first local of the blocks
+     * @param toIndex   the local after the last local of the blocks
+     */
+    private void emitClearLocals(int fromIndex, int toIndex) {
+        Set<Integer> capturedLocals = currentScope().getCapturedLocals();
+        for (int localIndex = fromIndex; localIndex < toIndex; localIndex++) {
+            if (capturedLocals.contains(localIndex)) {
+                emitter.emitOpcodeU16(Opcode.CLOSE_LOC, localIndex);
+            }
+            emitter.emitOpcode(Opcode.UNDEFINED);
+            emitter.emitOpcodeU16(Opcode.PUT_LOCAL, localIndex);
+        }
+    }
+
+    /**
+     * Emit a folded constant, using PUSH_I32 for int values so that the
+     * peephole optimizer can shorten it.
+     */
+    private void emitConstant(JSValue value) {
+        if (value instanceof JSNumber number) {
+            double d = number.value();
+            if (d == (int) d && Double.doubleToRawLongBits(d) != Double.doubleToRawLongBits(-0.0)) {
+                emitter.emitOpcode(Opcode.PUSH_I32);
+                emitter.emitI32((int) d);
+            } else {
+                emitter.emitOpcodeConstant(Opcode.PUSH_CONST, number);
+            }
+        } else if (value instanceof JSBoolean bool) {
+            emitter.emitOpcode(bool.value() ? Opcode.PUSH_TRUE : Opcode.PUSH_FALSE);
+        } else if (value instanceof JSNull) {
+            emitter.emitOpcode(Opcode.NULL);
+        } else if (value instanceof JSUndefined) {
+            emitter.emitOpcode(Opcode.UNDEFINED);
+        } else {
+            emitter.emitOpcodeConstant(Opcode.PUSH_CONST, value);
+        }
+    }
+
+    /**
+     * Emit a class member compiled ahead of time. Members that capture variables
+     * are bound by FCLOSURE, the others are pushed as they are.
+     */
+    private void emitFunction(JSBytecodeFunction function) {
+        if (function.getBytecode().getClosureVars().length > 0) {
+            emitter.emitOpcodeConstant(Opcode.FCLOSURE, function);
+        } else {
+            emitter.emitOpcodeConstant(Opcode.PUSH_CONST, function);
+        }
+    }
+
+    private void emitGetVariable(String name) {
+        Integer localIndex = findLocalInScopes(name);
+        if (localIndex != null) {
+            emitter.emitOpcodeU16(Opcode.GET_LOCAL, localIndex);
+            return;
+        }
+        int closureVarIndex = resolveClosureVar(name);
+        if (closureVarIndex >= 0) {
+            emitter.emitOpcodeU16(Opcode.GET_VAR_REF, closureVarIndex);
+        } else {
+            emitter.emitOpcodeAtom(Opcode.GET_VAR, name);
+        }
+    }
+
+    private void emitPutVariable(String name) {
+        Integer localIndex = findLocalInScopes(name);
+        if (localIndex != null) {
+            emitter.emitOpcodeU16(Opcode.PUT_LOCAL, localIndex);
+            return;
+        }
+        int closureVarIndex = resolveClosureVar(name);
+        if (closureVarIndex >= 0) {
+            emitter.emitOpcodeU16(Opcode.PUT_VAR_REF, closureVarIndex);
+        } else {
+            emitter.emitOpcodeAtom(Opcode.PUT_VAR, name);
+        }
+    }
+
+    private void emitSetVariable(String name) {
+        Integer localIndex = findLocalInScopes(name);
+        if (localIndex != null) {
+            emitter.emitOpcodeU16(Opcode.SET_LOCAL, localIndex);
+            return;
+        }
+        int closureVarIndex = resolveClosureVar(name);
+        if (closureVarIndex >= 0) {
+            emitter.emitOpcodeU16(Opcode.SET_VAR_REF, closureVarIndex);
+        } else {
+            emitter.emitOpcodeAtom(Opcode.SET_VAR, name);
+        }
+    }
+
     private void enterScope() {
         int baseIndex = scopes.isEmpty() ? 0 : currentScope().getLocalCount();
         scopes.push(new Scope(baseIndex));
@@ -3048,6 +3346,8 @@ public final class BytecodeCompiler {
             if (localCount > parentScope.getLocalCount()) {
                 parentScope.setLocalCount(localCount);
             }
+            // The enclosing loops renew the bindings of the escaping locals of the child scope too
+            parentScope.getCapturedLocals().addAll(exitingScope.getCapturedLocals());
         }
     }
 
@@ -3099,6 +3399,22 @@ public final class BytecodeCompiler {
         }
     }
 
+    /**
+     * Check if a returned expression has a call in tail position.
+     */
+    private boolean hasTailCall(Expression expr) {
+        if (expr instanceof ConditionalExpression condExpr) {
+            return hasTailCall(condExpr.consequent()) || hasTailCall(condExpr.alternate());
+        }
+        if (expr instanceof BinaryExpression binExpr && isLogicalOperator(binExpr.operator())) {
+            return hasTailCall(binExpr.right());
+        }
+        if (expr instanceof SequenceExpression seqExpr) {
+            return hasTailCall(seqExpr.expressions().get(seqExpr.expressions().size() - 1));
+        }
+        return isTailCall(expr);
+    }
+
     /**
      * Check if a block statement has a "use strict" directive as its first statement.
      * Following ECMAScript specification section 10.2.1 (Directive Prologues).
@@ -3124,6 +3440,132 @@ public final class BytecodeCompiler {
         return "use strict".equals(value);
     }
 
+    /**
+     * Declare the bindings of a function body before compiling it, so that the
+     * nested functions capture the variables declared after them.
+     * Following QuickJS, the var bindings of nested statements are hoisted to
+     * the function scope, along with the declarations of the body itself.
+     */
+    private void hoistDeclarations(List<Statement> body) {
+        for (Statement stmt : body) {
+            if (stmt instanceof VariableDeclaration varDecl) {
+                for (VariableDeclaration.VariableDeclarator declarator : varDecl.declarations()) {
+                    declarePatternVariables(declarator.id());
+                }
+            } else if (stmt instanceof FunctionDeclaration funcDecl) {
+                currentScope().declareLocal(funcDecl.id().name());
+            } else if (stmt instanceof ClassDeclaration classDecl && classDecl.id() != null) {
+                currentScope().declareLocal(classDecl.id().name());
+            } else {
+                hoistVarDeclarations(stmt);
+            }
+        }
+    }
+
+    private void hoistVarDeclarations(List<Statement> statements) {
+        for (Statement stmt : statements) {
+            hoistVarDeclarations(stmt);
+        }
+    }
+
+    private void hoistVarDeclarations(Statement stmt) {
+        if (stmt instanceof VariableDeclaration varDecl) {
+            if ("var".equals(varDecl.kind())) {
+                for (VariableDeclaration.VariableDeclarator declarator : varDecl.declarations()) {
+                    declarePatternVariables(declarator.id());
+                }
+            }
+        } else if (stmt instanceof BlockStatement block) {
+            hoistVarDeclarations(block.body());
+        } else if (stmt instanceof IfStatement ifStmt) {
+            hoistVarDeclarations(ifStmt.consequent());
+            if (ifStmt.alternate() != null) {
+                hoistVarDeclarations(ifStmt.alternate());
+            }
+        } else if (stmt instanceof WhileStatement whileStmt) {
+            hoistVarDeclarations(whileStmt.body());
+        } else if (stmt instanceof ForStatement forStmt) {
+            if (forStmt.init() instanceof VariableDeclaration init) {
+                hoistVarDeclarations(init);
+            }
+            hoistVarDeclarations(forStmt.body());
+        } else if (stmt instanceof ForInStatement forInStmt) {
+            hoistVarDeclarations(forInStmt.left());
+            hoistVarDeclarations(forInStmt.body());
+        } else if (stmt instanceof ForOfStatement forOfStmt) {
+            hoistVarDeclarations(forOfStmt.left());
+            hoistVarDeclarations(forOfStmt.body());
+        } else if (stmt instanceof TryStatement tryStmt) {
+            hoistVarDeclarations(tryStmt.block());
+            if (tryStmt.handler() != null) {
+                hoistVarDeclarations(tryStmt.handler().body());
+            }
+            if (tryStmt.finalizer() != null) {
+                hoistVarDeclarations(tryStmt.finalizer());
+            }
+        } else if (stmt instanceof SwitchStatement switchStmt) {
+            for (SwitchStatement.SwitchCase switchCase : switchStmt.cases()) {
+                hoistVarDeclarations(switchCase.consequent());
+            }
+        }
+    }
+
+    private boolean isLogicalOperator(BinaryExpression.BinaryOperator operator) {
+        return operator == BinaryExpression.BinaryOperator.LOGICAL_AND
+                || operator == BinaryExpression.BinaryOperator.LOGICAL_OR
+                || operator == BinaryExpression.BinaryOperator.NULLISH_COALESCING;
+    }
+
+    /**
+     * Check if an expression in tail position can be compiled as a proper tail call.
+     * Spread calls are compiled with APPLY and are not covered.
+     */
+    private boolean isTailCall(Expression expr) {
+        return expr instanceof CallExpression callExpr
+                && callExpr.arguments().stream().noneMatch(arg -> arg instanceof SpreadElement);
+    }
+
+    /**
+     * Check if the current return statement may end with proper tail calls.
+     * Following ECMAScript 15.10 (Tail Position Calls), only strict mode code
+     * qualifies. Async functions and generators return through their own
+     * machinery, and a call inside a try statement must keep the frame for
+     * its handler.
+     */
+    private boolean isTailCallAllowed() {
+        return strictMode
+                && !isInAsyncFunction
+                && !isInGeneratorFunction
+                && tryDepth == 0;
+    }
+
+    /**
+     * Resolve a variable of the enclosing functions as a closure variable.
+     * Following QuickJS get_closure_var(), a local of the parent function is
+     * captured directly and marked as captured there, a variable further out is
+     * captured through the closure variables of the parent.
+     *
+     * @return the closure variable index, or -1 if the variable is global
+     */
+    private int resolveClosureVar(String name) {
+        int closureVarIndex = emitter.findClosureVar(name);
+        if (closureVarIndex >= 0 || parent == null) {
+            return closureVarIndex;
+        }
+        for (Scope scope : parent.scopes) {
+            Integer localIndex = scope.getLocal(name);
+            if (localIndex != null) {
+                scope.captureLocal(localIndex);
+                return emitter.addClosureVar(name, true, localIndex);
+            }
+        }
+        int parentClosureVarIndex = parent.resolveClosureVar(name);
+        if (parentClosureVarIndex >= 0) {
+            return emitter.addClosureVar(name, false, parentClosureVarIndex);
+        }
+        return -1;
+    }
+
     /**
      * Set the original source code (used for extracting function source in toString()).
      */
@@ -3155,8 +3597,12 @@ public final class BytecodeCompiler {
 
     /**
      * Represents a lexical scope for tracking local variables.
+     * The scope also records which of its locals, or of the locals of the
+     * scopes nested in it, escape into closures. Only those need a variable
+     * reference and a new binding per loop iteration.
      */
-    private static class Scope {
+    private class Scope {
+        private final Set<Integer> capturedLocals = new TreeSet<>();
         private final Map<String, Integer> locals = new HashMap<>();
         private int nextLocalIndex;
 
@@ -3168,15 +3614,24 @@ public final class BytecodeCompiler {
             this.nextLocalIndex = baseIndex;
         }
 
+        void captureLocal(int index) {
+            capturedLocals.add(index);
+        }
+
         int declareLocal(String name) {
             if (locals.containsKey(name)) {
                 return locals.get(name);
             }
             int index = nextLocalIndex++;
             locals.put(name, index);
+            emitter.setLocalName(index, name);
             return index;
         }
 
+        Set<Integer> getCapturedLocals() {
+            return capturedLocals;
+        }
+
         Integer getLocal(String name) {
             return locals.get(name);
         }
@@ -19,6 +19,9 @@ package com.caoccao.qjs4j.compiler;
 import com.caoccao.qjs4j.core.JSValue;
 import com.caoccao.qjs4j.utils.AtomTable;
 import com.caoccao.qjs4j.vm.Bytecode;
+import com.caoccao.qjs4j.vm.CallSite;
+import com.caoccao.qjs4j.vm.ClosureVar;
+import com.caoccao.qjs4j.vm.ExceptionHandler;
 import com.caoccao.qjs4j.vm.Opcode;
 
 import java.io.ByteArrayOutputStream;
@@ -34,9 +37,13 @@ import java.util.Map;
 public final class BytecodeEmitter {
     private final List<String> atomPool;
     private final AtomTable atoms;
+    private final List<CallSite> callSites;
+    private final List<ClosureVar> closureVars;
     private final ByteArrayOutputStream code;
     private final Map<JSValue, Integer> constantIndexCache;
     private final List<JSValue> constantPool;
+    private final List<ExceptionHandler> exceptionHandlers;
+    private final List<String> localNames;
 
     public BytecodeEmitter() {
         this.code = new ByteArrayOutputStream();
@@ -44,17 +51,70 @@ public final class BytecodeEmitter {
         this.atoms = new AtomTable();
         this.constantIndexCache = new HashMap<>();
         this.atomPool = new ArrayList<>();
+        this.exceptionHandlers = new ArrayList<>();
+        this.callSites = new ArrayList<>();
+        this.closureVars = new ArrayList<>();
+        this.localNames = new ArrayList<>();
     }
 
     /**
-     * Build the final Bytecode object.
+     * Add a debug table entry of a call instruction, used to name the callee
+     * when the call fails.
+     */
+    public void addCallSite(int callPc, int calleeStartPc, int calleeEndPc) {
+        callSites.add(new CallSite(callPc, calleeStartPc, calleeEndPc));
+    }
+
+    /**
+     * Add a variable captured from the enclosing function.
+     *
+     * @return the closure variable index
+     */
+    public int addClosureVar(String name, boolean isLocal, int index) {
+        closureVars.add(new ClosureVar(name, isLocal, index));
+        return closureVars.size() - 1;
+    }
+
+    /**
+     * Add an exception table entry. Entries of nested try statements must be
+     * added before the entries enclosing them.
+     */
+    public void addExceptionHandler(int startPc, int endPc, int handlerPc, int stackDepth) {
+        exceptionHandlers.add(new ExceptionHandler(startPc, endPc, handlerPc, stackDepth));
+    }
+
+    /**
+     * Build the final Bytecode object, running the peephole optimizer over the emitted code.
      */
     public Bytecode build(int localCount) {
-        byte[] instructions = code.toByteArray();
+        PeepholeOptimizer optimizer = new PeepholeOptimizer(
+                code.toByteArray(),
+                exceptionHandlers.toArray(new ExceptionHandler[0]),
+                callSites.toArray(new CallSite[0]));
+        byte[] instructions = optimizer.optimize();
         JSValue[] constants = constantPool.toArray(new JSValue[0]);
         String[] atoms = atomPool.toArray(new String[0]);
 
-        return new Bytecode(instructions, constants, atoms, localCount);
+        return new Bytecode(
+                instructions, constants, atoms, localCount,
+                optimizer.getExceptionHandlers(),
+                optimizer.getCallSites(),
+                localNames.toArray(new String[0]),
+                closureVars.toArray(new ClosureVar[0]));
+    }
+
+    /**
+     * Find a captured variable by name.
+     *
+     * @return the closure variable index, or -1 if the variable is not captured yet
+     */
+    public int findClosureVar(String name) {
+        for (int i = 0; i < closureVars.size(); i++) {
+            if (closureVars.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -213,46 +273,6 @@ public final class BytecodeEmitter {
         return constantPool;
     }
 
-    /**
-     * Debug: dump the last N bytes of emitted code as disassembly.
-     */
-    public void debugDumpLast(int window) {
-        try {
-            byte[] bytes = code.toByteArray();
-            int len = bytes.length;
-            int start = Math.max(0, len - window);
-            System.out.println("EMIT DIAG: Bytecode emit window (last " + window + " bytes) at offset " + len);
-            int dpc = start;
-            while (dpc < len) {
-                int opcode = bytes[dpc] & 0xFF;
-                Opcode op = Opcode.fromInt(opcode);
-                String extra = "";
-                int size = op.getSize();
-                if (size == 5 && dpc + 4 < len) {
-                    int u32 = ((bytes[dpc + 1] & 0xFF) << 24) | ((bytes[dpc + 2] & 0xFF) << 16) | ((bytes[dpc + 3] & 0xFF) << 8) | (bytes[dpc + 4] & 0xFF);
-                    String atomName = "";
-                    try {
-                        if (u32 >= 0 && u32 < atomPool.size()) {
-                            atomName = "('" + atomPool.get(u32) + "')";
-                        }
-                    } catch (Throwable ignored) {
-                    }
-                    extra = " " + u32 + atomName;
-                } else if (size == 3 && dpc + 2 < len) {
-                    int u16 = ((bytes[dpc + 1] & 0xFF) << 8) | (bytes[dpc + 2] & 0xFF);
-                    extra = " " + u16;
-                } else if (size == 2 && dpc + 1 < len) {
-                    int u8 = bytes[dpc + 1] & 0xFF;
-                    extra = " " + u8;
-                }
-                System.out.println(String.format(" %04d: %s%s", dpc, op.name(), extra));
-                dpc += size;
-            }
-        } catch (Throwable t) {
-            // don't fail compilation due to diagnostic
-        }
-    }
-
     /**
      * Patch a previously emitted jump instruction with the target offset.
      */
@@ -269,4 +289,14 @@ public final class BytecodeEmitter {
         code.reset();
         code.write(bytes, 0, bytes.length);
     }
+
+    /**
+     * Record the name of a local variable for debug information.
+     */
+    public void setLocalName(int index, String name) {
+        while (localNames.size() <= index) {
+            localNames.add(null);
+        }
+        localNames.set(index, name);
+    }
 }
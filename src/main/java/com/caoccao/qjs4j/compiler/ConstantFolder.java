@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.compiler;
+
+import com.caoccao.qjs4j.compiler.ast.*;
+import com.caoccao.qjs4j.core.*;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Compile-time evaluation of pure literal expressions.
+ * <p>
+ * Only primitives that the VM can combine without a context are folded:
+ * numbers, strings, booleans, null and undefined. The arithmetic mirrors the
+ * VirtualMachine handlers, so a folded expression produces exactly the value
+ * the emitted opcodes would have produced at run time. Identifiers such as
+ * undefined or NaN are never folded because they can be shadowed.
+ */
+public final class ConstantFolder {
+    /**
+     * Fold an expression to a constant value.
+     *
+     * @return the value, or null if the expression is not a constant
+     */
+    public static JSValue fold(Expression expr) {
+        if (expr instanceof Literal literal) {
+            return foldLiteral(literal.value());
+        } else if (expr instanceof UnaryExpression unaryExpr) {
+            return foldUnary(unaryExpr);
+        } else if (expr instanceof BinaryExpression binExpr) {
+            return foldBinary(binExpr);
+        } else if (expr instanceof ConditionalExpression condExpr) {
+            JSValue test = fold(condExpr.test());
+            if (test == null) {
+                return null;
+            }
+            return fold(isTruthy(test) ? condExpr.consequent() : condExpr.alternate());
+        } else if (expr instanceof TemplateLiteral templateLiteral) {
+            return foldTemplateLiteral(templateLiteral);
+        }
+        return null;
+    }
+
+    private static JSValue foldBinary(BinaryExpression binExpr) {
+        JSValue left = fold(binExpr.left());
+        if (left == null) {
+            return null;
+        }
+        // Short-circuit operators only need the right operand when it is selected
+        switch (binExpr.operator()) {
+            case LOGICAL_AND:
+                return isTruthy(left) ? fold(binExpr.right()) : left;
+            case LOGICAL_OR:
+                return isTruthy(left) ? left : fold(binExpr.right());
+            case NULLISH_COALESCING:
+                return left.isNullOrUndefined() ? fold(binExpr.right()) : left;
+            default:
+                break;
+        }
+        JSValue right = fold(binExpr.right());
+        if (right == null) {
+            return null;
+        }
+        return switch (binExpr.operator()) {
+            case ADD -> {
+                if (left instanceof JSString || right instanceof JSString) {
+                    yield new JSString(JSTypeConversions.toString(null, left).value()
+                            + JSTypeConversions.toString(null, right).value());
+                }
+                yield JSNumber.valueOf(toNumber(left) + toNumber(right));
+            }
+            case BIT_AND -> JSNumber.valueOf(toInt32(left) & toInt32(right));
+            case BIT_OR -> JSNumber.valueOf(toInt32(left) | toInt32(right));
+            case BIT_XOR -> JSNumber.valueOf(toInt32(left) ^ toInt32(right));
+            case DIV -> JSNumber.valueOf(toNumber(left) / toNumber(right));
+            case EQ -> JSBoolean.valueOf(JSTypeConversions.abstractEquals(null, left, right));
+            case EXP -> JSNumber.valueOf(Math.pow(toNumber(left), toNumber(right)));
+            case GE -> JSBoolean.valueOf(JSTypeConversions.lessThan(null, right, left)
+                    || JSTypeConversions.abstractEquals(null, left, right));
+            case GT -> JSBoolean.valueOf(JSTypeConversions.lessThan(null, right, left));
+            case LE -> JSBoolean.valueOf(JSTypeConversions.lessThan(null, left, right)
+                    || JSTypeConversions.abstractEquals(null, left, right));
+            case LSHIFT -> JSNumber.valueOf(toInt32(left) << (toInt32(right) & 0x1F));
+            case LT -> JSBoolean.valueOf(JSTypeConversions.lessThan(null, left, right));
+            case MOD -> JSNumber.valueOf(toNumber(left) % toNumber(right));
+            case MUL -> JSNumber.valueOf(toNumber(left) * toNumber(right));
+            case NE -> JSBoolean.valueOf(!JSTypeConversions.abstractEquals(null, left, right));
+            case RSHIFT -> JSNumber.valueOf(toInt32(left) >> (toInt32(right) & 0x1F));
+            case STRICT_EQ -> JSBoolean.valueOf(JSTypeConversions.strictEquals(left, right));
+            case STRICT_NE -> JSBoolean.valueOf(!JSTypeConversions.strictEquals(left, right));
+            case SUB -> JSNumber.valueOf(toNumber(left) - toNumber(right));
+            case URSHIFT -> JSNumber.valueOf((toInt32(left) >>> (toInt32(right) & 0x1F)) & 0xFFFFFFFFL);
+            default -> null;
+        };
+    }
+
+    private static JSValue foldLiteral(Object value) {
+        if (value == null) {
+            return JSNull.INSTANCE;
+        } else if (value instanceof Boolean bool) {
+            return JSBoolean.valueOf(bool);
+        } else if (value instanceof BigInteger) {
+            return null;
+        } else if (value instanceof Number num) {
+            return JSNumber.valueOf(num.doubleValue());
+        } else if (value instanceof String str && !(str.startsWith("/") && str.length() > 1)) {
+            // Regex literals share the String representation and are left to compileLiteral
+            return new JSString(str);
+        }
+        return null;
+    }
+
+    private static JSValue foldTemplateLiteral(TemplateLiteral templateLiteral) {
+        List<String> quasis = templateLiteral.quasis();
+        List<Expression> expressions = templateLiteral.expressions();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < quasis.size(); i++) {
+            sb.append(quasis.get(i));
+            if (i < expressions.size()) {
+                JSValue value = fold(expressions.get(i));
+                if (value == null) {
+                    return null;
+                }
+                sb.append(JSTypeConversions.toString(null, value).value());
+            }
+        }
+        return new JSString(sb.toString());
+    }
+
+    private static JSValue foldUnary(UnaryExpression unaryExpr) {
+        JSValue operand = switch (unaryExpr.operator()) {
+            case BIT_NOT, MINUS, NOT, PLUS, TYPEOF, VOID -> fold(unaryExpr.operand());
+            default -> null;
+        };
+        if (operand == null) {
+            return null;
+        }
+        return switch (unaryExpr.operator()) {
+            case BIT_NOT -> JSNumber.valueOf(~toInt32(operand));
+            case MINUS -> JSNumber.valueOf(-toNumber(operand));
+            case NOT -> JSBoolean.valueOf(!isTruthy(operand));
+            case PLUS -> JSNumber.valueOf(toNumber(operand));
+            case TYPEOF -> new JSString(JSTypeChecking.typeof(operand));
+            default -> JSUndefined.INSTANCE;
+        };
+    }
+
+    /**
+     * Check if a statement declares a binding that outlives it.
+     * A var or a function declaration is visible outside the statement even
+     * when the statement itself is never executed, so such statements cannot
+     * be removed as dead code.
+     */
+    public static boolean hasHoistedDeclaration(Statement stmt) {
+        if (stmt == null) {
+            return false;
+        } else if (stmt instanceof VariableDeclaration varDecl) {
+            return "var".equals(varDecl.kind());
+        } else if (stmt instanceof Declaration) {
+            return true;
+        } else if (stmt instanceof BlockStatement block) {
+            return hasHoistedDeclaration(block.body());
+        } else if (stmt instanceof IfStatement ifStmt) {
+            return hasHoistedDeclaration(ifStmt.consequent()) || hasHoistedDeclaration(ifStmt.alternate());
+        } else if (stmt instanceof WhileStatement whileStmt) {
+            return hasHoistedDeclaration(whileStmt.body());
+        } else if (stmt instanceof ForStatement forStmt) {
+            return (forStmt.init() instanceof Statement init && hasHoistedDeclaration(init))
+                    || hasHoistedDeclaration(forStmt.body());
+        } else if (stmt instanceof ForInStatement forInStmt) {
+            return hasHoistedDeclaration(forInStmt.left()) || hasHoistedDeclaration(forInStmt.body());
+        } else if (stmt instanceof ForOfStatement forOfStmt) {
+            return hasHoistedDeclaration(forOfStmt.left()) || hasHoistedDeclaration(forOfStmt.body());
+        } else if (stmt instanceof TryStatement tryStmt) {
+            return hasHoistedDeclaration(tryStmt.block())
+                    || (tryStmt.handler() != null && hasHoistedDeclaration(tryStmt.handler().body()))
+                    || hasHoistedDeclaration(tryStmt.finalizer());
+        } else if (stmt instanceof SwitchStatement switchStmt) {
+            for (SwitchStatement.SwitchCase switchCase : switchStmt.cases()) {
+                if (hasHoistedDeclaration(switchCase.consequent())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasHoistedDeclaration(List<Statement> statements) {
+        for (Statement stmt : statements) {
+            if (hasHoistedDeclaration(stmt)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isTruthy(JSValue value) {
+        return JSTypeConversions.toBoolean(value) == JSBoolean.TRUE;
+    }
+
+    private static int toInt32(JSValue value) {
+        return JSTypeConversions.toInt32(null, value);
+    }
+
+    private static double toNumber(JSValue value) {
+        return JSTypeConversions.toNumber(null, value).value();
+    }
+}
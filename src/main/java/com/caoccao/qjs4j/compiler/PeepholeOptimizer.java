@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.compiler;
+
+import com.caoccao.qjs4j.vm.CallSite;
+import com.caoccao.qjs4j.vm.ExceptionHandler;
+import com.caoccao.qjs4j.vm.Opcode;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Peephole optimizer over the instructions of a function, run when the emitter builds the bytecode.
+ * Following QuickJS resolve_labels, it rewrites short instruction sequences and picks the short
+ * opcode forms, then relocates the jumps, the exception table and the call site table.
+ * <p>
+ * The rewrites are:
+ * <ul>
+ *     <li>GET_LOCAL n, POST_INC / INC, PUT_LOCAL n / SET_LOCAL n, DROP to INC_LOC n (same for DEC_LOC)</li>
+ *     <li>SET_LOCAL n, DROP to PUT_LOCAL n, and the same for SET_VAR and SET_VAR_REF</li>
+ *     <li>DUP or a constant, local or closure variable push followed by DROP is removed</li>
+ *     <li>GET_LOCAL / PUT_LOCAL / SET_LOCAL to GET_LOC0..3 / GET_LOC8 and the like</li>
+ *     <li>GET_VAR_REF / PUT_VAR_REF / SET_VAR_REF to GET_VAR_REF0..3 and the like</li>
+ *     <li>PUSH_I32 to PUSH_MINUS1, PUSH_0..7, PUSH_I8 or PUSH_I16</li>
+ * </ul>
+ * A sequence is only rewritten if no jump, exception handler or call site points inside it.
+ */
+public final class PeepholeOptimizer {
+    private final CallSite[] callSites;
+    private final ExceptionHandler[] exceptionHandlers;
+    private final byte[] instructions;
+    private boolean[] labels;
+    private int[] newPcs;
+    private CallSite[] optimizedCallSites;
+    private ExceptionHandler[] optimizedExceptionHandlers;
+
+    public PeepholeOptimizer(byte[] instructions, ExceptionHandler[] exceptionHandlers, CallSite[] callSites) {
+        this.instructions = instructions;
+        this.exceptionHandlers = exceptionHandlers;
+        this.callSites = callSites;
+        this.labels = null;
+        this.newPcs = null;
+        this.optimizedCallSites = callSites;
+        this.optimizedExceptionHandlers = exceptionHandlers;
+    }
+
+    private static boolean isJump(Opcode op) {
+        return op == Opcode.GOTO || op == Opcode.IF_FALSE || op == Opcode.IF_TRUE;
+    }
+
+    private static boolean isPurePush(Opcode op) {
+        return switch (op) {
+            case DUP, UNDEFINED, NULL, PUSH_TRUE, PUSH_FALSE, PUSH_I32, PUSH_CONST, GET_LOCAL, GET_VAR_REF -> true;
+            default -> false;
+        };
+    }
+
+    private static Instruction shorten(Instruction instruction) {
+        int operand = instruction.operand();
+        return switch (instruction.opcode()) {
+            case GET_LOCAL -> shortenLocal(instruction, Opcode.GET_LOC0, Opcode.GET_LOC1, Opcode.GET_LOC2, Opcode.GET_LOC3, Opcode.GET_LOC8);
+            case PUT_LOCAL -> shortenLocal(instruction, Opcode.PUT_LOC0, Opcode.PUT_LOC1, Opcode.PUT_LOC2, Opcode.PUT_LOC3, Opcode.PUT_LOC8);
+            case SET_LOCAL -> shortenLocal(instruction, Opcode.SET_LOC0, Opcode.SET_LOC1, Opcode.SET_LOC2, Opcode.SET_LOC3, Opcode.SET_LOC8);
+            case GET_VAR_REF, PUT_VAR_REF, SET_VAR_REF -> {
+                // The short forms of a kind are consecutive
+                if (operand >= 0 && operand <= 3) {
+                    Opcode ref0 = switch (instruction.opcode()) {
+                        case GET_VAR_REF -> Opcode.GET_VAR_REF0;
+                        case PUT_VAR_REF -> Opcode.PUT_VAR_REF0;
+                        default -> Opcode.SET_VAR_REF0;
+                    };
+                    yield new Instruction(instruction.pc(), Opcode.fromInt(ref0.getCode() + operand), operand);
+                }
+                yield instruction;
+            }
+            case PUSH_I32 -> {
+                if (operand >= 0 && operand <= 7) {
+                    yield new Instruction(instruction.pc(), Opcode.fromInt(Opcode.PUSH_0.getCode() + operand), operand);
+                } else if (operand == -1) {
+                    yield new Instruction(instruction.pc(), Opcode.PUSH_MINUS1, operand);
+                } else if (operand >= Byte.MIN_VALUE && operand <= Byte.MAX_VALUE) {
+                    yield new Instruction(instruction.pc(), Opcode.PUSH_I8, operand);
+                } else if (operand >= Short.MIN_VALUE && operand <= Short.MAX_VALUE) {
+                    yield new Instruction(instruction.pc(), Opcode.PUSH_I16, operand);
+                }
+                yield instruction;
+            }
+            default -> instruction;
+        };
+    }
+
+    private static Instruction shortenLocal(
+            Instruction instruction, Opcode loc0, Opcode loc1, Opcode loc2, Opcode loc3, Opcode loc8) {
+        int index = instruction.operand();
+        Opcode op = switch (index) {
+            case 0 -> loc0;
+            case 1 -> loc1;
+            case 2 -> loc2;
+            case 3 -> loc3;
+            default -> index <= 0xFF ? loc8 : instruction.opcode();
+        };
+        return new Instruction(instruction.pc(), op, index);
+    }
+
+    private List<Instruction> decode() {
+        List<Instruction> decoded = new ArrayList<>();
+        int pc = 0;
+        while (pc < instructions.length) {
+            Opcode op = Opcode.fromInt(instructions[pc] & 0xFF);
+            int operand = switch (op.getSize()) {
+                case 2 -> readU8(pc + 1);
+                case 3 -> readU16(pc + 1);
+                case 5 -> readU32(pc + 1);
+                default -> 0;
+            };
+            if (isJump(op)) {
+                // Keep the absolute target so that it can be relocated
+                operand += pc + op.getSize();
+                labels[operand] = true;
+            }
+            decoded.add(new Instruction(pc, op, operand));
+            pc += op.getSize();
+        }
+        return decoded;
+    }
+
+    private void emit(ByteArrayOutputStream out, Instruction instruction) {
+        Opcode op = instruction.opcode();
+        int operand = instruction.operand();
+        if (isJump(op)) {
+            operand = newPcs[operand] - (out.size() + op.getSize());
+        } else if (op.getSize() > 1 && op == Opcode.fromInt(instructions[instruction.pc()] & 0xFF)) {
+            // Unchanged instructions are copied as they are, whatever their operand layout
+            out.write(instructions, instruction.pc(), op.getSize());
+            return;
+        }
+        out.write(op.getCode());
+        switch (op.getSize()) {
+            case 2 -> out.write(operand);
+            case 3 -> {
+                out.write(operand >> 8);
+                out.write(operand);
+            }
+            case 5 -> {
+                out.write(operand >> 24);
+                out.write(operand >> 16);
+                out.write(operand >> 8);
+                out.write(operand);
+            }
+            default -> {
+            }
+        }
+    }
+
+    public CallSite[] getCallSites() {
+        return optimizedCallSites;
+    }
+
+    public ExceptionHandler[] getExceptionHandlers() {
+        return optimizedExceptionHandlers;
+    }
+
+    private boolean isLabel(Instruction instruction) {
+        return labels[instruction.pc()];
+    }
+
+    /**
+     * Optimize the instructions.
+     *
+     * @return the optimized instructions, with the call sites and exception handlers relocated
+     */
+    public byte[] optimize() {
+        int length = instructions.length;
+        labels = new boolean[length + 1];
+        for (ExceptionHandler handler : exceptionHandlers) {
+            labels[handler.startPc()] = true;
+            labels[handler.endPc()] = true;
+            labels[handler.handlerPc()] = true;
+        }
+        for (CallSite callSite : callSites) {
+            labels[callSite.callPc()] = true;
+            labels[callSite.calleeStartPc()] = true;
+            labels[callSite.calleeEndPc()] = true;
+        }
+        List<Instruction> decoded = decode();
+
+        // Rewrite the sequences and lay out the result
+        newPcs = new int[length + 1];
+        List<Instruction> rewritten = new ArrayList<>(decoded.size());
+        int newPc = 0;
+        int count = decoded.size();
+        int i = 0;
+        while (i < count) {
+            Instruction instruction = decoded.get(i);
+            newPcs[instruction.pc()] = newPc;
+            int matched = matchIncrement(decoded, i);
+            Instruction replacement = null;
+            if (matched > 0) {
+                Opcode op = decoded.get(i + 1).opcode() == Opcode.POST_INC || decoded.get(i + 1).opcode() == Opcode.INC
+                        ? Opcode.INC_LOC
+                        : Opcode.DEC_LOC;
+                replacement = new Instruction(instruction.pc(), op, instruction.operand());
+            } else if (i + 1 < count && decoded.get(i + 1).opcode() == Opcode.DROP && !isLabel(decoded.get(i + 1))) {
+                Opcode op = instruction.opcode();
+                if (op == Opcode.SET_LOCAL) {
+                    replacement = new Instruction(instruction.pc(), Opcode.PUT_LOCAL, instruction.operand());
+                    matched = 2;
+                } else if (op == Opcode.SET_VAR) {
+                    replacement = new Instruction(instruction.pc(), Opcode.PUT_VAR, instruction.operand());
+                    matched = 2;
+                } else if (op == Opcode.SET_VAR_REF) {
+                    replacement = new Instruction(instruction.pc(), Opcode.PUT_VAR_REF, instruction.operand());
+                    matched = 2;
+                } else if (isPurePush(op)) {
+                    // The value is dropped right away
+                    matched = 2;
+                }
+            }
+            if (matched == 0) {
+                replacement = shorten(instruction);
+                matched = 1;
+            } else if (replacement != null) {
+                replacement = shorten(replacement);
+            }
+            if (replacement != null) {
+                rewritten.add(replacement);
+                newPc += replacement.opcode().getSize();
+            }
+            i += matched;
+        }
+        newPcs[length] = newPc;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(newPc);
+        for (Instruction instruction : rewritten) {
+            emit(out, instruction);
+        }
+        optimizedExceptionHandlers = new ExceptionHandler[exceptionHandlers.length];
+        for (int j = 0; j < exceptionHandlers.length; j++) {
+            ExceptionHandler handler = exceptionHandlers[j];
+            optimizedExceptionHandlers[j] = new ExceptionHandler(
+                    newPcs[handler.startPc()], newPcs[handler.endPc()], newPcs[handler.handlerPc()], handler.stackDepth());
+        }
+        optimizedCallSites = new CallSite[callSites.length];
+        for (int j = 0; j < callSites.length; j++) {
+            CallSite callSite = callSites[j];
+            optimizedCallSites[j] = new CallSite(
+                    newPcs[callSite.callPc()], newPcs[callSite.calleeStartPc()], newPcs[callSite.calleeEndPc()]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Match an increment or decrement of a local whose value is not used, such as "i++;".
+     *
+     * @return the number of matched instructions, or 0
+     */
+    private int matchIncrement(List<Instruction> decoded, int index) {
+        if (index + 3 >= decoded.size()) {
+            return 0;
+        }
+        Instruction get = decoded.get(index);
+        Instruction update = decoded.get(index + 1);
+        Instruction put = decoded.get(index + 2);
+        Instruction drop = decoded.get(index + 3);
+        if (get.opcode() != Opcode.GET_LOCAL || get.operand() > 0xFF || drop.opcode() != Opcode.DROP
+                || put.operand() != get.operand() || isLabel(update) || isLabel(put) || isLabel(drop)) {
+            return 0;
+        }
+        // The postfix form stores the new value and drops the old one,
+        // the prefix form stores the new value and drops its copy
+        boolean postfix = (update.opcode() == Opcode.POST_INC || update.opcode() == Opcode.POST_DEC)
+                && put.opcode() == Opcode.PUT_LOCAL;
+        boolean prefix = (update.opcode() == Opcode.INC || update.opcode() == Opcode.DEC)
+                && put.opcode() == Opcode.SET_LOCAL;
+        return postfix || prefix ? 4 : 0;
+    }
+
+    private int readU16(int offset) {
+        return ((instructions[offset] & 0xFF) << 8) | (instructions[offset + 1] & 0xFF);
+    }
+
+    private int readU32(int offset) {
+        return ((instructions[offset] & 0xFF) << 24) |
+                ((instructions[offset + 1] & 0xFF) << 16) |
+                ((instructions[offset + 2] & 0xFF) << 8) |
+                (instructions[offset + 3] & 0xFF);
+    }
+
+    private int readU8(int offset) {
+        return instructions[offset] & 0xFF;
+    }
+
+    private record Instruction(int pc, Opcode opcode, int operand) {
+    }
+}
@@ -16,6 +16,10 @@
 
 package com.caoccao.qjs4j.core;
 
+import com.caoccao.qjs4j.vm.StackFrame;
+
+import java.util.function.Consumer;
+
 /**
  * Represents the execution state of a generator function.
  * Based on QuickJS JSAsyncFunctionState and JSGeneratorData structures.
@@ -27,15 +31,16 @@ package com.caoccao.qjs4j.core;
  * - Local variables
  * - Generator state (SUSPENDED_START, SUSPENDED_YIELD, EXECUTING, COMPLETED)
  */
-public final class GeneratorState {
+public final class GeneratorState implements JSMarkable {
     private final JSValue[] args;
     private final JSBytecodeFunction function;
     private final JSValue thisArg;
     // Execution state that needs to be preserved across yields
-    // TODO: Add full state preservation (PC, stack, locals) for proper resumption
+    private StackFrame frame;  // Suspended frame holding the locals
     private boolean isCompleted;
+    private int programCounter;  // Where to resume
+    private JSStackValue[] savedStack;  // Operand stack slice of the suspended frame
     private State state;
-    private int yieldCount;  // Track how many times we've yielded (workaround for no PC saving)
 
     public GeneratorState(JSBytecodeFunction function, JSValue thisArg, JSValue[] args) {
         this.function = function;
@@ -43,54 +48,113 @@ public final class GeneratorState {
         this.args = args;
         this.state = State.SUSPENDED_START;
         this.isCompleted = false;
-        this.yieldCount = 0;
+        this.frame = null;
+        this.programCounter = 0;
+        this.savedStack = null;
     }
 
     public JSValue[] getArgs() {
         return args;
     }
 
+    public StackFrame getFrame() {
+        return frame;
+    }
+
     public JSBytecodeFunction getFunction() {
         return function;
     }
 
-    public State getState() {
-        return state;
+    public int getProgramCounter() {
+        return programCounter;
     }
 
-    public JSValue getThisArg() {
-        return thisArg;
+    public JSStackValue[] getSavedStack() {
+        return savedStack;
     }
 
-    public int getYieldCount() {
-        return yieldCount;
+    public State getState() {
+        return state;
     }
 
-    public void incrementYieldCount() {
-        this.yieldCount++;
+    public JSValue getThisArg() {
+        return thisArg;
     }
 
     public boolean isCompleted() {
         return isCompleted;
     }
 
+    /**
+     * Pass the values of the suspended frame to the mark function of the garbage collector.
+     * Following QuickJS async_func_mark(), a suspended generator or async function
+     * keeps its arguments, locals and operand stack alive.
+     */
+    @Override
+    public void markValues(Consumer<JSValue> markFunction) {
+        markFunction.accept(function);
+        markFunction.accept(thisArg);
+        if (args != null) {
+            for (JSValue arg : args) {
+                markFunction.accept(arg);
+            }
+        }
+        if (frame != null) {
+            frame.markValues(markFunction);
+        }
+        if (savedStack != null) {
+            for (JSStackValue stackValue : savedStack) {
+                if (stackValue instanceof JSValue value) {
+                    markFunction.accept(value);
+                }
+            }
+        }
+    }
+
     public void setCompleted(boolean completed) {
         this.isCompleted = completed;
         if (completed) {
             this.state = State.COMPLETED;
+            // Release the suspended frame
+            this.frame = null;
+            this.savedStack = null;
         }
     }
 
+    /**
+     * Set the frame the generator body runs in.
+     * The frame is created on the first resumption and reused afterward.
+     */
+    public void setFrame(StackFrame frame) {
+        this.frame = frame;
+    }
+
     public void setState(State state) {
         this.state = state;
     }
 
+    /**
+     * Save the state of the frame suspended at a yield or await point.
+     * Following QuickJS async_func_resume(), execution continues at the
+     * program counter with the operand stack restored.
+     *
+     * @param state          the suspended state
+     * @param programCounter the program counter after the yield or await instruction
+     * @param savedStack     the operand stack slice of the frame
+     */
+    public void suspend(State state, int programCounter, JSStackValue[] savedStack) {
+        this.programCounter = programCounter;
+        this.savedStack = savedStack;
+        this.state = state;
+    }
+
     /**
      * Generator state constants matching QuickJS JS_GENERATOR_STATE_*
      */
     public enum State {
         SUSPENDED_START,    // Created but not yet executed (before OP_initial_yield)
         SUSPENDED_YIELD,    // Suspended at a yield point
+        SUSPENDED_AWAIT,    // Async function suspended at an await point
         EXECUTING,          // Currently executing
         COMPLETED           // Execution finished
     }
@@ -16,6 +16,8 @@
 
 package com.caoccao.qjs4j.core;
 
+import java.util.function.Consumer;
+
 /**
  * Represents the arguments object available in functions.
  * Based on QuickJS JS_CLASS_ARGUMENTS implementation.
@@ -181,6 +183,14 @@ public final class JSArguments extends JSObject {
         return isStrict;
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        for (JSValue argumentValue : argumentValues) {
+            markFunction.accept(argumentValue);
+        }
+    }
+
     /**
      * Override set to handle indexed properties.
      * When setting an indexed property, we need to update both the property descriptor
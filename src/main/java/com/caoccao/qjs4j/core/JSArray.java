@@ -17,11 +17,14 @@
 package com.caoccao.qjs4j.core;
 
 import com.caoccao.qjs4j.exceptions.JSException;
+import com.caoccao.qjs4j.memory.HeapManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 
@@ -64,6 +67,7 @@ public final class JSArray extends JSObject {
         super();
         this.length = length;
         capacity = Math.min(capacity, INITIAL_CAPACITY);
+        HeapManager.charge(capacity * HeapManager.SLOT_SIZE);
         this.denseArray = new JSValue[capacity];
         initializeLengthProperty();
     }
@@ -74,6 +78,7 @@ public final class JSArray extends JSObject {
     public JSArray(JSValue... values) {
         super();
         this.length = values.length;
+        HeapManager.charge(Math.max(values.length, INITIAL_CAPACITY) * HeapManager.SLOT_SIZE);
         this.denseArray = Arrays.copyOf(values, Math.max(values.length, INITIAL_CAPACITY));
         initializeLengthProperty();
     }
@@ -124,6 +129,7 @@ public final class JSArray extends JSObject {
         int newCapacity = Math.max(denseArray.length * 2, requiredCapacity);
         newCapacity = Math.min(newCapacity, MAX_DENSE_SIZE);
 
+        HeapManager.charge((newCapacity - denseArray.length) * HeapManager.SLOT_SIZE);
         denseArray = Arrays.copyOf(denseArray, newCapacity);
     }
 
@@ -184,6 +190,11 @@ public final class JSArray extends JSObject {
         return length;
     }
 
+    @Override
+    public long getMemoryUsage() {
+        return super.getMemoryUsage() + denseArray.length * HeapManager.SLOT_SIZE;
+    }
+
     /**
      * Initialize the "length" property as a special data property.
      */
@@ -215,6 +226,15 @@ public final class JSArray extends JSObject {
         return true;
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        int denseLength = (int) Math.min(length, denseArray.length);
+        for (int i = 0; i < denseLength; i++) {
+            markFunction.accept(denseArray[i]);
+        }
+    }
+
     /**
      * Remove and return the last element.
      */
@@ -251,6 +271,16 @@ public final class JSArray extends JSObject {
         set(length, value, context);
     }
 
+    @Override
+    void relocate(JSContext context, UnaryOperator<JSValue> copyOf) {
+        super.relocate(context, copyOf);
+        JSValue[] elements = new JSValue[denseArray.length];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = copyOf.apply(denseArray[i]);
+        }
+        denseArray = elements;
+    }
+
     /**
      * Set element at index.
      */
@@ -308,7 +338,9 @@ public final class JSArray extends JSObject {
             if (sparseProperties == null) {
                 sparseProperties = new HashMap<>();
             }
-            sparseProperties.put((int) index, value);
+            if (sparseProperties.put((int) index, value) == null) {
+                HeapManager.charge(HeapManager.SPARSE_ENTRY_SIZE);
+            }
             
         }
     }
@@ -440,7 +472,9 @@ public final class JSArray extends JSObject {
                 if (sparseProperties == null) {
                     sparseProperties = new HashMap<>();
                 }
-                sparseProperties.put(i + count, denseArray[i]);
+                if (sparseProperties.put(i + count, denseArray[i]) == null) {
+                    HeapManager.charge(HeapManager.SPARSE_ENTRY_SIZE);
+                }
             }
         }
 
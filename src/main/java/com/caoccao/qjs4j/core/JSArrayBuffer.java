@@ -17,6 +17,7 @@
 package com.caoccao.qjs4j.core;
 
 import com.caoccao.qjs4j.exceptions.JSException;
+import com.caoccao.qjs4j.memory.HeapManager;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -58,7 +59,10 @@ public final class JSArrayBuffer extends JSObject implements JSArrayBufferable {
         if (maxByteLength != -1 && maxByteLength < byteLength) {
             throw new IllegalArgumentException("ArrayBuffer maxByteLength must be >= byteLength");
         }
-        this.buffer = ByteBuffer.allocate(maxByteLength != -1 ? maxByteLength : byteLength);
+        // Resizable buffers allocate their max byte length upfront
+        int capacity = maxByteLength != -1 ? maxByteLength : byteLength;
+        HeapManager.charge(capacity);
+        this.buffer = ByteBuffer.allocate(capacity);
         this.buffer.order(ByteOrder.LITTLE_ENDIAN); // JavaScript uses little-endian
         this.buffer.limit(byteLength);
         this.detached = false;
@@ -73,6 +77,7 @@ public final class JSArrayBuffer extends JSObject implements JSArrayBufferable {
      */
     public JSArrayBuffer(byte[] bytes) {
         super();
+        HeapManager.charge(bytes.length);
         this.buffer = ByteBuffer.wrap(bytes);
         this.buffer.order(ByteOrder.LITTLE_ENDIAN);
         this.detached = false;
@@ -163,6 +168,11 @@ public final class JSArrayBuffer extends JSObject implements JSArrayBufferable {
         return maxByteLength;
     }
 
+    @Override
+    public long getMemoryUsage() {
+        return super.getMemoryUsage() + buffer.capacity();
+    }
+
     /**
      * Check if this ArrayBuffer is detached.
      *
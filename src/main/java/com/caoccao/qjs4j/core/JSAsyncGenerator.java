@@ -16,6 +16,8 @@
 
 package com.caoccao.qjs4j.core;
 
+import java.util.function.Consumer;
+
 /**
  * Represents an async generator object in JavaScript.
  * Based on ES2018 async generator specification.
@@ -28,6 +30,8 @@ package com.caoccao.qjs4j.core;
  * - Methods return promises: next(), return(), throw()
  */
 public final class JSAsyncGenerator extends JSObject {
+    // Values captured by the generator function, or null if it captures none
+    private final JSMarkable capturedValues;
     private final JSContext context;
     private final AsyncGeneratorFunction generatorFunction;
     private JSValue returnValue;
@@ -41,7 +45,19 @@ public final class JSAsyncGenerator extends JSObject {
      * @param context           The execution context
      */
     public JSAsyncGenerator(AsyncGeneratorFunction generatorFunction, JSContext context) {
+        this(generatorFunction, context, null);
+    }
+
+    /**
+     * Create a new async generator whose implementation keeps the given values alive.
+     *
+     * @param generatorFunction The generator implementation
+     * @param context           The execution context
+     * @param capturedValues    The values captured by the generator implementation
+     */
+    public JSAsyncGenerator(AsyncGeneratorFunction generatorFunction, JSContext context, JSMarkable capturedValues) {
         super();
+        this.capturedValues = capturedValues;
         this.state = AsyncGeneratorState.SUSPENDED_START;
         this.context = context;
         this.generatorFunction = generatorFunction;
@@ -99,9 +115,7 @@ public final class JSAsyncGenerator extends JSObject {
      */
     private JSPromise createIteratorResultPromise(JSValue value, boolean done) {
         JSPromise promise = context.createJSPromise();
-        JSObject result = context.createJSObject();
-        result.set("value", value);
-        result.set("done", JSBoolean.valueOf(done));
+        JSObject result = context.createIteratorResult(value, done);
         promise.fulfill(result);
         return promise;
     }
@@ -113,6 +127,16 @@ public final class JSAsyncGenerator extends JSObject {
         return state;
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        markFunction.accept(returnValue);
+        markFunction.accept(thrownValue);
+        if (capturedValues != null) {
+            capturedValues.markValues(markFunction);
+        }
+    }
+
     /**
      * Get the next value from the async generator.
      * ES2018 AsyncGenerator.prototype.next()
@@ -68,9 +68,7 @@ public class JSAsyncIterator extends JSObject {
      */
     public static JSPromise createIteratorResultPromise(JSContext context, JSValue value, boolean done) {
         JSPromise promise = context.createJSPromise();
-        JSObject result = context.createJSObject();
-        result.set("value", value);
-        result.set("done", JSBoolean.valueOf(done));
+        JSObject result = context.createIteratorResult(value, done);
         promise.fulfill(result);
         return promise;
     }
@@ -160,9 +158,7 @@ public class JSAsyncIterator extends JSObject {
                         new JSPromise.ReactionRecord(
                                 new JSNativeFunction("onFulfilled", 1, (childContext, thisArg, args) -> {
                                     JSValue value = args.length > 0 ? args[0] : JSUndefined.INSTANCE;
-                                    JSObject result = childContext.createJSObject();
-                                    result.set("value", value);
-                                    result.set("done", JSBoolean.FALSE);
+                                    JSObject result = childContext.createIteratorResult(value, false);
                                     resultPromise.fulfill(result);
                                     return JSUndefined.INSTANCE;
                                 }),
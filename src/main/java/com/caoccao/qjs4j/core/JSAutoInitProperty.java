@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Placeholder value of built-in global properties that are created on first access.
+ * Based on QuickJS JS_PROP_AUTOINIT.
+ * <p>
+ * One placeholder is stored in the slots of all the properties an initializer defines.
+ * The first read of any of them runs the initializer on a scratch object inheriting from
+ * the holder, then each slot still holding the placeholder receives its built-in.
+ * Slots that running code has overwritten or deleted in the meantime are left alone.
+ * The placeholder itself is never exposed to running code.
+ */
+public final class JSAutoInitProperty extends JSObject {
+    private final Initializer initializer;
+    private JSObject builtins;
+    private JSContext context;
+    private boolean initializing;
+
+    public JSAutoInitProperty(JSContext context, Initializer initializer) {
+        super();
+        this.initializer = initializer;
+        this.builtins = null;
+        this.context = context;
+        this.initializing = false;
+    }
+
+    /**
+     * Run the initializer once and get the object holding the built-ins it defined.
+     * Returns null while the initializer is running, so that a read of the placeholder
+     * from within the initializer yields undefined instead of recursing.
+     *
+     * @param holder the object holding the placeholder, inherited by the scratch object
+     */
+    JSObject getBuiltins(JSObject holder) {
+        if (builtins == null && !initializing) {
+            initializing = true;
+            try {
+                JSObject scratch = new JSObject(holder);
+                initializer.initialize(context, scratch);
+                builtins = scratch;
+            } finally {
+                initializing = false;
+            }
+        }
+        return builtins;
+    }
+
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        markFunction.accept(builtins);
+    }
+
+    @Override
+    void relocate(JSContext context, UnaryOperator<JSValue> copyOf) {
+        super.relocate(context, copyOf);
+        this.builtins = (JSObject) copyOf.apply(builtins);
+        this.context = context;
+    }
+
+    /**
+     * Forget the built-ins created so far, the next read creates them again.
+     */
+    void reset() {
+        builtins = null;
+    }
+
+    /**
+     * Creates built-ins and defines them as properties of the given object.
+     */
+    @FunctionalInterface
+    public interface Initializer {
+        void initialize(JSContext context, JSObject global);
+    }
+}
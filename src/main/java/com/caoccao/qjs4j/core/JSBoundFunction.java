@@ -16,6 +16,8 @@
 
 package com.caoccao.qjs4j.core;
 
+import java.util.function.Consumer;
+
 /**
  * Represents a bound JavaScript function (created via Function.prototype.bind).
  */
@@ -74,6 +76,16 @@ public final class JSBoundFunction extends JSFunction {
         return "bound " + target.getName();
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        markFunction.accept(target);
+        markFunction.accept(boundThis);
+        for (JSValue boundArg : boundArgs) {
+            markFunction.accept(boundArg);
+        }
+    }
+
     @Override
     public JSValueType type() {
         return JSValueType.FUNCTION;
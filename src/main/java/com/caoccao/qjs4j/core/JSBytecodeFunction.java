@@ -19,6 +19,8 @@ package com.caoccao.qjs4j.core;
 import com.caoccao.qjs4j.exceptions.JSVirtualMachineException;
 import com.caoccao.qjs4j.vm.Bytecode;
 
+import java.util.function.Consumer;
+
 /**
  * Represents a JavaScript function compiled to bytecode.
  * Based on QuickJS JSFunctionBytecode structure.
@@ -32,10 +34,12 @@ import com.caoccao.qjs4j.vm.Bytecode;
  * They contain:
  * - Compiled bytecode for execution
  * - Closure variables (captured from outer scopes)
+ * - Variable references bound when the closure is created by FCLOSURE
  * - Prototype object (for constructors)
  * - Function metadata (name, length)
  */
 public final class JSBytecodeFunction extends JSFunction {
+    private static final JSVarRef[] EMPTY_VAR_REFS = new JSVarRef[0];
     private final Bytecode bytecode;
     private final JSValue[] closureVars;
     private final boolean isArrow;
@@ -47,6 +51,7 @@ public final class JSBytecodeFunction extends JSFunction {
     private final JSObject prototype;
     private final boolean strict;
     private String sourceCode;
+    private JSVarRef[] varRefs;
 
     /**
      * Create a bytecode function.
@@ -111,6 +116,7 @@ public final class JSBytecodeFunction extends JSFunction {
         this.isArrow = isArrow;
         this.strict = strict;
         this.sourceCode = sourceCode;
+        this.varRefs = EMPTY_VAR_REFS;
 
         // Set up function properties on the object
         // Functions are objects in JavaScript and have these standard properties
@@ -140,9 +146,7 @@ public final class JSBytecodeFunction extends JSFunction {
 
                 // Check if generator is completed
                 if (generatorState.isCompleted()) {
-                    JSObject result = context.createJSObject();
-                    result.set("value", JSUndefined.INSTANCE);
-                    result.set("done", JSBoolean.TRUE);
+                    JSObject result = context.createIteratorResult(JSUndefined.INSTANCE, true);
                     promise.fulfill(result);
                     return promise;
                 }
@@ -150,31 +154,33 @@ public final class JSBytecodeFunction extends JSFunction {
                 try {
                     // Execute/resume the generator function
                     // The VM will execute until it hits a yield or return
-                    JSValue result = context.getVirtualMachine().executeGenerator(generatorState, context);
+                    JSValue result = context.getVirtualMachine().executeGenerator(generatorState, inputValue, isThrow);
 
                     // Check if this was a yield or completion
                     if (generatorState.isCompleted()) {
                         // Generator completed - return final value with done: true
-                        JSObject iterResult = context.createJSObject();
-                        iterResult.set("value", result);
-                        iterResult.set("done", JSBoolean.TRUE);
+                        JSObject iterResult = context.createIteratorResult(result, true);
                         promise.fulfill(iterResult);
                     } else {
                         // Generator yielded - return value with done: false  
-                        JSObject iterResult = context.createJSObject();
-                        iterResult.set("value", result);
-                        iterResult.set("done", JSBoolean.FALSE);
+                        JSObject iterResult = context.createIteratorResult(result, false);
                         promise.fulfill(iterResult);
                     }
                 } catch (Exception e) {
-                    String errorMessage = e.getMessage() != null ? e.getMessage() : e.toString();
-                    JSObject errorObj = context.createJSObject();
-                    errorObj.set("message", new JSString(errorMessage));
-                    promise.reject(errorObj);
+                    if (context.hasPendingException()) {
+                        JSValue exception = context.getPendingException();
+                        context.clearAllPendingExceptions();
+                        promise.reject(exception);
+                    } else {
+                        String errorMessage = e.getMessage() != null ? e.getMessage() : e.toString();
+                        JSObject errorObj = context.createJSObject();
+                        errorObj.set("message", new JSString(errorMessage));
+                        promise.reject(errorObj);
+                    }
                 }
 
                 return promise;
-            }, context);
+            }, context, generatorState);
         }
 
         // If this is a sync generator function, create and return a sync generator object
@@ -191,26 +197,14 @@ public final class JSBytecodeFunction extends JSFunction {
             generatorObj.set("next", new JSNativeFunction("next", 0, (ctx, thisValue, arguments) -> {
                 // Check if generator is completed
                 if (generatorState.isCompleted()) {
-                    JSObject result = context.createJSObject();
-                    result.set("value", JSUndefined.INSTANCE);
-                    result.set("done", JSBoolean.TRUE);
+                    JSObject result = context.createIteratorResult(JSUndefined.INSTANCE, true);
                     return result;
                 }
 
-                try {
-                    // Execute/resume the generator function
-                    // The VM will execute until it hits a yield or return
-                    JSValue yieldValue = ctx.getVirtualMachine().executeGenerator(generatorState, ctx);
-
-                    // Create iterator result object
-                    JSObject result = context.createJSObject();
-                    result.set("value", yieldValue);
-                    result.set("done", generatorState.isCompleted() ? JSBoolean.TRUE : JSBoolean.FALSE);
-                    return result;
-                } catch (Exception e) {
-                    throw new RuntimeException("Generator execution failed: " + e.getMessage(), e);
-                }
-            }));
+                // Resume the generator with the sent value as the result of the yield
+                JSValue value = arguments.length > 0 ? arguments[0] : JSUndefined.INSTANCE;
+                return resumeGenerator(ctx, generatorState, value, false);
+            }, generatorState));
 
             // Set up the `return` method
             generatorObj.set("return", new JSNativeFunction("return", 1, (ctx, thisValue, arguments) -> {
@@ -220,22 +214,24 @@ public final class JSBytecodeFunction extends JSFunction {
                 generatorState.setCompleted(true);
 
                 // Return the value with done: true
-                JSObject result = context.createJSObject();
-                result.set("value", value);
-                result.set("done", JSBoolean.TRUE);
+                JSObject result = context.createIteratorResult(value, true);
                 return result;
-            }));
+            }, generatorState));
 
             // Set up the `throw` method
             generatorObj.set("throw", new JSNativeFunction("throw", 1, (ctx, thisValue, arguments) -> {
                 JSValue exception = arguments.length > 0 ? arguments[0] : JSUndefined.INSTANCE;
 
-                // Mark generator as completed
-                generatorState.setCompleted(true);
+                // Throw the exception at the yield point so that the body can catch it
+                if (generatorState.getState() == GeneratorState.State.SUSPENDED_YIELD) {
+                    return resumeGenerator(ctx, generatorState, exception, true);
+                }
 
-                // Throw the exception
-                throw new RuntimeException("Exception thrown into generator: " + exception);
-            }));
+                // A generator that has not started or has completed just throws
+                generatorState.setCompleted(true);
+                ctx.setPendingException(exception);
+                return JSUndefined.INSTANCE;
+            }, generatorState));
 
             // Make the generator iterable by adding Symbol.iterator
             // According to ES spec, generators return `this` when Symbol.iterator is called
@@ -246,41 +242,10 @@ public final class JSBytecodeFunction extends JSFunction {
         }
 
         // If this is an async function, wrap execution in a promise
+        // The body runs synchronously until the first await and is resumed from the job queue afterward
         if (isAsync) {
-            JSPromise promise = new JSPromise();
-            try {
-                // Execute bytecode in the VM
-                JSValue result = context.getVirtualMachine().execute(this, thisArg, args);
-
-                // If result is already a promise, use it directly
-                if (result instanceof JSPromise) {
-                    return result;
-                }
-
-                // Otherwise, wrap the result in a fulfilled promise
-                promise.fulfill(result);
-            } catch (JSVirtualMachineException e) {
-                // VM exception during async function execution
-                // Check if there's a pending exception in the context
-                if (context.hasPendingException()) {
-                    JSValue exception = context.getPendingException();
-                    context.clearAllPendingExceptions(); // Clear BOTH context and VM pending exceptions
-                    promise.reject(exception);
-                } else {
-                    // Create error object from exception message
-                    String errorMessage = e.getMessage() != null ? e.getMessage() : e.toString();
-                    JSObject errorObj = context.createJSObject();
-                    errorObj.set("message", new JSString(errorMessage));
-                    promise.reject(errorObj);
-                }
-            } catch (Exception e) {
-                // Any other exception in an async function should be caught
-                // and wrapped in a rejected promise
-                String errorMessage = e.getMessage() != null ? e.getMessage() : e.toString();
-                JSObject errorObj = context.createJSObject();
-                errorObj.set("message", new JSString(errorMessage));
-                promise.reject(errorObj);
-            }
+            JSPromise promise = context.createJSPromise();
+            resumeAsyncFunction(context, new GeneratorState(this, thisArg, args), promise, JSUndefined.INSTANCE, false);
             return promise;
         }
 
@@ -288,6 +253,22 @@ public final class JSBytecodeFunction extends JSFunction {
         return context.getVirtualMachine().execute(this, thisArg, args);
     }
 
+    /**
+     * Create a closure of this function template bound to the given variable references.
+     * Following QuickJS js_closure(), every evaluation of a function expression or
+     * declaration creates a new function object sharing the bytecode.
+     *
+     * @param varRefs the references to the captured variables, in the order of the closure variables of the bytecode
+     * @return the new function
+     */
+    public JSBytecodeFunction createClosure(JSVarRef[] varRefs) {
+        JSBytecodeFunction closure = new JSBytecodeFunction(
+                bytecode, name, length, closureVars, prototype,
+                isConstructor, isAsync, isGenerator, isArrow, strict, sourceCode);
+        closure.varRefs = varRefs;
+        return closure;
+    }
+
     /**
      * Get the bytecode for this function.
      */
@@ -320,6 +301,13 @@ public final class JSBytecodeFunction extends JSFunction {
         return name;
     }
 
+    /**
+     * Get the references to the variables captured from enclosing functions.
+     */
+    public JSVarRef[] getVarRefs() {
+        return varRefs;
+    }
+
     /**
      * Check if this is an arrow function.
      */
@@ -356,6 +344,15 @@ public final class JSBytecodeFunction extends JSFunction {
         return strict;
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        markFunction.accept(prototype);
+        for (JSVarRef varRef : varRefs) {
+            markFunction.accept(varRef.get());
+        }
+    }
+
     /**
      * Set the source code for this function.
      * Used to override the default toString() representation.
@@ -364,6 +361,96 @@ public final class JSBytecodeFunction extends JSFunction {
         this.sourceCode = sourceCode;
     }
 
+    /**
+     * Run an async function until it completes or suspends at an await.
+     * Following QuickJS async_func_resume(), a suspended function registers
+     * reactions on the awaited promise that resume it as a microtask, so the
+     * calling thread is never blocked waiting for the promise to settle.
+     */
+    private void resumeAsyncFunction(
+            JSContext context, GeneratorState asyncState, JSPromise promise, JSValue resumeValue, boolean isThrow) {
+        JSValue result;
+        try {
+            result = context.getVirtualMachine().executeGenerator(asyncState, resumeValue, isThrow);
+        } catch (JSVirtualMachineException e) {
+            // VM exception during async function execution
+            // Check if there's a pending exception in the context
+            if (context.hasPendingException()) {
+                JSValue exception = context.getPendingException();
+                context.clearAllPendingExceptions(); // Clear BOTH context and VM pending exceptions
+                promise.reject(exception);
+            } else {
+                // Create error object from exception message
+                String errorMessage = e.getMessage() != null ? e.getMessage() : e.toString();
+                JSObject errorObj = context.createJSObject();
+                errorObj.set("message", new JSString(errorMessage));
+                promise.reject(errorObj);
+            }
+            return;
+        } catch (Exception e) {
+            // Any other exception in an async function should be caught
+            // and wrapped in a rejected promise
+            String errorMessage = e.getMessage() != null ? e.getMessage() : e.toString();
+            JSObject errorObj = context.createJSObject();
+            errorObj.set("message", new JSString(errorMessage));
+            promise.reject(errorObj);
+            return;
+        }
+
+        if (asyncState.getState() == GeneratorState.State.SUSPENDED_AWAIT) {
+            JSPromise awaitedPromise = (JSPromise) result;
+            // The reactions of the awaited promise are all that keep the suspended function alive
+            JSMarkable capturedValues = markFunction -> {
+                asyncState.markValues(markFunction);
+                markFunction.accept(promise);
+            };
+            JSNativeFunction onFulfilled = new JSNativeFunction("", 1, (ctx, thisValue, arguments) -> {
+                JSValue value = arguments.length > 0 ? arguments[0] : JSUndefined.INSTANCE;
+                resumeAsyncFunction(ctx, asyncState, promise, value, false);
+                return JSUndefined.INSTANCE;
+            }, capturedValues);
+            JSNativeFunction onRejected = new JSNativeFunction("", 1, (ctx, thisValue, arguments) -> {
+                JSValue reason = arguments.length > 0 ? arguments[0] : JSUndefined.INSTANCE;
+                JSPromiseRejectCallback callback = ctx.getPromiseRejectCallback();
+                if (callback != null) {
+                    callback.callback(PromiseRejectEvent.PromiseRejectWithNoHandler, awaitedPromise, reason);
+                }
+                // Throw the rejection reason at the await so that the body can catch it
+                resumeAsyncFunction(ctx, asyncState, promise, reason, true);
+                return JSUndefined.INSTANCE;
+            }, capturedValues);
+            awaitedPromise.addReactions(
+                    new JSPromise.ReactionRecord(onFulfilled, null, context),
+                    new JSPromise.ReactionRecord(onRejected, null, context));
+        } else if (result instanceof JSPromise resultPromise) {
+            // Settle with the returned promise
+            resultPromise.addReactions(
+                    new JSPromise.ReactionRecord(null, promise, context),
+                    new JSPromise.ReactionRecord(null, promise, context));
+        } else {
+            promise.fulfill(result);
+        }
+    }
+
+    /**
+     * Resume a sync generator and wrap the outcome in an iterator result.
+     * An exception escaping the generator body is left pending on the context
+     * for the calling frame to handle.
+     */
+    private JSValue resumeGenerator(JSContext context, GeneratorState generatorState, JSValue resumeValue, boolean isThrow) {
+        JSValue value;
+        try {
+            value = context.getVirtualMachine().executeGenerator(generatorState, resumeValue, isThrow);
+        } catch (JSVirtualMachineException e) {
+            if (context.hasPendingException()) {
+                return JSUndefined.INSTANCE;
+            }
+            throw e;
+        }
+        JSObject result = context.createIteratorResult(value, generatorState.isCompleted());
+        return result;
+    }
+
     @Override
     public Object toJavaObject() {
         return toString();
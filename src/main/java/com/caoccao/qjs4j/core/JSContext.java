@@ -21,11 +21,13 @@ import com.caoccao.qjs4j.compiler.Compiler;
 import com.caoccao.qjs4j.exceptions.JSCompilerException;
 import com.caoccao.qjs4j.exceptions.JSErrorException;
 import com.caoccao.qjs4j.exceptions.JSException;
+import com.caoccao.qjs4j.exceptions.JSInterruptedException;
 import com.caoccao.qjs4j.exceptions.JSVirtualMachineException;
 import com.caoccao.qjs4j.types.JSModule;
 import com.caoccao.qjs4j.vm.VirtualMachine;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Represents a JavaScript execution context.
@@ -55,7 +57,11 @@ public final class JSContext implements AutoCloseable {
     // Internal constructor references (not exposed in global scope)
     private JSObject asyncFunctionConstructor;
     private JSValue currentThis;
+    // Wall-clock limit of each eval in milliseconds, 0 for no limit
+    private long executionTimeout;
     private boolean inCatchHandler;
+    // Backward jumps and calls allowed in each eval, 0 for no limit
+    private long instructionBudget;
     private int maxStackDepth;
     // Exception state
     private JSValue pendingException;
@@ -69,21 +75,49 @@ public final class JSContext implements AutoCloseable {
      * Create a new execution context.
      */
     public JSContext(JSRuntime runtime) {
+        this(runtime, null);
+    }
+
+    /**
+     * Create a new execution context whose global object and built-ins are copied
+     * from a snapshot instead of being built by GlobalObject.initialize().
+     *
+     * @param runtime  the runtime
+     * @param snapshot the snapshot of a fully initialized context, or null to build the built-ins
+     */
+    JSContext(JSRuntime runtime, JSContextSnapshot snapshot) {
         this.runtime = runtime;
-        this.globalObject = new JSObject();
+        JSObject[] copies = null;
+        if (snapshot == null) {
+            this.globalObject = new JSObject();
+            // Global bindings are added throughout execution, dictionary mode keeps
+            // their slots stable for the global variable caches
+            this.globalObject.ensureDictionaryShape();
+        } else {
+            copies = snapshot.copy();
+            this.globalObject = snapshot.getGlobalObject(copies);
+        }
         this.moduleCache = new HashMap<>();
         this.callStack = new ArrayDeque<>();
         this.stackDepth = 0;
         this.maxStackDepth = DEFAULT_MAX_STACK_DEPTH;
         this.pendingException = null;
         this.inCatchHandler = false;
+        this.executionTimeout = 0;
+        this.instructionBudget = 0;
         this.strictMode = false;
         this.currentThis = globalObject;
         this.errorStackTrace = new ArrayList<>();
         this.microtaskQueue = new JSMicrotaskQueue(this);
         this.virtualMachine = new VirtualMachine(this);
 
-        initializeGlobalObject();
+        if (copies == null) {
+            initializeGlobalObject();
+        } else {
+            snapshot.relocate(this, copies);
+            this.asyncFunctionConstructor = snapshot.getAsyncFunctionConstructor(copies);
+        }
+        runtime.addContext(this);
     }
 
     /**
@@ -171,6 +205,19 @@ public final class JSContext implements AutoCloseable {
         runtime.destroyContext(this);
     }
 
+    /**
+     * Create an iterator result object { value, done }.
+     * Following QuickJS js_create_iterator_result(), but the object starts from
+     * the precomputed shape instead of adding the two properties one by one.
+     *
+     * @return A new iterator result object with prototype set
+     */
+    public JSObject createIteratorResult(JSValue value, boolean done) {
+        JSObject result = createJSObject();
+        result.initializeProperties(JSShape.ITERATOR_RESULT, value, JSBoolean.valueOf(done));
+        return result;
+    }
+
     /**
      * Create a new JSArray with proper prototype chain.
      * Sets the array's prototype to Array.prototype from the global object.
@@ -485,9 +532,10 @@ public final class JSContext implements AutoCloseable {
      * Enqueue a microtask to be executed.
      *
      * @param microtask The microtask to enqueue
+     * @param args      The values the microtask keeps alive until it runs
      */
-    public void enqueueMicrotask(JSMicrotaskQueue.Microtask microtask) {
-        microtaskQueue.enqueue(microtask);
+    public void enqueueMicrotask(JSMicrotaskQueue.Microtask microtask, JSValue... args) {
+        microtaskQueue.enqueue(microtask, args);
     }
 
     /**
@@ -540,6 +588,7 @@ public final class JSContext implements AutoCloseable {
             return throwError("RangeError", "Maximum call stack size exceeded");
         }
 
+        virtualMachine.beginInterruptChecks(instructionBudget, executionTimeout);
         try {
             // Phase 1-3: Lexer → Parser → Compiler (compile to bytecode)
             JSBytecodeFunction func = Compiler.compile(code, filename);
@@ -559,8 +608,11 @@ public final class JSContext implements AutoCloseable {
             // Process all pending microtasks before returning
             processMicrotasks();
 
+            // A termination swallowed by native code still ends the eval
+            virtualMachine.checkInterrupted();
+
             return result != null ? result : JSUndefined.INSTANCE;
-        } catch (JSException e) {
+        } catch (JSException | JSInterruptedException e) {
             throw e;
         } catch (JSCompilerException e) {
             JSValue error = throwError("SyntaxError", e.getMessage());
@@ -583,6 +635,7 @@ public final class JSContext implements AutoCloseable {
             JSValue error = throwError("Error", "Execution error: " + e.getMessage());
             throw new JSException(error);
         } finally {
+            virtualMachine.endInterruptChecks();
             popStackFrame();
             // Clear ALL possible dirty state to ensure clean slate for next eval()
             stackDepth = callStack.size();
@@ -645,10 +698,31 @@ public final class JSContext implements AutoCloseable {
         return new ArrayList<>(errorStackTrace);
     }
 
+    /**
+     * Get the wall-clock limit of each eval in milliseconds, 0 if there is none.
+     */
+    public long getExecutionTimeout() {
+        return executionTimeout;
+    }
+
     public JSObject getGlobalObject() {
         return globalObject;
     }
 
+    /**
+     * Get the number of backward jumps and calls allowed in each eval, 0 if there is no limit.
+     */
+    public long getInstructionBudget() {
+        return instructionBudget;
+    }
+
+    /**
+     * Get the maximum stack depth.
+     */
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
     /**
      * Get the microtask queue for this context.
      */
@@ -723,6 +797,19 @@ public final class JSContext implements AutoCloseable {
         return strictMode;
     }
 
+    /**
+     * Pass the values this context keeps alive to the mark function of the garbage collector.
+     * Following QuickJS JS_MarkContext().
+     */
+    public void markRoots(Consumer<JSValue> markFunction) {
+        markFunction.accept(globalObject);
+        markFunction.accept(currentThis);
+        markFunction.accept(pendingException);
+        markFunction.accept(asyncFunctionConstructor);
+        microtaskQueue.markValues(markFunction);
+        virtualMachine.markRoots(markFunction);
+    }
+
     /**
      * Load and cache a JavaScript module.
      *
@@ -789,6 +876,22 @@ public final class JSContext implements AutoCloseable {
         moduleCache.put(specifier, module);
     }
 
+    /**
+     * Reset the execution state left by running code so that a pooled context can be reused.
+     * Following the cleanup at the end of eval(), the module cache, the microtask queue
+     * and the strict mode are dropped too.
+     */
+    void reset() {
+        clearModuleCache();
+        clearCallStack();
+        clearAllPendingExceptions();
+        microtaskQueue.clear();
+        stackDepth = 0;
+        inCatchHandler = false;
+        strictMode = false;
+        currentThis = globalObject;
+    }
+
     /**
      * Set the AsyncFunction constructor (internal use only).
      * Called during global object initialization.
@@ -804,6 +907,23 @@ public final class JSContext implements AutoCloseable {
         this.currentThis = thisValue != null ? thisValue : globalObject;
     }
 
+    /**
+     * Set the wall-clock limit of each eval in milliseconds, 0 for no limit.
+     * An eval running past it is terminated with a {@link JSInterruptedException}.
+     */
+    public void setExecutionTimeout(long executionTimeout) {
+        this.executionTimeout = executionTimeout;
+    }
+
+    /**
+     * Set the number of backward jumps and calls allowed in each eval, 0 for no limit.
+     * Loop iterations and function calls are charged against it, and an eval
+     * exceeding it is terminated with a {@link JSInterruptedException}.
+     */
+    public void setInstructionBudget(long instructionBudget) {
+        this.instructionBudget = instructionBudget;
+    }
+
     // Microtask queue management
 
     /**
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Pool of contexts handed out for short evaluations and reset to a pristine state on release.
+ * <p>
+ * Creating a context per evaluation copies all the built-ins, while reusing one lets globals
+ * leak from one evaluation to the next. The pool records the baseline of each context when
+ * it is created, and on release:
+ * - Restores the global object to the baseline, dropping added globals and bringing back
+ *   overwritten or deleted ones
+ * - Puts the lazily created built-ins back behind their placeholders
+ * - Clears the module cache, microtask queue, pending exceptions, error stack trace,
+ *   strict mode and this binding of the context
+ * - Discards the context instead if running code modified the own properties of any other
+ *   built-in, since restoring every built-in would cost as much as a new context
+ * <p>
+ * A context is also discarded once it has been reused the max reuse count of times or
+ * the pool is full. Idle contexts are evicted lazily whenever the pool is used.
+ */
+public final class JSContextPool implements AutoCloseable {
+    private final Map<JSContext, PooledContext> borrowedContexts;
+    // Most recently released first, so the least recently used ones are evicted from the end
+    private final ArrayDeque<PooledContext> idleContexts;
+    private final PoolOptions options;
+    private final JSRuntime runtime;
+    private boolean closed;
+
+    JSContextPool(JSRuntime runtime, PoolOptions options) {
+        this.borrowedContexts = new IdentityHashMap<>();
+        this.idleContexts = new ArrayDeque<>();
+        this.options = options;
+        this.runtime = runtime;
+        this.closed = false;
+    }
+
+    /**
+     * Borrow a context from the pool, creating one if no idle context is available.
+     */
+    public synchronized JSContext acquire() {
+        if (closed) {
+            throw new IllegalStateException("Context pool is closed");
+        }
+        evictIdleContexts(System.nanoTime());
+        PooledContext pooledContext = idleContexts.pollFirst();
+        if (pooledContext == null) {
+            pooledContext = new PooledContext(runtime.createContext());
+        }
+        borrowedContexts.put(pooledContext.context, pooledContext);
+        return pooledContext.context;
+    }
+
+    /**
+     * Close the idle contexts. Borrowed contexts are closed when they are released.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (PooledContext pooledContext : idleContexts) {
+            pooledContext.context.close();
+        }
+        idleContexts.clear();
+    }
+
+    private void evictIdleContexts(long now) {
+        if (options.idleTimeout <= 0) {
+            return;
+        }
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(options.idleTimeout);
+        while (!idleContexts.isEmpty() && now - idleContexts.peekLast().releasedAt >= idleTimeoutNanos) {
+            idleContexts.pollLast().context.close();
+        }
+    }
+
+    public synchronized int getBorrowedCount() {
+        return borrowedContexts.size();
+    }
+
+    public synchronized int getIdleCount() {
+        return idleContexts.size();
+    }
+
+    public PoolOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Return a borrowed context to the pool.
+     * The context is reset to its baseline, or closed if it cannot be reused.
+     *
+     * @throws IllegalArgumentException if the context is not borrowed from this pool
+     */
+    public synchronized void release(JSContext context) {
+        PooledContext pooledContext = borrowedContexts.remove(context);
+        if (pooledContext == null) {
+            throw new IllegalArgumentException("Context is not borrowed from this pool");
+        }
+        long now = System.nanoTime();
+        evictIdleContexts(now);
+        pooledContext.reuseCount++;
+        if (closed
+                || idleContexts.size() >= options.maxSize
+                || (options.maxReuseCount > 0 && pooledContext.reuseCount >= options.maxReuseCount)
+                || !pooledContext.reset()) {
+            context.close();
+            return;
+        }
+        pooledContext.releasedAt = now;
+        idleContexts.addFirst(pooledContext);
+    }
+
+    /**
+     * Own state of a built-in recorded when the context is created.
+     * Values are compared by identity, so storing an equal value again counts as a change.
+     */
+    private record BuiltinState(
+            JSObject object, JSShape shape, int propertyCount, int layoutVersion, JSValue[] values,
+            JSObject prototype, int flags, int sparseCount, long arrayLength) {
+        private static final int FLAG_EXTENSIBLE = 1;
+        private static final int FLAG_FROZEN = 1 << 1;
+        private static final int FLAG_SEALED = 1 << 2;
+
+        static BuiltinState of(JSObject object) {
+            JSShape shape = object.shape;
+            return new BuiltinState(
+                    object, shape, shape.getPropertyCount(), shape.getLayoutVersion(),
+                    Arrays.copyOf(object.propertyValues, shape.getPropertyCount()),
+                    object.prototype, flagsOf(object), sparseCountOf(object), arrayLengthOf(object));
+        }
+
+        private static long arrayLengthOf(JSObject object) {
+            return object instanceof JSArray array ? array.getLength() : 0;
+        }
+
+        private static int flagsOf(JSObject object) {
+            return (object.extensible ? FLAG_EXTENSIBLE : 0)
+                    | (object.frozen ? FLAG_FROZEN : 0)
+                    | (object.sealed ? FLAG_SEALED : 0);
+        }
+
+        private static int sparseCountOf(JSObject object) {
+            return object.sparseProperties != null ? object.sparseProperties.size() : 0;
+        }
+
+        boolean isModified() {
+            JSShape currentShape = object.shape;
+            if (currentShape != shape
+                    || currentShape.getPropertyCount() != propertyCount
+                    || currentShape.getLayoutVersion() != layoutVersion
+                    || object.prototype != prototype
+                    || flagsOf(object) != flags
+                    || sparseCountOf(object) != sparseCount
+                    || arrayLengthOf(object) != arrayLength) {
+                return true;
+            }
+            JSValue[] currentValues = object.propertyValues;
+            for (int i = 0; i < propertyCount; i++) {
+                if (currentValues[i] != values[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Configuration of a context pool.
+     */
+    public static class PoolOptions {
+        public long idleTimeout = 60 * 1000; // 60 seconds default, 0 or less to keep idle contexts
+        public int maxReuseCount = 1000; // 0 or less for no limit
+        public int maxSize = 16;
+
+        public PoolOptions() {
+        }
+
+        public PoolOptions idleTimeout(long milliseconds) {
+            this.idleTimeout = milliseconds;
+            return this;
+        }
+
+        public PoolOptions maxReuseCount(int count) {
+            this.maxReuseCount = count;
+            return this;
+        }
+
+        public PoolOptions maxSize(int size) {
+            this.maxSize = size;
+            return this;
+        }
+    }
+
+    /**
+     * A context of the pool with the baseline it is reset to.
+     */
+    private static final class PooledContext {
+        private final JSAutoInitProperty[] autoInitProperties;
+        private final BuiltinState[] builtinStates;
+        private final JSContext context;
+        private final int globalFlags;
+        private final JSObject globalPrototype;
+        private final JSShape globalShape;
+        private final Map<Integer, JSValue> globalSparseProperties;
+        private final JSValue[] globalValues;
+        private long releasedAt;
+        private int reuseCount;
+
+        PooledContext(JSContext context) {
+            this.context = context;
+            JSObject global = context.getGlobalObject();
+            Set<JSObject> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            ArrayDeque<JSObject> pending = new ArrayDeque<>();
+            Consumer<JSValue> visitFunction = value -> {
+                if (value instanceof JSObject obj && visited.add(obj)) {
+                    pending.push(obj);
+                }
+            };
+            visited.add(global);
+            global.markChildren(visitFunction);
+            visitFunction.accept(context.getAsyncFunctionConstructor());
+            List<JSAutoInitProperty> autoInitPropertyList = new ArrayList<>();
+            List<BuiltinState> builtinStateList = new ArrayList<>();
+            while (!pending.isEmpty()) {
+                JSObject obj = pending.pop();
+                if (obj instanceof JSAutoInitProperty autoInit) {
+                    autoInitPropertyList.add(autoInit);
+                }
+                builtinStateList.add(BuiltinState.of(obj));
+                obj.markChildren(visitFunction);
+            }
+            this.autoInitProperties = autoInitPropertyList.toArray(new JSAutoInitProperty[0]);
+            this.builtinStates = builtinStateList.toArray(new BuiltinState[0]);
+            this.globalFlags = BuiltinState.flagsOf(global);
+            this.globalPrototype = global.prototype;
+            this.globalShape = global.shape.copyDictionary(UnaryOperator.identity());
+            this.globalSparseProperties = global.sparseProperties != null ? new HashMap<>(global.sparseProperties) : null;
+            this.globalValues = Arrays.copyOf(global.propertyValues, global.propertyValues.length);
+            this.releasedAt = 0;
+            this.reuseCount = 0;
+        }
+
+        /**
+         * Reset the context to its baseline.
+         *
+         * @return false if a built-in other than the global object was modified
+         */
+        boolean reset() {
+            for (BuiltinState builtinState : builtinStates) {
+                if (builtinState.isModified()) {
+                    return false;
+                }
+            }
+            JSObject global = context.getGlobalObject();
+            // The global shape is owned by the global object, so it gets a fresh copy of the baseline
+            global.shape = globalShape.copyDictionary(UnaryOperator.identity());
+            global.propertyValues = Arrays.copyOf(globalValues, globalValues.length);
+            global.prototype = globalPrototype;
+            global.extensible = (globalFlags & BuiltinState.FLAG_EXTENSIBLE) != 0;
+            global.frozen = (globalFlags & BuiltinState.FLAG_FROZEN) != 0;
+            global.sealed = (globalFlags & BuiltinState.FLAG_SEALED) != 0;
+            global.sparseProperties = globalSparseProperties != null ? new HashMap<>(globalSparseProperties) : null;
+            for (JSAutoInitProperty autoInit : autoInitProperties) {
+                autoInit.reset();
+            }
+            context.reset();
+            return true;
+        }
+    }
+}
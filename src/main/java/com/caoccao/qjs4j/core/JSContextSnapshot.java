@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Snapshot of the global object and built-ins of a fully initialized context.
+ * <p>
+ * Building the built-ins creates hundreds of functions and prototypes, so new contexts
+ * copy the objects of the snapshot instead:
+ * - The objects reachable from the template context are listed once when the snapshot is taken
+ * - Each new context makes shallow copies of the listed objects
+ * - The references of the copies are then pointed to the other copies and to the new context
+ * <p>
+ * The objects of the snapshot are never exposed to running code, so they stay unmodified.
+ */
+final class JSContextSnapshot {
+    private static final int ASYNC_FUNCTION_CONSTRUCTOR_INDEX = 1;
+    private static final int GLOBAL_OBJECT_INDEX = 0;
+    private final Map<JSObject, Integer> indexes;
+    private final JSObject[] objects;
+
+    /**
+     * Take the snapshot of a template context that never runs code.
+     */
+    JSContextSnapshot(JSContext template) {
+        this.indexes = new IdentityHashMap<>();
+        List<JSObject> objectList = new ArrayList<>();
+        ArrayDeque<JSObject> pending = new ArrayDeque<>();
+        Consumer<JSValue> listFunction = value -> {
+            if (value instanceof JSObject obj && !indexes.containsKey(obj)) {
+                indexes.put(obj, objectList.size());
+                objectList.add(obj);
+                pending.add(obj);
+            }
+        };
+        listFunction.accept(template.getGlobalObject());
+        listFunction.accept(template.getAsyncFunctionConstructor());
+        while (!pending.isEmpty()) {
+            pending.poll().markChildren(listFunction);
+        }
+        this.objects = objectList.toArray(new JSObject[0]);
+    }
+
+    /**
+     * Make shallow copies of the objects of the snapshot.
+     *
+     * @return the copies, in the order of the objects they are copied from
+     */
+    JSObject[] copy() {
+        JSObject[] copies = new JSObject[objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            copies[i] = objects[i].copy();
+        }
+        return copies;
+    }
+
+    JSObject getAsyncFunctionConstructor(JSObject[] copies) {
+        return copies[ASYNC_FUNCTION_CONSTRUCTOR_INDEX];
+    }
+
+    JSObject getGlobalObject(JSObject[] copies) {
+        return copies[GLOBAL_OBJECT_INDEX];
+    }
+
+    /**
+     * Point the references of the copies to the other copies and to the new context.
+     */
+    void relocate(JSContext context, JSObject[] copies) {
+        UnaryOperator<JSValue> copyOf = value -> {
+            if (value instanceof JSObject obj) {
+                Integer index = indexes.get(obj);
+                return index != null ? copies[index] : obj;
+            }
+            return value;
+        };
+        for (JSObject copy : copies) {
+            copy.relocate(context, copyOf);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.caoccao.qjs4j.exceptions.JSRangeErrorException;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.function.Consumer;
 
 /**
  * Represents a JavaScript DataView object.
@@ -200,6 +201,12 @@ public final class JSDataView extends JSObject {
         return getInt8(byteOffset) & 0xFF;
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        markFunction.accept(buffer);
+    }
+
     public void setFloat32(int byteOffset, float value, boolean littleEndian) {
         checkOffset(byteOffset, 4);
         ByteBuffer buf = buffer.getBuffer();
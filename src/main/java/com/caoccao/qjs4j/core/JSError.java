@@ -17,6 +17,7 @@
 package com.caoccao.qjs4j.core;
 
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 
 /**
  * Represents a JavaScript Error object.
@@ -25,7 +26,7 @@ import java.util.Objects;
 public sealed class JSError extends JSObject permits
         JSAggregateError, JSRangeError, JSReferenceError, JSSyntaxError, JSTypeError, JSEvalError, JSURIError, JSSuppressedError {
     public static final String NAME = "Error";
-    protected final JSContext context;
+    protected JSContext context;
 
     /**
      * Create an Error with the default name 'Error'.
@@ -152,6 +153,12 @@ public sealed class JSError extends JSObject permits
         return Objects.hash(getName(), getMessage());
     }
 
+    @Override
+    void relocate(JSContext context, UnaryOperator<JSValue> copyOf) {
+        super.relocate(context, copyOf);
+        this.context = context;
+    }
+
     @Override
     public String toString() {
         String name = getName().value();
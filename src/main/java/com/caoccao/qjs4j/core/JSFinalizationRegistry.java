@@ -141,7 +141,7 @@ public final class JSFinalizationRegistry extends JSObject {
                             // Cleanup callback errors should not crash the program
                             System.err.println("FinalizationRegistry cleanup error: " + e.getMessage());
                         }
-                    });
+                    }, cleanupCallback, record.heldValue);
                 }
 
                 // Clear the phantom reference
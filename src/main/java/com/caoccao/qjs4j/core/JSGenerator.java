@@ -72,10 +72,7 @@ public final class JSGenerator extends JSObject {
      * Create an iterator result object: { value: any, done: boolean }
      */
     private JSObject createIteratorResult(JSValue value, boolean isDone) {
-        JSObject result = context.createJSObject();
-        result.set("value", value);
-        result.set("done", JSBoolean.valueOf(isDone));
-        return result;
+        return context.createIteratorResult(value, isDone);
     }
 
     /**
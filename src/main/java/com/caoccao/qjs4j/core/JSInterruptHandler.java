@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+/**
+ * Functional interface asked periodically whether running JavaScript code should be terminated.
+ * Based on QuickJS JSInterruptHandler.
+ * <p>
+ * The handler is polled from the dispatch loop after a batch of backward jumps and calls,
+ * so it should be cheap and must not run JavaScript code.
+ */
+@FunctionalInterface
+public interface JSInterruptHandler {
+    /**
+     * Called when the virtual machine polls for interrupts.
+     *
+     * @param runtime The runtime running the code
+     * @return true to terminate the running code
+     */
+    boolean shouldInterrupt(JSRuntime runtime);
+}
@@ -16,6 +16,8 @@
 
 package com.caoccao.qjs4j.core;
 
+import java.util.function.Consumer;
+
 /**
  * Represents a JavaScript Iterator object.
  * Based on ES2020 Iterator protocol.
@@ -25,20 +27,32 @@ package com.caoccao.qjs4j.core;
  */
 public class JSIterator extends JSObject {
     private final JSContext context;
+    // The object iterated by the iterator function, or null if it iterates none
+    private final JSValue iteratedObject;
     private final IteratorFunction iteratorFunction;
+    private final JSNativeFunction nextMethod;
     private boolean exhausted;
 
     /**
      * Create an iterator with the given iteration logic.
      */
     public JSIterator(JSContext context, IteratorFunction iteratorFunction) {
+        this(context, iteratorFunction, null);
+    }
+
+    /**
+     * Create an iterator with the given iteration logic over an object.
+     * Following QuickJS js_array_iterator_mark(), the iterator keeps the object alive until it is exhausted.
+     */
+    public JSIterator(JSContext context, IteratorFunction iteratorFunction, JSValue iteratedObject) {
         super();
         this.context = context;
+        this.iteratedObject = iteratedObject;
         this.iteratorFunction = iteratorFunction;
         this.exhausted = false;
 
         // Set up 'next' method as a property (required by iterator protocol)
-        JSNativeFunction nextMethod = new JSNativeFunction("next", 0, (childContext, thisArg, args) -> {
+        this.nextMethod = new JSNativeFunction("next", 0, (childContext, thisArg, args) -> {
             if (thisArg instanceof JSIterator iter) {
                 return iter.next();
             }
@@ -62,7 +76,7 @@ public class JSIterator extends JSObject {
                 return IteratorResult.of(context, value);
             }
             return IteratorResult.done(context);
-        });
+        }, array);
     }
 
     /**
@@ -79,7 +93,7 @@ public class JSIterator extends JSObject {
                 return IteratorResult.of(context, pair);
             }
             return IteratorResult.done(context);
-        });
+        }, map);
     }
 
     /**
@@ -93,7 +107,7 @@ public class JSIterator extends JSObject {
                 return IteratorResult.of(context, key);
             }
             return IteratorResult.done(context);
-        });
+        }, map);
     }
 
     /**
@@ -107,7 +121,7 @@ public class JSIterator extends JSObject {
                 return IteratorResult.of(context, value);
             }
             return IteratorResult.done(context);
-        });
+        }, map);
     }
 
     /**
@@ -125,7 +139,7 @@ public class JSIterator extends JSObject {
                 return IteratorResult.of(context, pair);
             }
             return IteratorResult.done(context);
-        });
+        }, set);
     }
 
     /**
@@ -139,7 +153,7 @@ public class JSIterator extends JSObject {
                 return IteratorResult.of(context, value);
             }
             return IteratorResult.done(context);
-        });
+        }, set);
     }
 
     /**
@@ -157,7 +171,24 @@ public class JSIterator extends JSObject {
                 return IteratorResult.of(context, new JSString(character));
             }
             return IteratorResult.done(context);
-        });
+        }, string);
+    }
+
+    /**
+     * Check whether a method is the built-in next() of this iterator.
+     * The result objects of the built-in next() are not visible to anyone else, so callers
+     * holding it as the next method may step through {@link #nextResult()} instead.
+     */
+    public boolean isNextMethod(JSValue method) {
+        return method == nextMethod;
+    }
+
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        if (!exhausted) {
+            markFunction.accept(iteratedObject);
+        }
     }
 
     /**
@@ -165,15 +196,22 @@ public class JSIterator extends JSObject {
      * Returns an object with 'value' and 'done' properties.
      */
     public JSObject next() {
+        return nextResult().toObject();
+    }
+
+    /**
+     * Get the next value in the iteration without creating the result object.
+     */
+    public IteratorResult nextResult() {
         if (exhausted) {
-            return IteratorResult.done(context).toObject();
+            return IteratorResult.done(context);
         }
 
         IteratorResult result = iteratorFunction.next();
         if (result.done) {
             exhausted = true;
         }
-        return result.toObject();
+        return result;
     }
 
     @Override
@@ -217,10 +255,7 @@ public class JSIterator extends JSObject {
         }
 
         public JSObject toObject() {
-            JSObject obj = context.createJSObject();
-            obj.set("value", value);
-            obj.set("done", JSBoolean.valueOf(done));
-            return obj;
+            return context.createIteratorResult(value, done);
         }
     }
 }
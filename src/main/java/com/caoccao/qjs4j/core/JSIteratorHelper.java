@@ -133,8 +133,8 @@ public final class JSIteratorHelper {
             return null;
         }
 
-        // Handle JSIterator instances directly
-        if (iterator instanceof JSIterator jsIterator) {
+        // Handle JSIterator instances directly unless their next() is replaced
+        if (iterator instanceof JSIterator jsIterator && jsIterator.isNextMethod(jsIterator.get("next"))) {
             return jsIterator.next();
         }
 
@@ -187,14 +187,11 @@ public final class JSIteratorHelper {
     public static JSArray toArray(JSContext context, JSIterator iterator) {
         JSArray result = context.createJSArray();
         while (true) {
-            JSObject iterResult = iterator.next();
-            JSValue doneValue = iterResult.get("done");
-            boolean done = JSTypeConversions.toBoolean(doneValue).isBooleanTrue();
-            if (done) {
+            JSIterator.IteratorResult iterResult = iterator.nextResult();
+            if (iterResult.done) {
                 break;
             }
-            JSValue value = iterResult.get("value");
-            result.push(value);
+            result.push(iterResult.value);
         }
         return result;
     }
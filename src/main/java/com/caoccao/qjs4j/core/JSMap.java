@@ -16,8 +16,11 @@
 
 package com.caoccao.qjs4j.core;
 
+import com.caoccao.qjs4j.memory.HeapManager;
+
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Represents a JavaScript Map object.
@@ -92,6 +95,11 @@ public final class JSMap extends JSObject {
         return data.entrySet();
     }
 
+    @Override
+    public long getMemoryUsage() {
+        return super.getMemoryUsage() + data.size() * HeapManager.SPARSE_ENTRY_SIZE;
+    }
+
     /**
      * Get all keys as an iterable.
      */
@@ -132,7 +140,18 @@ public final class JSMap extends JSObject {
      * Set a key-value pair in the Map.
      */
     public void mapSet(JSValue key, JSValue value) {
-        data.put(new KeyWrapper(key), value);
+        if (data.put(new KeyWrapper(key), value) == null) {
+            HeapManager.charge(HeapManager.SPARSE_ENTRY_SIZE);
+        }
+    }
+
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        data.forEach((key, value) -> {
+            markFunction.accept(key.value());
+            markFunction.accept(value);
+        });
     }
 
     /**
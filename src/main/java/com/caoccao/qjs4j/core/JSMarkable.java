@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import java.util.function.Consumer;
+
+/**
+ * Native state holding JavaScript values that the garbage collector cannot see through,
+ * such as the variables captured by the callback of a native function.
+ * Following QuickJS JSClassGCMark, the holder passes the values it keeps alive to the mark function.
+ */
+@FunctionalInterface
+public interface JSMarkable {
+    /**
+     * Pass the values held by this state to the mark function of the garbage collector.
+     */
+    void markValues(Consumer<JSValue> markFunction);
+}
@@ -20,6 +20,7 @@ import com.caoccao.qjs4j.exceptions.JSException;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.function.Consumer;
 
 /**
  * Manages the microtask queue for promise resolution and async operations.
@@ -31,7 +32,7 @@ import java.util.Queue;
  */
 public final class JSMicrotaskQueue {
     private final JSContext context;
-    private final Queue<Microtask> queue;
+    private final Queue<PendingMicrotask> queue;
     private boolean executing;
 
     /**
@@ -55,11 +56,14 @@ public final class JSMicrotaskQueue {
 
     /**
      * Enqueue a microtask to be executed.
+     * Following QuickJS JS_EnqueueJob(), the values the microtask uses are held by the queue
+     * so that the garbage collector reaches them until it runs.
      *
      * @param microtask The microtask to enqueue
+     * @param args      The values the microtask keeps alive
      */
-    public void enqueue(Microtask microtask) {
-        queue.offer(microtask);
+    public void enqueue(Microtask microtask, JSValue... args) {
+        queue.offer(new PendingMicrotask(microtask, args));
     }
 
     /**
@@ -71,6 +75,17 @@ public final class JSMicrotaskQueue {
         return !queue.isEmpty();
     }
 
+    /**
+     * Pass the values held by the pending microtasks to the mark function of the garbage collector.
+     */
+    public void markValues(Consumer<JSValue> markFunction) {
+        for (PendingMicrotask pendingMicrotask : queue) {
+            for (JSValue arg : pendingMicrotask.args()) {
+                markFunction.accept(arg);
+            }
+        }
+    }
+
     /**
      * Process all pending microtasks.
      * This should be called at the end of each task in the event loop.
@@ -86,10 +101,10 @@ public final class JSMicrotaskQueue {
         executing = true;
         try {
             while (!queue.isEmpty()) {
-                Microtask microtask = queue.poll();
-                if (microtask != null) {
+                PendingMicrotask pendingMicrotask = queue.poll();
+                if (pendingMicrotask != null) {
                     try {
-                        microtask.execute();
+                        pendingMicrotask.microtask().execute();
                     } catch (Exception e) {
                         // Trigger unhandled rejection handler if set
                         JSPromiseRejectCallback callback = context.getPromiseRejectCallback();
@@ -124,4 +139,7 @@ public final class JSMicrotaskQueue {
          */
         void execute();
     }
+
+    private record PendingMicrotask(Microtask microtask, JSValue[] args) {
+    }
 }
@@ -16,11 +16,15 @@
 
 package com.caoccao.qjs4j.core;
 
+import java.util.function.Consumer;
+
 /**
  * Represents a native (Java-implemented) JavaScript function.
  */
 public final class JSNativeFunction extends JSFunction {
     private final NativeCallback callback;
+    // Values captured by the callback, or null if it captures none
+    private final JSMarkable capturedValues;
     private final boolean isConstructor;
     private final int length;
     private final String name;
@@ -34,11 +38,26 @@ public final class JSNativeFunction extends JSFunction {
         this(name, length, callback, isConstructor, false);
     }
 
+    /**
+     * Create a native function whose callback keeps the given values alive.
+     * Following QuickJS JS_NewCFunctionData(), the garbage collector reaches the captured values through the function.
+     */
+    public JSNativeFunction(String name, int length, NativeCallback callback, JSMarkable capturedValues) {
+        this(name, length, callback, true, false, capturedValues);
+    }
+
     public JSNativeFunction(String name, int length, NativeCallback callback, boolean isConstructor, boolean requiresNew) {
+        this(name, length, callback, isConstructor, requiresNew, null);
+    }
+
+    private JSNativeFunction(
+            String name, int length, NativeCallback callback, boolean isConstructor, boolean requiresNew,
+            JSMarkable capturedValues) {
         super(); // Initialize as JSObject
         this.name = name;
         this.length = length;
         this.callback = callback;
+        this.capturedValues = capturedValues;
         this.isConstructor = isConstructor;
         this.requiresNew = requiresNew;
 
@@ -97,6 +116,14 @@ public final class JSNativeFunction extends JSFunction {
         return isConstructor;
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        if (capturedValues != null) {
+            capturedValues.markValues(markFunction);
+        }
+    }
+
     public boolean requiresNew() {
         return requiresNew;
     }
@@ -23,6 +23,42 @@ import com.caoccao.qjs4j.utils.DtoaConverter;
  */
 public record JSNumber(double value) implements JSValue {
     public static final String NAME = "number";
+    static final int CACHE_HIGH = 1023;
+    static final int CACHE_LOW = -128;
+    private static final JSNumber[] CACHE = new JSNumber[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new JSNumber(i + CACHE_LOW);
+        }
+    }
+
+    /**
+     * Get a number for an int value.
+     * Small integers are served from a cache of preallocated instances,
+     * like {@link Integer#valueOf(int)}, so that loop counters and
+     * array indices do not produce garbage.
+     */
+    public static JSNumber valueOf(int value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[value - CACHE_LOW];
+        }
+        return new JSNumber(value);
+    }
+
+    /**
+     * Get a number for a double value.
+     * Integral values in the small-integer range are served from the cache,
+     * except -0 which must keep its sign.
+     */
+    public static JSNumber valueOf(double value) {
+        int intValue = (int) value;
+        if (intValue == value && intValue >= CACHE_LOW && intValue <= CACHE_HIGH
+                && (intValue != 0 || Double.doubleToRawLongBits(value) == 0L)) {
+            return CACHE[intValue - CACHE_LOW];
+        }
+        return new JSNumber(value);
+    }
 
     @Override
     public Object toJavaObject() {
@@ -16,24 +16,34 @@
 
 package com.caoccao.qjs4j.core;
 
+import com.caoccao.qjs4j.memory.HeapManager;
+
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * Represents a JavaScript object.
- * Based on QuickJS object implementation with mutable shape system.
+ * Based on QuickJS object implementation with shared shape system.
  * <p>
  * Following QuickJS approach:
- * - Each object has its own mutable shape (no sharing)
- * - Shapes can have properties added and removed
- * - Property deletion compacts shape when threshold is reached
+ * - Objects start from the shared root shape and follow add-property transitions,
+ *   so objects built the same way share one shape
+ * - Deleting a property, changing attributes or defining an accessor switches
+ *   the object to its own dictionary-mode shape
+ * - Property deletion compacts the dictionary shape when threshold is reached
  * - Property values stored in parallel array indexed by offset
  * - Sparse properties (numeric indices) stored separately
  */
-public non-sealed class JSObject implements JSValue {
+public non-sealed class JSObject implements JSValue, Cloneable {
+    /**
+     * Upper bound of prototype chain hops in property lookups.
+     * Cycles are rejected by setPrototype, this only guards against pathological chains.
+     */
+    public static final int MAX_PROTOTYPE_CHAIN_DEPTH = 10000;
     public static final String NAME = "Object";
+    private static final JSValue[] EMPTY_VALUES = new JSValue[0];
     private static final boolean DEBUG_JSOBJECT_SET = false;
-    // ThreadLocal to track visited objects during prototype chain traversal
-    private static final ThreadLocal<Set<JSObject>> visitedObjects = ThreadLocal.withInitial(HashSet::new);
     protected JSConstructorType constructorType; // Internal slot for [[Constructor]] type (not accessible from JS)
     protected boolean extensible = true;
     protected boolean frozen = false;
@@ -46,11 +56,12 @@ public non-sealed class JSObject implements JSValue {
 
     /**
      * Create an empty object with no prototype.
-     * Each object gets its own shape copy (not shared).
+     * The object starts from the shared root shape.
      */
     public JSObject() {
-        this.shape = new JSShape();  // Each object gets its own shape
-        this.propertyValues = new JSValue[0];
+        HeapManager.charge(HeapManager.OBJECT_SIZE);
+        this.shape = JSShape.ROOT;
+        this.propertyValues = EMPTY_VALUES;
         this.sparseProperties = null;
         this.prototype = null;
     }
@@ -65,6 +76,22 @@ public non-sealed class JSObject implements JSValue {
 
     // Property operations
 
+    /**
+     * Switch to a shape that has one more property than the current shape
+     * and store the value of the new slot.
+     */
+    void appendProperty(JSShape newShape, JSValue value) {
+        int offset = newShape.getPropertyCount() - 1;
+        // Grow property values array
+        if (offset >= propertyValues.length) {
+            int capacity = Math.max(4, offset + (offset >> 1) + 1);
+            HeapManager.charge((capacity - propertyValues.length) * HeapManager.SLOT_SIZE);
+            this.propertyValues = Arrays.copyOf(propertyValues, capacity);
+        }
+        this.shape = newShape;
+        propertyValues[offset] = value;
+    }
+
     /**
      * Compact properties by removing deleted properties.
      * Following QuickJS compact_properties() logic.
@@ -73,56 +100,57 @@ public non-sealed class JSObject implements JSValue {
         if (shape.getDeletedPropCount() == 0) {
             return; // Nothing to compact
         }
+        // The shape skips deleted slots in keys and values in the same pass
+        this.propertyValues = shape.compact(propertyValues);
+    }
 
-        // Compact the shape
-        shape.compact();
-
-        // Rebuild property values array without deleted entries
-        PropertyKey[] keys = shape.getPropertyKeys();
-        JSValue[] newValues = new JSValue[keys.length];
-
-        int newIndex = 0;
-        for (int i = 0; i < propertyValues.length; i++) {
-            // Check if this slot is still valid after compaction
-            if (newIndex < keys.length) {
-                newValues[newIndex] = propertyValues[i];
-                newIndex++;
-            }
+    /**
+     * Copy this object for a context created from a template context.
+     * The copy shares every reference with this object until {@link #relocate}
+     * points them to the copies of the objects they reference.
+     */
+    JSObject copy() {
+        try {
+            return (JSObject) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
         }
-
-        this.propertyValues = newValues;
     }
 
     /**
      * Define a new property with a descriptor.
+     * Missing attributes in the descriptor are treated as false.
      */
     public void defineProperty(PropertyKey key, PropertyDescriptor descriptor) {
+        int flags = JSShape.flagsOf(descriptor);
+        boolean accessor = (flags & JSShape.FLAG_ACCESSOR) != 0;
         // Check if property already exists
         int offset = shape.getPropertyOffset(key);
         if (offset >= 0) {
-            // Property exists, update descriptor and value
-            shape.addProperty(key, descriptor);
+            // Property exists, update attributes and value
+            if (accessor || shape.getFlagsAt(offset) != flags) {
+                ensureDictionaryShape();
+                shape.setFlagsAt(offset, flags);
+                shape.setAccessorAt(offset, accessor ? toAccessor(descriptor) : null);
+            }
             if (descriptor.hasValue()) {
                 propertyValues[offset] = descriptor.getValue();
+            } else if (accessor) {
+                propertyValues[offset] = JSUndefined.INSTANCE;
             }
             return;
         }
 
-        // Add new property to shape
-        shape.addProperty(key, descriptor);
-
-        // Grow property values array
-        int newCount = shape.getPropertyCount();
-        JSValue[] newValues = Arrays.copyOf(propertyValues, newCount);
-
-        // Set the new property value
-        if (descriptor.hasValue()) {
-            newValues[newCount - 1] = descriptor.getValue();
-        } else {
-            newValues[newCount - 1] = JSUndefined.INSTANCE;
+        // Add new property, shared shapes follow the cached transition
+        if (accessor) {
+            ensureDictionaryShape();
+        }
+        appendProperty(
+                shape.addProperty(key, flags),
+                descriptor.hasValue() ? descriptor.getValue() : JSUndefined.INSTANCE);
+        if (accessor) {
+            shape.setAccessorAt(shape.getPropertyCount() - 1, toAccessor(descriptor));
         }
-
-        this.propertyValues = newValues;
     }
 
     /**
@@ -170,8 +198,7 @@ public non-sealed class JSObject implements JSValue {
         }
 
         // Check if property is configurable before removing
-        PropertyDescriptor desc = shape.getDescriptorAt(offset);
-        if (!desc.isConfigurable()) {
+        if ((shape.getFlagsAt(offset) & JSShape.FLAG_CONFIGURABLE) == 0) {
             // In strict mode, throw TypeError when trying to delete non-configurable property
             if (context != null && context.isStrictMode()) {
                 context.throwTypeError(
@@ -180,11 +207,9 @@ public non-sealed class JSObject implements JSValue {
             return false;
         }
 
-        // Remove from shape (checks configurability internally)
-        boolean removed = shape.removeProperty(key);
-        if (!removed) {
-            return false; // Not configurable or other error
-        }
+        // Deleting leaves the shared shape tree
+        ensureDictionaryShape();
+        shape.removePropertyAt(offset);
 
         // Set value to undefined (QuickJS does this)
         propertyValues[offset] = JSUndefined.INSTANCE;
@@ -197,18 +222,27 @@ public non-sealed class JSObject implements JSValue {
         return true;
     }
 
+    /**
+     * Switch this object to its own dictionary-mode shape before modifying
+     * the shape in-place.
+     */
+    void ensureDictionaryShape() {
+        if (!shape.isDictionary()) {
+            shape = shape.toDictionary();
+        }
+    }
+
     /**
      * Get own enumerable property keys.
      */
     public PropertyKey[] enumerableKeys() {
         List<PropertyKey> keys = new ArrayList<>();
 
-        PropertyKey[] allKeys = shape.getPropertyKeys();
-        PropertyDescriptor[] descriptors = shape.getDescriptors();
-
-        for (int i = 0; i < allKeys.length; i++) {
-            if (descriptors[i].isEnumerable()) {
-                keys.add(allKeys[i]);
+        int propertyCount = shape.getPropertyCount();
+        for (int i = 0; i < propertyCount; i++) {
+            PropertyKey key = shape.getKeyAt(i);
+            if (key != null && (shape.getFlagsAt(i) & JSShape.FLAG_ENUMERABLE) != 0) {
+                keys.add(key);
             }
         }
 
@@ -280,56 +314,46 @@ public non-sealed class JSObject implements JSValue {
      * Protected to allow JSProxy to override with proper trap handling.
      */
     protected JSValue get(PropertyKey key, JSContext context, JSObject receiver) {
-        // Look in own properties
-        int offset = shape.getPropertyOffset(key);
-        if (offset >= 0) {
-            // Check if property has a getter
-            PropertyDescriptor desc = shape.getDescriptor(key);
-            if (desc != null && desc.hasGetter()) {
-                JSFunction getter = desc.getGetter();
-                if (getter != null && context != null) {
-                    // Call the getter with the ORIGINAL receiver as 'this', not the prototype
-                    JSValue result = getter.call(context, receiver, new JSValue[0]);
-                    // Check if getter threw an exception - return the error value or undefined
-                    if (context.hasPendingException()) {
-                        return result != null ? result : context.getPendingException();
+        JSObject current = this;
+        for (int depth = 0; depth < MAX_PROTOTYPE_CHAIN_DEPTH; depth++) {
+            // Look in own properties
+            JSShape currentShape = current.shape;
+            int offset = currentShape.getPropertyOffset(key);
+            if (offset >= 0) {
+                // Check if property has a getter
+                PropertyDescriptor desc = currentShape.getAccessorAt(offset);
+                if (desc != null && desc.hasGetter()) {
+                    JSFunction getter = desc.getGetter();
+                    if (getter != null && context != null) {
+                        // Call the getter with the ORIGINAL receiver as 'this', not the prototype
+                        JSValue result = getter.call(context, receiver, new JSValue[0]);
+                        // Check if getter threw an exception - return the error value or undefined
+                        if (context.hasPendingException()) {
+                            return result != null ? result : context.getPendingException();
+                        }
+                        return result;
                     }
-                    return result;
-                }
-                // Getter is explicitly undefined or no context available
-                return JSUndefined.INSTANCE;
-            }
-            // Regular property with value
-            return propertyValues[offset];
-        }
-
-        // Look in prototype chain with cycle detection
-        if (prototype != null) {
-            Set<JSObject> visited = visitedObjects.get();
-            boolean isTopLevel = visited.isEmpty();
-
-            try {
-                // Check for circular reference
-                if (visited.contains(prototype)) {
+                    // Getter is explicitly undefined or no context available
                     return JSUndefined.INSTANCE;
                 }
-
-                // Add current prototype to visited set
-                visited.add(prototype);
-
-                // Recurse into prototype chain, passing along the original receiver
-                return prototype.get(key, context, receiver);
-            } finally {
-                // Clean up: remove from visited set
-                visited.remove(prototype);
-
-                // If this was the top-level call, clear the ThreadLocal
-                if (isTopLevel) {
-                    visited.clear();
+                // Regular property with value
+                JSValue value = current.propertyValues[offset];
+                if (value instanceof JSAutoInitProperty autoInit) {
+                    return current.resolveAutoInit(key, autoInit);
                 }
+                return value;
             }
-        }
 
+            // Continue with the prototype, passing along the original receiver
+            current = current.prototype;
+            if (current == null) {
+                return JSUndefined.INSTANCE;
+            }
+            if (current instanceof JSProxy || current instanceof JSArguments) {
+                // These override the lookup, let them handle the rest of the chain
+                return current.get(key, context, receiver);
+            }
+        }
         return JSUndefined.INSTANCE;
     }
 
@@ -341,6 +365,18 @@ public non-sealed class JSObject implements JSValue {
         return constructorType;
     }
 
+    /**
+     * Get the estimated bytes held by this object, not counting the values it references.
+     * Subclasses holding storage of their own add its size.
+     */
+    public long getMemoryUsage() {
+        long size = HeapManager.OBJECT_SIZE + propertyValues.length * HeapManager.SLOT_SIZE;
+        if (sparseProperties != null) {
+            size += sparseProperties.size() * HeapManager.SPARSE_ENTRY_SIZE;
+        }
+        return size;
+    }
+
     /**
      * Get a V8-style object description for error messages.
      * Returns format that matches V8 error messages.
@@ -376,7 +412,29 @@ public non-sealed class JSObject implements JSValue {
      * Get the property descriptor for a property.
      */
     public PropertyDescriptor getOwnPropertyDescriptor(PropertyKey key) {
-        return shape.getDescriptor(key);
+        int offset = shape.getPropertyOffset(key);
+        if (offset < 0) {
+            return null;
+        }
+        // Descriptors are synthesized from the shape flags and the current slot value
+        int flags = shape.getFlagsAt(offset);
+        PropertyDescriptor descriptor = new PropertyDescriptor();
+        if ((flags & JSShape.FLAG_ACCESSOR) != 0) {
+            PropertyDescriptor accessor = shape.getAccessorAt(offset);
+            if (accessor.hasGetter()) {
+                descriptor.setGetter(accessor.getGetter());
+            }
+            if (accessor.hasSetter()) {
+                descriptor.setSetter(accessor.getSetter());
+            }
+        } else {
+            JSValue value = propertyValues[offset];
+            descriptor.setValue(value instanceof JSAutoInitProperty autoInit ? resolveAutoInit(key, autoInit) : value);
+            descriptor.setWritable((flags & JSShape.FLAG_WRITABLE) != 0);
+        }
+        descriptor.setEnumerable((flags & JSShape.FLAG_ENUMERABLE) != 0);
+        descriptor.setConfigurable((flags & JSShape.FLAG_CONFIGURABLE) != 0);
+        return descriptor;
     }
 
     /**
@@ -451,6 +509,16 @@ public non-sealed class JSObject implements JSValue {
         return false;
     }
 
+    /**
+     * Fill an object without properties with the values of a precomputed shape,
+     * one value per property of the shape.
+     */
+    void initializeProperties(JSShape shape, JSValue... values) {
+        HeapManager.charge(values.length * HeapManager.SLOT_SIZE);
+        this.shape = shape;
+        this.propertyValues = values;
+    }
+
     /**
      * Check if this object is extensible.
      * ES5.1 15.2.3.13
@@ -473,6 +541,27 @@ public non-sealed class JSObject implements JSValue {
         return sealed;
     }
 
+    /**
+     * Pass the values referenced by this object to the mark function of the garbage collector.
+     * Following QuickJS mark_children(), subclasses holding values in their own fields add them.
+     */
+    public void markChildren(Consumer<JSValue> markFunction) {
+        markFunction.accept(prototype);
+        markFunction.accept(primitiveValue);
+        int propertyCount = Math.min(shape.getPropertyCount(), propertyValues.length);
+        for (int i = 0; i < propertyCount; i++) {
+            markFunction.accept(propertyValues[i]);
+            PropertyDescriptor accessor = shape.getAccessorAt(i);
+            if (accessor != null) {
+                markFunction.accept(accessor.getGetter());
+                markFunction.accept(accessor.getSetter());
+            }
+        }
+        if (sparseProperties != null) {
+            sparseProperties.values().forEach(markFunction);
+        }
+    }
+
     /**
      * Get all own property keys.
      */
@@ -503,6 +592,53 @@ public non-sealed class JSObject implements JSValue {
 
     // Prototype chain
 
+    /**
+     * Point the references of a copy made by {@link #copy} to the copies of the objects they reference.
+     * Subclasses holding values or the context in their own fields relocate them too.
+     *
+     * @param context the context the copy belongs to
+     * @param copyOf  maps a value of the template to its copy, values that are not copied map to themselves
+     */
+    void relocate(JSContext context, UnaryOperator<JSValue> copyOf) {
+        prototype = (JSObject) copyOf.apply(prototype);
+        primitiveValue = copyOf.apply(primitiveValue);
+        if (propertyValues.length > 0) {
+            JSValue[] values = new JSValue[propertyValues.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = copyOf.apply(propertyValues[i]);
+            }
+            propertyValues = values;
+        }
+        if (shape.isDictionary()) {
+            shape = shape.copyDictionary(copyOf);
+        }
+        if (sparseProperties != null) {
+            sparseProperties = new HashMap<>(sparseProperties);
+            sparseProperties.replaceAll((index, value) -> copyOf.apply(value));
+        }
+    }
+
+    /**
+     * Following QuickJS js_autoinit_get_value(), create the built-ins of an auto-init placeholder
+     * and store each of them in the slot of this object that still holds the placeholder.
+     *
+     * @return the value of the property once the built-ins are stored
+     */
+    private JSValue resolveAutoInit(PropertyKey key, JSAutoInitProperty autoInit) {
+        JSObject builtins = autoInit.getBuiltins(this);
+        if (builtins != null) {
+            for (PropertyKey builtinKey : builtins.shape.getPropertyKeys()) {
+                int offset = shape.getPropertyOffset(builtinKey);
+                if (offset >= 0 && propertyValues[offset] == autoInit) {
+                    propertyValues[offset] = builtins.get(builtinKey);
+                }
+            }
+        }
+        int offset = shape.getPropertyOffset(key);
+        JSValue value = offset >= 0 ? propertyValues[offset] : JSUndefined.INSTANCE;
+        return value == autoInit ? JSUndefined.INSTANCE : value;
+    }
+
     /**
      * Seal this object.
      * Prevents adding new properties and deleting existing properties.
@@ -531,7 +667,9 @@ public non-sealed class JSObject implements JSValue {
             if (sparseProperties == null) {
                 sparseProperties = new HashMap<>();
             }
-            sparseProperties.put(index, value);
+            if (sparseProperties.put(index, value) == null) {
+                HeapManager.charge(HeapManager.SPARSE_ENTRY_SIZE);
+            }
             return;
         }
 
@@ -553,11 +691,12 @@ public non-sealed class JSObject implements JSValue {
         // Check if property already exists
         int offset = shape.getPropertyOffset(key);
         if (offset >= 0) {
+            int flags = shape.getFlagsAt(offset);
             // Property exists, check if it has a setter
-            PropertyDescriptor desc = shape.getDescriptorAt(offset);
+            PropertyDescriptor desc = (flags & JSShape.FLAG_ACCESSOR) != 0 ? shape.getAccessorAt(offset) : null;
 
             // If property has a setter, call it
-            if (desc.hasSetter()) {
+            if (desc != null && desc.hasSetter()) {
                 JSFunction setter = desc.getSetter();
                 if (setter != null && context != null) {
                     // Call the setter with 'this' as the object and value as argument
@@ -570,7 +709,7 @@ public non-sealed class JSObject implements JSValue {
             }
 
             // Regular property - check if writable
-            if (!desc.isWritable() || frozen) {
+            if ((flags & JSShape.FLAG_WRITABLE) == 0 || frozen) {
                 // In strict mode, throw TypeError
                 if (context != null && context.isStrictMode()) {
                     context.throwTypeError(
@@ -614,8 +753,46 @@ public non-sealed class JSObject implements JSValue {
 
     // JSValue implementation
 
-    public void setPrototype(JSObject prototype) {
+    /**
+     * Set the prototype of this object.
+     * Following ES2024 10.1.2.1 OrdinarySetPrototypeOf, the prototype is not
+     * changed and false is returned if this object is not extensible or the
+     * new prototype chain would contain this object.
+     */
+    public boolean setPrototype(JSObject prototype) {
+        if (prototype == this.prototype) {
+            return true;
+        }
+        if (!extensible) {
+            return false;
+        }
+        JSObject current = prototype;
+        while (current != null) {
+            if (current == this) {
+                return false;
+            }
+            if (current instanceof JSProxy) {
+                // The proxy controls the rest of the chain
+                break;
+            }
+            current = current.prototype;
+        }
         this.prototype = prototype;
+        return true;
+    }
+
+    /**
+     * Keep only the getter and setter of an accessor descriptor for storing in the shape.
+     */
+    private static PropertyDescriptor toAccessor(PropertyDescriptor descriptor) {
+        PropertyDescriptor accessor = new PropertyDescriptor();
+        if (descriptor.hasGetter()) {
+            accessor.setGetter(descriptor.getGetter());
+        }
+        if (descriptor.hasSetter()) {
+            accessor.setSetter(descriptor.getSetter());
+        }
+        return accessor;
     }
 
     @Override
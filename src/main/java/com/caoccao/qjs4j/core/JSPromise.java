@@ -18,6 +18,7 @@ package com.caoccao.qjs4j.core;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Represents a JavaScript Promise object.
@@ -55,13 +56,13 @@ public final class JSPromise extends JSObject {
                     JSValue value = funcArgs.length > 0 ? funcArgs[0] : JSUndefined.INSTANCE;
                     jsPromise.fulfill(value);
                     return JSUndefined.INSTANCE;
-                });
+                }, markFunction -> markFunction.accept(jsPromise));
         JSNativeFunction rejectFunc = new JSNativeFunction("reject", 1,
                 (childContext, thisArg, funcArgs) -> {
                     JSValue reason = funcArgs.length > 0 ? funcArgs[0] : JSUndefined.INSTANCE;
                     jsPromise.reject(reason);
                     return JSUndefined.INSTANCE;
-                });
+                }, markFunction -> markFunction.accept(jsPromise));
         // Call the executor with resolve and reject
         try {
             JSValue[] executorArgs = new JSValue[]{resolveFunc, rejectFunc};
@@ -130,6 +131,19 @@ public final class JSPromise extends JSObject {
         return state;
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        markFunction.accept(result);
+        // Following QuickJS js_promise_mark(), the pending reactions keep their handlers alive
+        for (ReactionRecord reaction : fulfillReactions) {
+            reaction.markValues(markFunction);
+        }
+        for (ReactionRecord reaction : rejectReactions) {
+            reaction.markValues(markFunction);
+        }
+    }
+
     /**
      * Reject the promise with a reason.
      * ES2020 25.6.1.7
@@ -206,7 +220,7 @@ public final class JSPromise extends JSObject {
                     }
                 }
             }
-        });
+        }, reaction.handler, reaction.promise, value);
     }
 
     /**
@@ -221,7 +235,7 @@ public final class JSPromise extends JSObject {
     /**
      * A reaction record stores a callback and the promise it will affect.
      */
-    public static class ReactionRecord {
+    public static class ReactionRecord implements JSMarkable {
         public final JSContext context;
         public final JSFunction handler;
         public final JSPromise promise;
@@ -231,5 +245,11 @@ public final class JSPromise extends JSObject {
             this.promise = promise;
             this.context = context;
         }
+
+        @Override
+        public void markValues(Consumer<JSValue> markFunction) {
+            markFunction.accept(handler);
+            markFunction.accept(promise);
+        }
     }
 }
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Represents a JavaScript Proxy object.
@@ -834,6 +835,13 @@ public final class JSProxy extends JSObject {
         return revoked;
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        markFunction.accept(target);
+        markFunction.accept(handler);
+    }
+
     /**
      * Override ownPropertyKeys to use getOwnPropertyKeys.
      */
@@ -991,7 +999,7 @@ public final class JSProxy extends JSObject {
      * ES2020 9.5.2 [[SetPrototypeOf]]
      */
     @Override
-    public void setPrototype(JSObject proto) {
+    public boolean setPrototype(JSObject proto) {
         if (revoked) {
             throw new JSException(
                     context.throwTypeError("Cannot perform 'setPrototype' on a proxy that has been revoked"));
@@ -1002,8 +1010,7 @@ public final class JSProxy extends JSObject {
         JSValue trap = getTrapMethod("setPrototypeOf");
         if (trap instanceof JSUndefined) {
             // No trap - forward to target per ES2020 9.5.2 step 5
-            targetObj.setPrototype(proto);
-            return;
+            return targetObj.setPrototype(proto);
         }
 
         if (!(trap instanceof JSFunction trapFunc)) {
@@ -1029,6 +1036,7 @@ public final class JSProxy extends JSObject {
             throw new JSException(context
                     .throwTypeError("'setPrototypeOf' on proxy: trap returned falsish for property 'undefined'"));
         }
+        return true;
     }
 
     /**
@@ -17,12 +17,14 @@
 package com.caoccao.qjs4j.core;
 
 import com.caoccao.qjs4j.memory.GarbageCollector;
+import com.caoccao.qjs4j.memory.HeapManager;
 import com.caoccao.qjs4j.utils.AtomTable;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 /**
  * Represents a JavaScript runtime environment.
@@ -46,12 +48,17 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * - Stack traces
  */
 public final class JSRuntime implements AutoCloseable {
+    // Canonical property keys indexed by atom
+    private final List<PropertyKey> atomKeys;
     private final AtomTable atoms;
     private final List<JSContext> contexts;
     private final GarbageCollector gc;
-    private final int interruptCheckCounter;
-    private final Queue<Job> jobQueue;
+    private final HeapManager heapManager;
+    private final Queue<PendingJob> jobQueue;
     private final RuntimeOptions options;
+    // Snapshot of the built-ins the new contexts are copied from, taken on the first createContext()
+    private JSContextSnapshot contextSnapshot;
+    private JSInterruptHandler interruptHandler;
     private long maxMemoryUsage;
     // Runtime limits
     private long maxStackSize;
@@ -68,13 +75,24 @@ public final class JSRuntime implements AutoCloseable {
      */
     public JSRuntime(RuntimeOptions options) {
         this.contexts = new ArrayList<>();
-        this.gc = new GarbageCollector();
+        this.gc = new GarbageCollector(this);
+        this.heapManager = new HeapManager(gc);
         this.atoms = new AtomTable();
+        this.atomKeys = new ArrayList<>();
         this.jobQueue = new ConcurrentLinkedQueue<>();
         this.options = options;
         this.maxStackSize = options.maxStackSize;
         this.maxMemoryUsage = options.maxMemoryUsage;
-        this.interruptCheckCounter = 0;
+        heapManager.setMaxHeapSize(maxMemoryUsage);
+        this.contextSnapshot = null;
+        this.interruptHandler = null;
+    }
+
+    /**
+     * Add a context created on this runtime.
+     */
+    void addContext(JSContext context) {
+        contexts.add(context);
     }
 
     @Override
@@ -83,17 +101,43 @@ public final class JSRuntime implements AutoCloseable {
         for (JSContext context : new ArrayList<>(contexts)) {
             context.close();
         }
-        atoms.clear();
+        contextSnapshot = null;
+        synchronized (this) {
+            atoms.clear();
+            atomKeys.clear();
+        }
+        // A closed runtime no longer makes the other runtimes charge their allocations
+        heapManager.setMaxHeapSize(0);
         gc();
     }
 
     /**
      * Create a new execution context.
+     * The built-ins are built once into a template context and copied into each new context,
+     * which is much cheaper than building them again.
      */
     public JSContext createContext() {
-        JSContext context = new JSContext(this);
-        contexts.add(context);
-        return context;
+        if (contextSnapshot == null) {
+            JSContext templateContext = new JSContext(this);
+            // The template is only copied from, so it is not one of the live contexts
+            contexts.remove(templateContext);
+            contextSnapshot = new JSContextSnapshot(templateContext);
+        }
+        return new JSContext(this, contextSnapshot);
+    }
+
+    /**
+     * Create a pool of contexts with the default options.
+     */
+    public JSContextPool createContextPool() {
+        return createContextPool(new JSContextPool.PoolOptions());
+    }
+
+    /**
+     * Create a pool of contexts that are reset to a pristine state when they are released.
+     */
+    public JSContextPool createContextPool(JSContextPool.PoolOptions options) {
+        return new JSContextPool(this, options);
     }
 
     /**
@@ -106,18 +150,24 @@ public final class JSRuntime implements AutoCloseable {
     /**
      * Enqueue a job to be executed later.
      * Used for promise reactions and queueMicrotask().
+     * Following QuickJS JS_EnqueueJob(), the values the job uses are held by the queue
+     * so that the garbage collector reaches them until it runs.
+     *
+     * @param job  the job to enqueue
+     * @param args the values the job keeps alive
      */
-    public void enqueueJob(Job job) {
+    public void enqueueJob(Job job, JSValue... args) {
         if (job != null) {
-            jobQueue.offer(job);
+            jobQueue.offer(new PendingJob(job, args));
         }
     }
 
     /**
      * Perform garbage collection.
+     * The heap accounting restarts from the live size measured by the collector.
      */
     public void gc() {
-        gc.collectGarbage();
+        heapManager.collectGarbage();
     }
 
     /**
@@ -127,6 +177,24 @@ public final class JSRuntime implements AutoCloseable {
         return atoms;
     }
 
+    /**
+     * Get the canonical property key of a string.
+     * The string is interned in the atom table and the key carries its atom index,
+     * so keys resolved by this runtime compare by identity.
+     */
+    public synchronized PropertyKey getAtomKey(String str) {
+        int atom = atoms.intern(str);
+        while (atomKeys.size() <= atom) {
+            atomKeys.add(null);
+        }
+        PropertyKey key = atomKeys.get(atom);
+        if (key == null) {
+            key = PropertyKey.fromAtom(str, atom, atoms);
+            atomKeys.set(atom, key);
+        }
+        return key;
+    }
+
     /**
      * Get all contexts in this runtime.
      */
@@ -141,6 +209,20 @@ public final class JSRuntime implements AutoCloseable {
         return gc;
     }
 
+    /**
+     * Get the heap manager accounting the memory allocated by the code of this runtime.
+     */
+    public HeapManager getHeapManager() {
+        return heapManager;
+    }
+
+    /**
+     * Get the interrupt handler, or null if none is set.
+     */
+    public JSInterruptHandler getInterruptHandler() {
+        return interruptHandler;
+    }
+
     /**
      * Get maximum memory usage.
      */
@@ -169,6 +251,21 @@ public final class JSRuntime implements AutoCloseable {
         return !jobQueue.isEmpty();
     }
 
+    /**
+     * Pass the values held by the pending jobs and the contexts of this runtime
+     * to the mark function of the garbage collector.
+     */
+    public void markRoots(Consumer<JSValue> markFunction) {
+        for (PendingJob pendingJob : jobQueue) {
+            for (JSValue arg : pendingJob.args()) {
+                markFunction.accept(arg);
+            }
+        }
+        for (JSContext context : contexts) {
+            context.markRoots(markFunction);
+        }
+    }
+
     /**
      * Run all pending jobs (microtasks).
      * This processes promise reactions and other microtasks.
@@ -178,10 +275,10 @@ public final class JSRuntime implements AutoCloseable {
     public int runJobs() {
         int count = 0;
         while (!jobQueue.isEmpty()) {
-            Job job = jobQueue.poll();
-            if (job != null) {
+            PendingJob pendingJob = jobQueue.poll();
+            if (pendingJob != null) {
                 try {
-                    job.run();
+                    pendingJob.job().run();
                     count++;
                 } catch (Exception e) {
                     // In full implementation, this would be handled properly
@@ -193,10 +290,20 @@ public final class JSRuntime implements AutoCloseable {
     }
 
     /**
-     * Set maximum memory usage in bytes.
+     * Set the interrupt handler polled while code runs, or null to remove it.
+     * Based on QuickJS JS_SetInterruptHandler().
+     */
+    public void setInterruptHandler(JSInterruptHandler interruptHandler) {
+        this.interruptHandler = interruptHandler;
+    }
+
+    /**
+     * Set maximum memory usage in bytes, 0 or less for no limit.
+     * Following QuickJS JS_SetMemoryLimit(), allocations going past it throw an out of memory RangeError.
      */
     public void setMaxMemoryUsage(long bytes) {
         this.maxMemoryUsage = bytes;
+        heapManager.setMaxHeapSize(bytes);
     }
 
     /**
@@ -208,14 +315,11 @@ public final class JSRuntime implements AutoCloseable {
 
     /**
      * Check if execution should be interrupted.
-     * Called periodically during bytecode execution.
+     * Called periodically during bytecode execution, it asks the interrupt handler if one is set.
      */
     public boolean shouldInterrupt() {
-        // In full implementation, this would check:
-        // - Timeout limits
-        // - Memory limits
-        // - User-requested interrupts
-        return false;
+        JSInterruptHandler handler = interruptHandler;
+        return handler != null && handler.shouldInterrupt(this);
     }
 
     /**
@@ -227,6 +331,9 @@ public final class JSRuntime implements AutoCloseable {
         void run();
     }
 
+    private record PendingJob(Job job, JSValue[] args) {
+    }
+
     /**
      * Runtime configuration options.
      */
@@ -16,7 +16,10 @@
 
 package com.caoccao.qjs4j.core;
 
+import com.caoccao.qjs4j.memory.HeapManager;
+
 import java.util.LinkedHashSet;
+import java.util.function.Consumer;
 
 /**
  * Represents a JavaScript Set object.
@@ -72,11 +75,24 @@ public final class JSSet extends JSObject {
         return setObj;
     }
 
+    @Override
+    public long getMemoryUsage() {
+        return super.getMemoryUsage() + data.size() * HeapManager.SPARSE_ENTRY_SIZE;
+    }
+
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        data.forEach(key -> markFunction.accept(key.value()));
+    }
+
     /**
      * Add a value to the Set.
      */
     public void setAdd(JSValue value) {
-        data.add(new JSMap.KeyWrapper(value));
+        if (data.add(new JSMap.KeyWrapper(value))) {
+            HeapManager.charge(HeapManager.SPARSE_ENTRY_SIZE);
+        }
     }
 
     /**
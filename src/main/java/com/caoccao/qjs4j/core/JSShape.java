@@ -16,108 +16,338 @@
 
 package com.caoccao.qjs4j.core;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 
 /**
- * Represents the shape (structure) of a JavaScript object.
- * Based on QuickJS shape system with mutable property lists.
+ * Represents the shape (hidden class) of a JavaScript object.
+ * Based on QuickJS JSShape and the shape hash used by add_shape_property().
  * <p>
  * Following QuickJS implementation:
- * - Shapes are mutable and can have properties removed
- * - Deleted properties are tracked and shape is compacted when threshold is reached
- * - Each object has its own shape instance (no sharing)
- * - Supports property addition, removal, and compaction
+ * - Shapes are shared and immutable; objects built the same way share one shape
+ * - Adding a property follows a cached transition to a child shape
+ * - Only the property keys and attribute flags live in the shape,
+ *   property values are stored in the object's slot array
+ * - Deleting a property, changing attributes or defining an accessor moves the
+ *   object to its own mutable dictionary-mode shape
+ * - Deleted properties in a dictionary shape are compacted when a threshold is reached
+ * - Dictionary shapes bump a layout version whenever an existing slot is removed,
+ *   moved or reconfigured, so a cached slot offset stays valid as a property cell
+ *   while properties are only added
+ * - Shapes with more than {@link #HASH_THRESHOLD} properties are indexed by an
+ *   open-addressing hash table, the key arrays keep insertion order for enumeration
  */
 public final class JSShape {
+    public static final int FLAG_ACCESSOR = 1 << 3;
+    public static final int FLAG_CONFIGURABLE = 1 << 2;
+    public static final int FLAG_ENUMERABLE = 1 << 1;
+    public static final int FLAG_WRITABLE = 1 << 0;
+    public static final int FLAGS_DEFAULT = FLAG_WRITABLE | FLAG_ENUMERABLE | FLAG_CONFIGURABLE;
+    /**
+     * Shapes with at most this many property slots are searched linearly,
+     * larger shapes use the hash table.
+     */
+    public static final int HASH_THRESHOLD = 8;
+    /**
+     * Shared shapes larger than this are not extended further; the object
+     * switches to a dictionary shape instead so dictionary-like objects do not
+     * build long transition chains.
+     */
+    public static final int MAX_SHARED_PROPERTY_COUNT = 128;
+    // Transitions whose child shape was collected, removed from their parent on the next addProperty()
+    private static final ReferenceQueue<JSShape> CLEARED_TRANSITIONS = new ReferenceQueue<>();
+    private static final int[] EMPTY_FLAGS = new int[0];
+    private static final PropertyKey[] EMPTY_KEYS = new PropertyKey[0];
+    /**
+     * The empty root shape every object starts from.
+     * Declared after the empty arrays it is built from.
+     */
+    public static final JSShape ROOT = new JSShape();
+    /**
+     * The shape of iterator result objects { value, done }, precomputed so that
+     * the results are allocated with both properties at once.
+     */
+    public static final JSShape ITERATOR_RESULT = ROOT
+            .addProperty(PropertyKey.fromString("value"), FLAG_WRITABLE | FLAG_ENUMERABLE | FLAG_CONFIGURABLE)
+            .addProperty(PropertyKey.fromString("done"), FLAG_WRITABLE | FLAG_ENUMERABLE | FLAG_CONFIGURABLE);
+    private final boolean dictionary;
+    private PropertyDescriptor[] accessors;
     private int deletedPropCount;
-    private PropertyDescriptor[] descriptors;
+    private int hash;
+    private int layoutVersion;
+    // Open-addressing index of property offset + 1 (0 means empty slot), built lazily.
+    // Volatile because shared shapes are used by every runtime and thread, so a table
+    // built by one thread must be seen by the others with its contents.
+    private volatile int[] hashTable;
     private int propertyCount;
+    private int[] propertyFlags;
     private PropertyKey[] propertyKeys;
+    // Transition cache (shared shapes only), children are weakly held so unused shapes can be collected.
+    // Shared shapes are used by every runtime and thread, so the cache is a concurrent map read without a lock.
+    private volatile Map<Transition, TransitionReference> transitions;
 
     /**
-     * Create an empty shape (no properties).
+     * Create the empty root shape.
      */
-    public JSShape() {
-        this.propertyKeys = new PropertyKey[0];
-        this.descriptors = new PropertyDescriptor[0];
+    private JSShape() {
+        this.dictionary = false;
+        this.propertyKeys = EMPTY_KEYS;
+        this.propertyFlags = EMPTY_FLAGS;
+        this.accessors = null;
         this.propertyCount = 0;
         this.deletedPropCount = 0;
+        this.hash = 1;
+        this.layoutVersion = 0;
+        this.hashTable = null;
+        this.transitions = null;
     }
 
     /**
      * Create a shape by copying from another shape.
+     *
+     * @param other      the shape to copy
+     * @param dictionary whether the copy is a dictionary-mode shape
+     * @param capacity   the capacity of the key and flag arrays
      */
-    private JSShape(JSShape other) {
-        this.propertyKeys = other.propertyKeys.clone();
-        this.descriptors = other.descriptors.clone();
+    private JSShape(JSShape other, boolean dictionary, int capacity) {
+        this.dictionary = dictionary;
+        this.propertyKeys = Arrays.copyOf(other.propertyKeys, capacity);
+        this.propertyFlags = Arrays.copyOf(other.propertyFlags, capacity);
+        this.accessors = other.accessors != null ? Arrays.copyOf(other.accessors, capacity) : null;
         this.propertyCount = other.propertyCount;
         this.deletedPropCount = other.deletedPropCount;
+        this.hash = other.hash;
+        this.layoutVersion = 0;
+        this.hashTable = null;
+        this.transitions = null;
     }
 
     /**
-     * Add a property to this shape.
-     * Modifies the shape in-place.
-     */
-    public void addProperty(PropertyKey key, PropertyDescriptor descriptor) {
-        // Check if property already exists (might be deleted)
-        int existingOffset = getPropertyOffset(key);
-        if (existingOffset >= 0) {
-            // Property exists, update it
-            descriptors[existingOffset] = descriptor;
-            return;
+     * Convert a descriptor to shape attribute flags.
+     * Missing attributes are treated as false.
+     */
+    public static int flagsOf(PropertyDescriptor descriptor) {
+        int flags = 0;
+        if (descriptor.isAccessorDescriptor()) {
+            flags |= FLAG_ACCESSOR;
+        } else if (descriptor.isWritable()) {
+            flags |= FLAG_WRITABLE;
         }
+        if (descriptor.isEnumerable()) {
+            flags |= FLAG_ENUMERABLE;
+        }
+        if (descriptor.isConfigurable()) {
+            flags |= FLAG_CONFIGURABLE;
+        }
+        return flags;
+    }
 
-        // Grow arrays
-        PropertyKey[] newKeys = new PropertyKey[propertyCount + 1];
-        PropertyDescriptor[] newDescriptors = new PropertyDescriptor[propertyCount + 1];
-
-        // Copy existing properties
-        System.arraycopy(propertyKeys, 0, newKeys, 0, propertyCount);
-        System.arraycopy(descriptors, 0, newDescriptors, 0, propertyCount);
+    /**
+     * Spread the key hash so that sequential hash codes do not cluster.
+     */
+    private static int hashIndex(PropertyKey key, int mask) {
+        int h = key.hashCode() * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
 
-        // Add new property
-        newKeys[propertyCount] = key;
-        newDescriptors[propertyCount] = descriptor;
+    /**
+     * Remove the transitions whose child shape was collected from their parent shape,
+     * so a shape that keeps getting new keys does not accumulate dead entries.
+     */
+    private static void purgeTransitions() {
+        Reference<? extends JSShape> reference;
+        while ((reference = CLEARED_TRANSITIONS.poll()) != null) {
+            TransitionReference transitionReference = (TransitionReference) reference;
+            transitionReference.parent.transitions.remove(transitionReference.transition, transitionReference);
+        }
+    }
 
-        this.propertyKeys = newKeys;
-        this.descriptors = newDescriptors;
-        this.propertyCount++;
+    /**
+     * Following QuickJS shape_hash().
+     */
+    private static int shapeHash(int hash, PropertyKey key, int flags) {
+        return (hash + key.hashCode() * 31 + flags) * 0x9e370001;
     }
 
     /**
-     * Compact the shape by removing deleted properties.
-     * Creates new arrays without deleted properties.
-     * Following QuickJS compact_properties() logic.
+     * Add a property to this shape.
+     * Shared shapes are never modified: the cached child shape for
+     * (key, flags) is returned, or created on first use.
+     * Dictionary shapes are modified in-place and returned.
+     * <p>
+     * The new property is always at offset {@code getPropertyCount() - 1}
+     * of the returned shape. The caller must make sure the key does not exist.
+     *
+     * @return the shape that contains the new property
      */
-    public void compact() {
-        if (deletedPropCount == 0) {
-            return; // Nothing to compact
+    public JSShape addProperty(PropertyKey key, int flags) {
+        if (dictionary) {
+            appendProperty(key, flags);
+            return this;
+        }
+        if (propertyCount >= MAX_SHARED_PROPERTY_COUNT) {
+            JSShape dictionaryShape = toDictionary();
+            dictionaryShape.appendProperty(key, flags);
+            return dictionaryShape;
         }
+        purgeTransitions();
+        Transition transition = new Transition(key, flags);
+        Map<Transition, TransitionReference> map = transitions;
+        if (map == null) {
+            synchronized (this) {
+                map = transitions;
+                if (map == null) {
+                    map = new ConcurrentHashMap<>();
+                    transitions = map;
+                }
+            }
+        }
+        TransitionReference reference = map.get(transition);
+        JSShape child = reference != null ? reference.get() : null;
+        if (child != null) {
+            return child;
+        }
+        // Shared shapes outlive the runtime that created them, so they hold no atom of its table
+        PropertyKey sharedKey = key.toSharedKey();
+        Transition sharedTransition = new Transition(sharedKey, flags);
+        child = new JSShape(this, false, propertyCount + 1);
+        child.appendProperty(sharedKey, flags);
+        // A racing thread may have cached its own child first, or replaced a collected one
+        TransitionReference created = new TransitionReference(child, this, sharedTransition);
+        TransitionReference cached = map.compute(sharedTransition,
+                (ignored, existing) -> existing != null && existing.get() != null ? existing : created);
+        if (cached != created) {
+            JSShape cachedChild = cached.get();
+            if (cachedChild != null) {
+                return cachedChild;
+            }
+        }
+        return child;
+    }
 
-        List<PropertyKey> newKeys = new ArrayList<>(propertyCount - deletedPropCount);
-        List<PropertyDescriptor> newDescriptors = new ArrayList<>(propertyCount - deletedPropCount);
+    private void appendProperty(PropertyKey key, int flags) {
+        if (propertyCount == propertyKeys.length) {
+            // Dictionary shapes grow geometrically, shared shapes are allocated exactly
+            int capacity = dictionary ? Math.max(4, propertyCount + (propertyCount >> 1)) : propertyCount + 1;
+            propertyKeys = Arrays.copyOf(propertyKeys, capacity);
+            propertyFlags = Arrays.copyOf(propertyFlags, capacity);
+            if (accessors != null) {
+                accessors = Arrays.copyOf(accessors, capacity);
+            }
+        }
+        propertyKeys[propertyCount] = key;
+        propertyFlags[propertyCount] = flags;
+        propertyCount++;
+        hash = shapeHash(hash, key, flags);
+        int[] table = hashTable;
+        if (table != null) {
+            // Keep the load factor at or below 1/2, deleted slots count as used until compaction
+            if (propertyCount * 2 > table.length) {
+                hashTable = null;
+            } else {
+                insertHash(table, propertyCount - 1);
+            }
+        }
+    }
 
-        // Copy non-null properties
+    private void assertDictionary() {
+        if (!dictionary) {
+            throw new IllegalStateException("Shared shape cannot be modified");
+        }
+    }
+
+    /**
+     * Build the hash table for the current property slots.
+     * Shared shapes are immutable so a racing build produces an identical table,
+     * and the table is filled before it is published through the volatile field.
+     */
+    private int[] buildHashTable() {
+        int capacity = Integer.highestOneBit(Math.max(propertyCount, HASH_THRESHOLD) * 2) << 1;
+        int[] table = new int[capacity];
         for (int i = 0; i < propertyCount; i++) {
             if (propertyKeys[i] != null) {
-                newKeys.add(propertyKeys[i]);
-                newDescriptors.add(descriptors[i]);
+                insertHash(table, i);
             }
         }
+        hashTable = table;
+        return table;
+    }
 
-        // Update arrays
-        this.propertyKeys = newKeys.toArray(new PropertyKey[0]);
-        this.descriptors = newDescriptors.toArray(new PropertyDescriptor[0]);
-        this.propertyCount = newKeys.size();
+    /**
+     * Compact a dictionary shape by removing deleted properties.
+     * The property values are compacted in the same pass and returned.
+     * Following QuickJS compact_properties() logic.
+     */
+    public JSValue[] compact(JSValue[] values) {
+        if (deletedPropCount == 0) {
+            return values;
+        }
+        int newCount = propertyCount - deletedPropCount;
+        PropertyKey[] newKeys = new PropertyKey[newCount];
+        int[] newFlags = new int[newCount];
+        PropertyDescriptor[] newAccessors = accessors != null ? new PropertyDescriptor[newCount] : null;
+        JSValue[] newValues = new JSValue[newCount];
+        int newIndex = 0;
+        for (int i = 0; i < propertyCount; i++) {
+            if (propertyKeys[i] != null) {
+                newKeys[newIndex] = propertyKeys[i];
+                newFlags[newIndex] = propertyFlags[i];
+                if (newAccessors != null) {
+                    newAccessors[newIndex] = accessors[i];
+                }
+                newValues[newIndex] = values[i];
+                newIndex++;
+            }
+        }
+        this.propertyKeys = newKeys;
+        this.propertyFlags = newFlags;
+        this.accessors = newAccessors;
+        this.propertyCount = newCount;
         this.deletedPropCount = 0;
+        this.hashTable = null;
+        layoutVersion++;
+        return newValues;
+    }
+
+    /**
+     * Copy a dictionary shape for a copied object.
+     * The getters and setters of the accessors are mapped to their copies.
+     */
+    public JSShape copyDictionary(UnaryOperator<JSValue> copyOf) {
+        assertDictionary();
+        JSShape copy = new JSShape(this, true, propertyKeys.length);
+        copy.hashTable = hashTable != null ? hashTable.clone() : null;
+        if (accessors != null) {
+            for (int i = 0; i < propertyCount; i++) {
+                PropertyDescriptor accessor = accessors[i];
+                if (accessor != null) {
+                    PropertyDescriptor accessorCopy = new PropertyDescriptor();
+                    if (accessor.hasGetter()) {
+                        accessorCopy.setGetter((JSFunction) copyOf.apply(accessor.getGetter()));
+                    }
+                    if (accessor.hasSetter()) {
+                        accessorCopy.setSetter((JSFunction) copyOf.apply(accessor.getSetter()));
+                    }
+                    copy.accessors[i] = accessorCopy;
+                }
+            }
+        }
+        return copy;
     }
 
     /**
-     * Create a copy of this shape.
+     * Get the accessor descriptor (getter and setter) at a specific offset.
+     * Returns null if the property at the offset is not an accessor.
      */
-    public JSShape copy() {
-        return new JSShape(this);
+    public PropertyDescriptor getAccessorAt(int offset) {
+        return accessors != null ? accessors[offset] : null;
     }
 
     /**
@@ -128,44 +358,37 @@ public final class JSShape {
     }
 
     /**
-     * Get the descriptor for a property.
-     * Returns null if property not found or deleted.
+     * Get the attribute flags at a specific offset.
      */
-    public PropertyDescriptor getDescriptor(PropertyKey key) {
-        int offset = getPropertyOffset(key);
-        return offset >= 0 ? descriptors[offset] : null;
+    public int getFlagsAt(int offset) {
+        return propertyFlags[offset];
     }
 
     /**
-     * Get the descriptor at a specific offset.
-     * Returns null if offset is invalid or property is deleted.
+     * Get the hash of this shape, computed from its keys and flags like QuickJS shape_hash().
      */
-    public PropertyDescriptor getDescriptorAt(int offset) {
-        if (offset < 0 || offset >= propertyCount) {
-            return null;
-        }
-        // Check if deleted
-        if (propertyKeys[offset] == null) {
-            return null;
-        }
-        return descriptors[offset];
+    public int getHash() {
+        return hash;
     }
 
     /**
-     * Get all property descriptors in this shape (excluding deleted).
+     * Get the key at a specific offset.
+     * Returns null if the property at the offset is deleted.
      */
-    public PropertyDescriptor[] getDescriptors() {
-        List<PropertyDescriptor> result = new ArrayList<>(propertyCount - deletedPropCount);
-        for (int i = 0; i < propertyCount; i++) {
-            if (propertyKeys[i] != null) {
-                result.add(descriptors[i]);
-            }
-        }
-        return result.toArray(new PropertyDescriptor[0]);
+    public PropertyKey getKeyAt(int offset) {
+        return propertyKeys[offset];
     }
 
     /**
-     * Get the number of properties in this shape (including deleted).
+     * Get the layout version of a dictionary shape.
+     * The version changes whenever an existing slot is removed, moved or reconfigured.
+     */
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
+
+    /**
+     * Get the number of property slots in this shape (including deleted).
      */
     public int getPropertyCount() {
         return propertyCount;
@@ -175,6 +398,9 @@ public final class JSShape {
      * Get all property keys in this shape (excluding deleted).
      */
     public PropertyKey[] getPropertyKeys() {
+        if (deletedPropCount == 0) {
+            return Arrays.copyOf(propertyKeys, propertyCount);
+        }
         List<PropertyKey> result = new ArrayList<>(propertyCount - deletedPropCount);
         for (int i = 0; i < propertyCount; i++) {
             if (propertyKeys[i] != null) {
@@ -189,46 +415,106 @@ public final class JSShape {
      * Returns -1 if property not found or deleted.
      */
     public int getPropertyOffset(PropertyKey key) {
-        for (int i = 0; i < propertyCount; i++) {
-            if (propertyKeys[i] != null && propertyKeys[i].equals(key)) {
-                return i;
+        PropertyKey[] keys = propertyKeys;
+        if (propertyCount <= HASH_THRESHOLD) {
+            for (int i = 0; i < propertyCount; i++) {
+                PropertyKey propertyKey = keys[i];
+                if (propertyKey == key || (propertyKey != null && propertyKey.equals(key))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int[] table = hashTable;
+        if (table == null) {
+            table = buildHashTable();
+        }
+        int mask = table.length - 1;
+        int index = hashIndex(key, mask);
+        while (true) {
+            int entry = table[index];
+            if (entry == 0) {
+                return -1;
+            }
+            // Deleted slots have a null key and are skipped like tombstones
+            PropertyKey propertyKey = keys[entry - 1];
+            if (propertyKey == key || (propertyKey != null && propertyKey.equals(key))) {
+                return entry - 1;
             }
+            index = (index + 1) & mask;
         }
-        return -1;
     }
 
     /**
      * Check if this shape has a property (not deleted).
      */
+    /**
+     * Get the number of transitions cached by this shape, including the ones not purged yet.
+     */
+    int getTransitionCount() {
+        Map<Transition, TransitionReference> map = transitions;
+        return map != null ? map.size() : 0;
+    }
+
     public boolean hasProperty(PropertyKey key) {
         return getPropertyOffset(key) >= 0;
     }
 
+    private void insertHash(int[] table, int offset) {
+        int mask = table.length - 1;
+        int index = hashIndex(propertyKeys[offset], mask);
+        while (table[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        table[index] = offset + 1;
+    }
+
     /**
-     * Remove a property from this shape.
+     * Check if this is a dictionary-mode shape owned by a single object.
+     */
+    public boolean isDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Remove the property at a specific offset from a dictionary shape.
      * Marks the property as deleted (sets key to null).
      * Following QuickJS delete_property() logic.
-     *
-     * @return true if property was removed, false if not found or not configurable
      */
-    public boolean removeProperty(PropertyKey key) {
-        int offset = getPropertyOffset(key);
-        if (offset < 0) {
-            return true; // Property doesn't exist, deletion successful
-        }
-
-        // Check if configurable
-        PropertyDescriptor desc = descriptors[offset];
-        if (!desc.isConfigurable()) {
-            return false; // Cannot delete non-configurable property
-        }
-
+    public void removePropertyAt(int offset) {
+        assertDictionary();
         // Mark as deleted (QuickJS sets atom to JS_ATOM_NULL)
         propertyKeys[offset] = null;
-        descriptors[offset] = null;
+        propertyFlags[offset] = 0;
+        if (accessors != null) {
+            accessors[offset] = null;
+        }
         deletedPropCount++;
+        layoutVersion++;
+    }
 
-        return true;
+    /**
+     * Set the accessor descriptor at a specific offset of a dictionary shape.
+     */
+    public void setAccessorAt(int offset, PropertyDescriptor accessor) {
+        assertDictionary();
+        if (accessors == null) {
+            if (accessor == null) {
+                return;
+            }
+            accessors = new PropertyDescriptor[propertyKeys.length];
+        }
+        accessors[offset] = accessor;
+        layoutVersion++;
+    }
+
+    /**
+     * Set the attribute flags at a specific offset of a dictionary shape.
+     */
+    public void setFlagsAt(int offset, int flags) {
+        assertDictionary();
+        propertyFlags[offset] = flags;
+        layoutVersion++;
     }
 
     /**
@@ -240,6 +526,14 @@ public final class JSShape {
                 deletedPropCount >= propertyCount / 2;
     }
 
+    /**
+     * Create a dictionary-mode copy of this shape.
+     * The copy is owned by a single object and can be modified in-place.
+     */
+    public JSShape toDictionary() {
+        return new JSShape(this, true, Math.max(propertyCount, 4));
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("JSShape{");
@@ -254,7 +548,26 @@ public final class JSShape {
         }
         sb.append("], total=").append(propertyCount);
         sb.append(", deleted=").append(deletedPropCount);
+        sb.append(", dictionary=").append(dictionary);
         sb.append("}");
         return sb.toString();
     }
+
+    private record Transition(PropertyKey key, int flags) {
+    }
+
+    /**
+     * A weak reference to a child shape that knows where it is cached,
+     * so it can be removed once the child is collected.
+     */
+    private static final class TransitionReference extends WeakReference<JSShape> {
+        private final JSShape parent;
+        private final Transition transition;
+
+        private TransitionReference(JSShape child, JSShape parent, Transition transition) {
+            super(child, CLEARED_TRANSITIONS);
+            this.parent = parent;
+            this.transition = transition;
+        }
+    }
 }
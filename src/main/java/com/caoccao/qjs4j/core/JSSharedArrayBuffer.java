@@ -16,6 +16,8 @@
 
 package com.caoccao.qjs4j.core;
 
+import com.caoccao.qjs4j.memory.HeapManager;
+
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -50,6 +52,7 @@ public final class JSSharedArrayBuffer extends JSObject implements JSArrayBuffer
             throw new IllegalArgumentException("Invalid array buffer length");
         }
         // Use direct buffer for sharing across threads
+        HeapManager.charge(byteLength);
         this.buffer = ByteBuffer.allocateDirect(byteLength);
         this.buffer.order(ByteOrder.LITTLE_ENDIAN); // JavaScript uses little-endian
         this.byteLength = byteLength;
@@ -88,6 +91,11 @@ public final class JSSharedArrayBuffer extends JSObject implements JSArrayBuffer
         return byteLength;
     }
 
+    @Override
+    public long getMemoryUsage() {
+        return super.getMemoryUsage() + byteLength;
+    }
+
     /**
      * Check if this SharedArrayBuffer is detached.
      * SharedArrayBuffers cannot be detached.
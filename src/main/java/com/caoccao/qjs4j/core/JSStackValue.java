@@ -18,7 +18,7 @@ package com.caoccao.qjs4j.core;
 
 /**
  * Base interface for values that can be stored on the VM stack.
- * This includes both JavaScript values (JSValue) and internal VM markers (like CatchOffset).
+ * This includes both JavaScript values (JSValue) and internal VM values (like for-in enumerators).
  */
-public sealed interface JSStackValue permits JSValue, JSCatchOffset, JSInternalValue {
+public sealed interface JSStackValue permits JSValue, JSInternalValue {
 }
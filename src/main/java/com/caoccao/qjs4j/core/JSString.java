@@ -16,6 +16,8 @@
 
 package com.caoccao.qjs4j.core;
 
+import com.caoccao.qjs4j.memory.HeapManager;
+
 /**
  * Represents a JavaScript string value.
  * Supports atom indexing for interned strings.
@@ -23,6 +25,10 @@ package com.caoccao.qjs4j.core;
 public record JSString(String value, int atomIndex) implements JSValue {
     public static final String NAME = "String";
 
+    public JSString {
+        HeapManager.charge(HeapManager.STRING_SIZE + 2L * value.length());
+    }
+
     public JSString(String value) {
         this(value, -1);
     }
@@ -19,6 +19,7 @@ package com.caoccao.qjs4j.core;
 import com.caoccao.qjs4j.exceptions.JSRangeErrorException;
 
 import java.nio.ByteBuffer;
+import java.util.function.Consumer;
 
 /**
  * Base class for JavaScript TypedArray objects.
@@ -152,6 +153,14 @@ public abstract class JSTypedArray extends JSObject {
         return length;
     }
 
+    @Override
+    public void markChildren(Consumer<JSValue> markFunction) {
+        super.markChildren(markFunction);
+        if (buffer instanceof JSObject bufferObject) {
+            markFunction.accept(bufferObject);
+        }
+    }
+
     /**
      * TypedArray.prototype.set(array, offset)
      * Copy values from array into this TypedArray.
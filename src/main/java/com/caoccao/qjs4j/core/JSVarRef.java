@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.caoccao.qjs4j.core;
+
+/**
+ * A reference to a variable captured by a closure.
+ * Based on QuickJS JSVarRef.
+ * <p>
+ * While the frame declaring the variable runs, the reference is open and
+ * points at the slot of the local in the frame, so the frame and all its
+ * closures share the variable without copying. When the frame exits, or when
+ * a loop iteration ends and its bindings are renewed, the reference is closed:
+ * the current value moves into the reference, which then owns it.
+ * Only captured locals get a reference, the others stay plain slots.
+ */
+public final class JSVarRef {
+    private final int index;
+    private JSValue value;  // The value once the reference is closed
+    private JSValue[] values;  // The array holding the local while the reference is open, null once closed
+
+    /**
+     * Create an open reference to a slot.
+     *
+     * @param values the array holding the local, such as a register file chunk
+     * @param index  the index of the local in the array
+     */
+    public JSVarRef(JSValue[] values, int index) {
+        this.values = values;
+        this.index = index;
+    }
+
+    /**
+     * Detach the reference from the frame slot, keeping its current value.
+     * The reference itself is the cell, so closing does not allocate.
+     */
+    public void close() {
+        value = values[index];
+        values = null;
+    }
+
+    public JSValue get() {
+        return values != null ? values[index] : value;
+    }
+
+    public void set(JSValue value) {
+        if (values != null) {
+            values[index] = value;
+        } else {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import java.util.Arrays;
+
+/**
+ * Inline cache for a single named property access instruction
+ * (GET_FIELD / PUT_FIELD and the global GET_VAR / PUT_VAR / SET_VAR).
+ * Based on QuickJS JSInlineCache.
+ * <p>
+ * Each entry records the shapes seen along the prototype chain and the slot
+ * offset of the property in its holder. A cache starts empty, becomes
+ * monomorphic on the first cacheable access, grows to polymorphic up to
+ * {@link #MAX_ENTRIES} entries and then turns megamorphic, after which only
+ * the generic path is used.
+ * <p>
+ * Shared shapes are immutable, so shape identity proves both the slot layout
+ * and the absence of the key on the objects before the holder. Dictionary
+ * shapes are only accepted as the holder. Their slots act as property cells:
+ * the entry stays valid while the layout version of the shape is unchanged,
+ * which is how GET_VAR / PUT_VAR / SET_VAR cache global bindings.
+ */
+public final class PropertyCache {
+    public static final int MAX_DEPTH = 8;
+    public static final int MAX_ENTRIES = 4;
+    private static final Entry[] EMPTY_ENTRIES = new Entry[0];
+    private final PropertyKey key;
+    private Entry[] entries;
+    private boolean megamorphic;
+
+    public PropertyCache(PropertyKey key) {
+        this.key = key;
+        this.entries = EMPTY_ENTRIES;
+        this.megamorphic = false;
+    }
+
+    private static boolean isCacheable(JSObject obj) {
+        return !(obj instanceof JSProxy);
+    }
+
+    private void addEntry(Entry entry) {
+        if (entries.length >= MAX_ENTRIES) {
+            entries = EMPTY_ENTRIES;
+            megamorphic = true;
+            return;
+        }
+        Entry[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+        newEntries[entries.length] = entry;
+        entries = newEntries;
+    }
+
+    /**
+     * Get a property value through the cache.
+     * Falls back to {@link JSObject#get(PropertyKey, JSContext)} on a miss and
+     * records the lookup if it is cacheable.
+     */
+    public JSValue get(JSObject obj, JSContext context) {
+        for (Entry entry : entries) {
+            JSValue value = entry.get(obj);
+            if (value != null) {
+                return value;
+            }
+        }
+        JSValue value = obj.get(key, context);
+        if (!megamorphic) {
+            recordGet(obj);
+        }
+        return value;
+    }
+
+    /**
+     * Get the number of cached entries.
+     */
+    public int getEntryCount() {
+        return entries.length;
+    }
+
+    public PropertyKey getKey() {
+        return key;
+    }
+
+    /**
+     * Check if the cache has seen too many shapes and is no longer used.
+     */
+    public boolean isMegamorphic() {
+        return megamorphic;
+    }
+
+    private void recordGet(JSObject obj) {
+        if (key.isIndex()) {
+            return;
+        }
+        JSShape[] shapes = new JSShape[MAX_DEPTH];
+        JSObject[] prototypes = new JSObject[MAX_DEPTH];
+        JSObject current = obj;
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            if (!isCacheable(current)) {
+                return;
+            }
+            JSShape shape = current.shape;
+            shapes[depth] = shape;
+            prototypes[depth] = current.prototype;
+            int offset = shape.getPropertyOffset(key);
+            if (offset >= 0) {
+                // A placeholder left in the slot is resolved by the generic path only
+                if ((shape.getFlagsAt(offset) & JSShape.FLAG_ACCESSOR) == 0
+                        && !(current.propertyValues[offset] instanceof JSAutoInitProperty)) {
+                    addEntry(new Entry(
+                            Arrays.copyOf(shapes, depth + 1), Arrays.copyOf(prototypes, depth + 1),
+                            offset, shape.getLayoutVersion(), null));
+                }
+                return;
+            }
+            // A dictionary shape may gain the key later without changing identity
+            if (shape.isDictionary()) {
+                return;
+            }
+            current = current.prototype;
+            if (current == null) {
+                // Cache the miss so that checks like "o.x === undefined" stay fast
+                addEntry(new Entry(
+                        Arrays.copyOf(shapes, depth + 1), Arrays.copyOf(prototypes, depth + 1),
+                        -1, 0, null));
+                return;
+            }
+        }
+    }
+
+    private void recordSet(JSObject obj, JSShape oldShape) {
+        if (key.isIndex() || obj instanceof JSArray || !isCacheable(obj)) {
+            return;
+        }
+        JSShape shape = obj.shape;
+        int offset = shape.getPropertyOffset(key);
+        if (offset < 0 || shape.getFlagsAt(offset) != JSShape.FLAGS_DEFAULT) {
+            return;
+        }
+        if (shape == oldShape) {
+            // Existing writable data property
+            addEntry(new Entry(new JSShape[]{shape}, null, offset, shape.getLayoutVersion(), null));
+        } else if (!oldShape.isDictionary() && !shape.isDictionary()
+                && offset == oldShape.getPropertyCount()) {
+            // Add-property transition
+            addEntry(new Entry(new JSShape[]{oldShape}, null, offset, 0, shape));
+        }
+    }
+
+    /**
+     * Set a property value through the cache.
+     * Falls back to {@link JSObject#set(PropertyKey, JSValue, JSContext)} on a
+     * miss and records the store if it is cacheable.
+     * The context may be null, in which case setters are not called.
+     */
+    public void set(JSObject obj, JSValue value, JSContext context) {
+        for (Entry entry : entries) {
+            if (entry.set(obj, value)) {
+                return;
+            }
+        }
+        JSShape oldShape = obj.shape;
+        obj.set(key, value, context);
+        if (!megamorphic && (context == null || !context.hasPendingException())) {
+            recordSet(obj, oldShape);
+        }
+    }
+
+    /**
+     * A cached lookup.
+     * For reads, shapes and prototypes hold the expected shape and prototype
+     * of each object from the receiver to the holder, and offset is -1 if
+     * the property is absent from the whole chain.
+     * For writes, shapes holds the receiver shape only, and newShape is the
+     * transition target when the write adds the property.
+     * The version is the layout version of a dictionary holder.
+     */
+    private record Entry(JSShape[] shapes, JSObject[] prototypes, int offset, int version, JSShape newShape) {
+        JSValue get(JSObject obj) {
+            int last = shapes.length - 1;
+            JSObject current = obj;
+            for (int i = 0; i < last; i++) {
+                if (current.shape != shapes[i] || current.prototype != prototypes[i]) {
+                    return null;
+                }
+                current = current.prototype;
+            }
+            JSShape shape = current.shape;
+            if (shape != shapes[last]) {
+                return null;
+            }
+            if (offset < 0) {
+                return current.prototype == null ? JSUndefined.INSTANCE : null;
+            }
+            if (shape.isDictionary() && shape.getLayoutVersion() != version) {
+                return null;
+            }
+            return current.propertyValues[offset];
+        }
+
+        boolean set(JSObject obj, JSValue value) {
+            JSShape shape = obj.shape;
+            if (shape != shapes[0] || obj.frozen) {
+                return false;
+            }
+            if (newShape != null) {
+                if (!obj.extensible) {
+                    return false;
+                }
+                obj.appendProperty(newShape, value);
+                return true;
+            }
+            if (shape.isDictionary() && shape.getLayoutVersion() != version) {
+                return false;
+            }
+            obj.propertyValues[offset] = value;
+            return true;
+        }
+    }
+}
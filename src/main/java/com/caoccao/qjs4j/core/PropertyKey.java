@@ -16,6 +16,8 @@
 
 package com.caoccao.qjs4j.core;
 
+import com.caoccao.qjs4j.utils.AtomTable;
+
 import java.util.Objects;
 
 /**
@@ -29,39 +31,41 @@ import java.util.Objects;
  */
 public final class PropertyKey {
     private final int atomIndex; // -1 if not interned
+    private final AtomTable atoms; // The table the atom index belongs to, null if not interned
     private final Object value; // String, Integer, or JSSymbol
 
-    private PropertyKey(Object value, int atomIndex) {
+    private PropertyKey(Object value, int atomIndex, AtomTable atoms) {
         this.value = value;
         this.atomIndex = atomIndex;
+        this.atoms = atoms;
     }
 
     /**
-     * Create a property key from an interned string (atom).
+     * Create a property key from a string interned (atom) in an atom table.
      */
-    public static PropertyKey fromAtom(String str, int atomIndex) {
-        return new PropertyKey(str, atomIndex);
+    public static PropertyKey fromAtom(String str, int atomIndex, AtomTable atoms) {
+        return new PropertyKey(str, atomIndex, atoms);
     }
 
     /**
      * Create a property key from an integer index.
      */
     public static PropertyKey fromIndex(int index) {
-        return new PropertyKey(index, -1);
+        return new PropertyKey(index, -1, null);
     }
 
     /**
      * Create a property key from a string.
      */
     public static PropertyKey fromString(String str) {
-        return new PropertyKey(str, -1);
+        return new PropertyKey(str, -1, null);
     }
 
     /**
      * Create a property key from a symbol.
      */
     public static PropertyKey fromSymbol(JSSymbol symbol) {
-        return new PropertyKey(symbol, -1);
+        return new PropertyKey(symbol, -1, null);
     }
 
     /**
@@ -143,8 +147,9 @@ public final class PropertyKey {
         if (this == obj) return true;
         if (!(obj instanceof PropertyKey other)) return false;
 
-        // Fast path: if both have atom indices, compare them
-        if (atomIndex >= 0 && other.atomIndex >= 0) {
+        // Fast path: atoms of the same table are equal only if their indices are.
+        // Shapes are shared by all runtimes, so atoms of different tables compare by value.
+        if (atoms != null && atoms == other.atoms) {
             return atomIndex == other.atomIndex;
         }
 
@@ -162,10 +167,7 @@ public final class PropertyKey {
 
     @Override
     public int hashCode() {
-        // Use atom index for faster hashing if available
-        if (atomIndex >= 0) {
-            return atomIndex;
-        }
+        // Hash by value so atom and non-atom keys that are equal hash the same
         return Objects.hashCode(value);
     }
 
@@ -213,6 +215,14 @@ public final class PropertyKey {
         return value.toString();
     }
 
+    /**
+     * Get this key without its atom index, for the structures shared by all runtimes
+     * that must not keep the atom table of one of them alive.
+     */
+    public PropertyKey toSharedKey() {
+        return atoms != null ? new PropertyKey(value, -1, null) : this;
+    }
+
     @Override
     public String toString() {
         return "PropertyKey{" + toPropertyString() +
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.exceptions;
+
+/**
+ * Exception thrown when running code is terminated by the interrupt handler,
+ * the instruction budget or the execution timeout.
+ * <p>
+ * Following QuickJS uncatchable errors, it is not delivered to JavaScript
+ * catch or finally blocks and always propagates to the host.
+ */
+public class JSInterruptedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public JSInterruptedException(String message) {
+        super(message);
+    }
+}
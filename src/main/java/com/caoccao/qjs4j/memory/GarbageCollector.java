@@ -17,40 +17,85 @@
 package com.caoccao.qjs4j.memory;
 
 import com.caoccao.qjs4j.core.JSObject;
+import com.caoccao.qjs4j.core.JSRuntime;
+import com.caoccao.qjs4j.core.JSString;
+import com.caoccao.qjs4j.core.JSValue;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Garbage collector for JavaScript objects.
  * Implements mark-and-sweep for cycle detection.
+ * <p>
+ * The Java garbage collector reclaims unreachable objects, so the mark phase
+ * only measures the live heap for the heap manager. Native state holding values,
+ * such as suspended generator frames, promise reactions, queued jobs and the
+ * variables captured by native functions, passes them on through markChildren()
+ * or {@link com.caoccao.qjs4j.core.JSMarkable}, so the memory limit also counts
+ * the data reachable only from there.
  */
 public final class GarbageCollector {
-    private final Set<JSObject> allObjects;
     private final Set<JSObject> rootSet;
+    private final JSRuntime runtime;
 
-    public GarbageCollector() {
+    public GarbageCollector(JSRuntime runtime) {
         this.rootSet = new HashSet<>();
-        this.allObjects = new HashSet<>();
+        this.runtime = runtime;
     }
 
     public void addRoot(JSObject obj) {
         rootSet.add(obj);
     }
 
-    public void collectGarbage() {
-        Set<JSObject> reachable = markPhase();
-        sweepPhase(reachable);
+    /**
+     * Mark the values reachable from the roots and sweep them into the live size.
+     *
+     * @return the estimated bytes held by the reachable values
+     */
+    public long collectGarbage() {
+        Set<JSValue> reachable = markPhase();
+        return sweepPhase(reachable);
     }
 
-    private Set<JSObject> markPhase() {
-        return new HashSet<>();
+    /**
+     * Following QuickJS gc_decref() and gc_scan(), mark the values reachable from
+     * the host roots, the pending jobs and the contexts of the runtime.
+     */
+    private Set<JSValue> markPhase() {
+        Set<JSValue> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<JSObject> pending = new ArrayDeque<>();
+        Consumer<JSValue> markFunction = value -> {
+            if ((value instanceof JSObject || value instanceof JSString) && reachable.add(value)
+                    && value instanceof JSObject obj) {
+                pending.push(obj);
+            }
+        };
+        rootSet.forEach(markFunction);
+        runtime.markRoots(markFunction);
+        while (!pending.isEmpty()) {
+            pending.pop().markChildren(markFunction);
+        }
+        return reachable;
     }
 
     public void removeRoot(JSObject obj) {
         rootSet.remove(obj);
     }
 
-    private void sweepPhase(Set<JSObject> reachable) {
+    private long sweepPhase(Set<JSValue> reachable) {
+        long liveBytes = 0;
+        for (JSValue value : reachable) {
+            if (value instanceof JSObject obj) {
+                liveBytes += obj.getMemoryUsage();
+            } else if (value instanceof JSString str) {
+                liveBytes += HeapManager.STRING_SIZE + 2L * str.value().length();
+            }
+        }
+        return liveBytes;
     }
 }
@@ -16,20 +16,92 @@
 
 package com.caoccao.qjs4j.memory;
 
+import com.caoccao.qjs4j.exceptions.JSRangeErrorException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Manages heap memory allocation and tracking.
+ * <p>
+ * Following QuickJS malloc_size and malloc_limit, objects, arrays, strings and buffers
+ * charge an estimate of their size to the heap manager of the running runtime when they
+ * are created or grown. The Java garbage collector frees them without notice, so once
+ * the charged bytes pass the GC threshold the reachable values are marked to measure the
+ * live size, like QuickJS runs its cycle collector at malloc_gc_threshold. An allocation
+ * that leaves the live size above the max heap size throws an out of memory RangeError.
  */
 public final class HeapManager {
+    public static final long OBJECT_SIZE = 64;
+    // Following QuickJS, property and element slots count as 16-byte JSValues
+    public static final long SLOT_SIZE = 16;
+    public static final long SPARSE_ENTRY_SIZE = 48;
+    public static final long STRING_SIZE = 40;
+    // The bytes allocated between two collections at least, which bounds how far the limit can be overrun
+    private static final long GC_HEADROOM = 4 * 1024 * 1024;
+    private static final ThreadLocal<HeapManager> CURRENT = new ThreadLocal<>();
+    // The heap managers with a max heap size, allocations skip the thread local lookup while there is none
+    private static final AtomicInteger LIMITED_COUNT = new AtomicInteger();
+    private final GarbageCollector gc;
     private long allocatedBytes;
+    private long gcThreshold;
     private long maxHeapSize;
 
-    public HeapManager() {
+    public HeapManager(GarbageCollector gc) {
+        this.gc = gc;
         this.allocatedBytes = 0;
+        this.gcThreshold = GC_HEADROOM;
         this.maxHeapSize = Long.MAX_VALUE;
     }
 
+    /**
+     * Charge an allocation to the heap manager of the code running on this thread, if any.
+     * Nothing is charged while no heap manager has a max heap size.
+     */
+    public static void charge(long size) {
+        if (LIMITED_COUNT.get() == 0) {
+            return;
+        }
+        HeapManager heapManager = CURRENT.get();
+        if (heapManager != null) {
+            heapManager.allocate(size);
+        }
+    }
+
+    /**
+     * Make a heap manager the one charged by the code running on this thread.
+     *
+     * @param heapManager the heap manager, or null to stop charging
+     * @return the previous heap manager to restore when the code returns
+     */
+    public static HeapManager enter(HeapManager heapManager) {
+        HeapManager previous = CURRENT.get();
+        if (previous != heapManager) {
+            CURRENT.set(heapManager);
+        }
+        return previous;
+    }
+
     public void allocate(long size) {
         allocatedBytes += size;
+        if (allocatedBytes > gcThreshold) {
+            // The value being allocated is not reachable yet, so it is added to the live size
+            collectGarbage();
+            allocatedBytes += size;
+            if (allocatedBytes > maxHeapSize) {
+                allocatedBytes -= size;
+                throw new JSRangeErrorException("out of memory");
+            }
+        }
+    }
+
+    /**
+     * Measure the live size and restart the accounting from it.
+     */
+    public void collectGarbage() {
+        allocatedBytes = gc.collectGarbage();
+        gcThreshold = Math.max(
+                Math.min(maxHeapSize, allocatedBytes + (allocatedBytes >> 1)),
+                allocatedBytes + GC_HEADROOM);
     }
 
     public void free(long size) {
@@ -40,7 +112,19 @@ public final class HeapManager {
         return allocatedBytes;
     }
 
-    public void setMaxHeapSize(long maxHeapSize) {
-        this.maxHeapSize = maxHeapSize;
+    public long getMaxHeapSize() {
+        return maxHeapSize;
+    }
+
+    /**
+     * Set the max heap size in bytes, 0 or less for no limit.
+     */
+    public synchronized void setMaxHeapSize(long maxHeapSize) {
+        boolean wasLimited = this.maxHeapSize != Long.MAX_VALUE;
+        this.maxHeapSize = maxHeapSize > 0 ? maxHeapSize : Long.MAX_VALUE;
+        boolean limited = this.maxHeapSize != Long.MAX_VALUE;
+        if (limited != wasLimited) {
+            LIMITED_COUNT.addAndGet(limited ? 1 : -1);
+        }
     }
 }
@@ -94,7 +94,7 @@ public final class DynamicImport {
                 error.set("message", new JSString("Import failed: " + e.getMessage()));
                 promise.reject(error);
             }
-        });
+        }, promise);
 
         return promise;
     }
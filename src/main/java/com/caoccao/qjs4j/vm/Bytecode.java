@@ -16,32 +16,213 @@
 
 package com.caoccao.qjs4j.vm;
 
-import com.caoccao.qjs4j.core.JSValue;
+import com.caoccao.qjs4j.core.*;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents compiled bytecode for a function.
  */
 public final class Bytecode {
     private final String[] atomPool;
+    private final CallSite[] callSites;
+    private final ClosureVar[] closureVars;
+    // Atom pool resolved to canonical property keys of atomKeysRuntime
+    private PropertyKey[] atomKeys;
+    private JSRuntime atomKeysRuntime;
     private final JSValue[] constantPool;
+    private final ExceptionHandler[] exceptionHandlers;
     private final byte[] instructions;
     private final int localCount;
+    // Names of the locals by index, a null name is a compiler temporary
+    private final String[] localNames;
+    // Pre-decoded instructions, indexed by pc and built lazily
+    private Opcode[] opcodes;
+    private int[] operands;
+    // Inline caches for property access instructions, indexed by pc and allocated lazily
+    private PropertyCache[] propertyCaches;
 
     public Bytecode(byte[] instructions, JSValue[] constantPool, String[] atomPool, int localCount) {
+        this(instructions, constantPool, atomPool, localCount,
+                new ExceptionHandler[0], new CallSite[0], new String[0], new ClosureVar[0]);
+    }
+
+    public Bytecode(
+            byte[] instructions, JSValue[] constantPool, String[] atomPool, int localCount,
+            ExceptionHandler[] exceptionHandlers, CallSite[] callSites, String[] localNames,
+            ClosureVar[] closureVars) {
         this.instructions = instructions;
         this.constantPool = constantPool;
         this.atomPool = atomPool;
         this.localCount = localCount;
+        this.exceptionHandlers = exceptionHandlers;
+        this.callSites = callSites;
+        this.localNames = localNames;
+        this.closureVars = closureVars;
+    }
+
+    private static boolean isGetLocal(Opcode op) {
+        return switch (op) {
+            case GET_LOCAL, GET_LOC8, GET_LOC0, GET_LOC1, GET_LOC2, GET_LOC3 -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Decode the instructions once so that the dispatch loop does not look up
+     * the opcode and shift operands out of the byte array on every step.
+     * The short opcode forms get their implied operand, and pairs of instructions
+     * that often run together are fused into superinstructions, which saves a
+     * dispatch. The second instruction of a pair stays decoded, so a jump to it
+     * still works, but a pair is not fused across an exception handler boundary.
+     */
+    private void decode() {
+        int length = instructions.length;
+        Opcode[] decodedOpcodes = new Opcode[length];
+        int[] decodedOperands = new int[length];
+        int pc = 0;
+        while (pc < length) {
+            Opcode op = Opcode.fromInt(readOpcode(pc));
+            decodedOpcodes[pc] = op;
+            if (pc + op.getSize() <= length) {
+                decodedOperands[pc] = decodeOperand(pc, op);
+            }
+            pc += op.getSize();
+        }
+
+        boolean[] boundaries = new boolean[length + 1];
+        for (ExceptionHandler handler : exceptionHandlers) {
+            boundaries[handler.startPc()] = true;
+            boundaries[handler.endPc()] = true;
+            boundaries[handler.handlerPc()] = true;
+        }
+        pc = 0;
+        while (pc < length) {
+            Opcode op = decodedOpcodes[pc];
+            int nextPc = pc + op.getSize();
+            if (nextPc < length && !boundaries[nextPc]) {
+                Opcode nextOp = decodedOpcodes[nextPc];
+                Opcode fusedOp = null;
+                int fusedOperand = 0;
+                if (nextOp == Opcode.GET_FIELD && isGetLocal(op)) {
+                    fusedOp = Opcode.GET_LOC_GET_FIELD;
+                    fusedOperand = (op.getSize() << 16) | decodedOperands[pc];
+                } else if (nextOp == Opcode.IF_FALSE) {
+                    fusedOp = switch (op) {
+                        case LT -> Opcode.LT_IF_FALSE;
+                        case LTE -> Opcode.LTE_IF_FALSE;
+                        case GT -> Opcode.GT_IF_FALSE;
+                        case GTE -> Opcode.GTE_IF_FALSE;
+                        default -> null;
+                    };
+                    fusedOperand = decodedOperands[nextPc];
+                }
+                if (fusedOp != null) {
+                    decodedOpcodes[pc] = fusedOp;
+                    decodedOperands[pc] = fusedOperand;
+                }
+            }
+            pc = nextPc;
+        }
+        operands = decodedOperands;
+        opcodes = decodedOpcodes;
+    }
+
+    private int decodeOperand(int pc, Opcode op) {
+        return switch (op) {
+            case PUSH_MINUS1 -> -1;
+            case PUSH_0, GET_LOC0, PUT_LOC0, SET_LOC0, GET_VAR_REF0, PUT_VAR_REF0, SET_VAR_REF0 -> 0;
+            case PUSH_1, GET_LOC1, PUT_LOC1, SET_LOC1, GET_VAR_REF1, PUT_VAR_REF1, SET_VAR_REF1 -> 1;
+            case PUSH_2, GET_LOC2, PUT_LOC2, SET_LOC2, GET_VAR_REF2, PUT_VAR_REF2, SET_VAR_REF2 -> 2;
+            case PUSH_3, GET_LOC3, PUT_LOC3, SET_LOC3, GET_VAR_REF3, PUT_VAR_REF3, SET_VAR_REF3 -> 3;
+            case PUSH_4 -> 4;
+            case PUSH_5 -> 5;
+            case PUSH_6 -> 6;
+            case PUSH_7 -> 7;
+            case PUSH_I8 -> (byte) readU8(pc + 1);
+            case PUSH_I16 -> (short) readU16(pc + 1);
+            default -> switch (op.getSize()) {
+                case 2 -> readU8(pc + 1);
+                case 3, 4 -> readU16(pc + 1);
+                case 1 -> 0;
+                default -> readU32(pc + 1);
+            };
+        };
+    }
+
+    /**
+     * Find the innermost exception handler covering the instruction at the pc.
+     * Following the QuickJS exception table lookup, this only runs on throw,
+     * so try statements cost nothing on the normal path.
+     *
+     * @return the handler, or null if the exception leaves the function
+     */
+    public ExceptionHandler findExceptionHandler(int pc) {
+        for (ExceptionHandler handler : exceptionHandlers) {
+            if (handler.covers(pc)) {
+                return handler;
+            }
+        }
+        return null;
     }
 
     public String getAtom(int index) {
         return atomPool[index];
     }
 
+    /**
+     * Get the atom pool resolved to the canonical property keys of the runtime.
+     * The atoms are resolved once, and again only if the bytecode runs in another runtime.
+     */
+    public PropertyKey[] getAtomKeys(JSRuntime runtime) {
+        PropertyKey[] keys = atomKeys;
+        if (keys == null || atomKeysRuntime != runtime) {
+            keys = new PropertyKey[atomPool.length];
+            for (int i = 0; i < atomPool.length; i++) {
+                keys[i] = runtime.getAtomKey(atomPool[i]);
+            }
+            // Cached lookups hold keys of the previous runtime
+            propertyCaches = null;
+            atomKeysRuntime = runtime;
+            atomKeys = keys;
+        }
+        return keys;
+    }
+
     public String[] getAtoms() {
         return atomPool;
     }
 
+    public CallSite[] getCallSites() {
+        return callSites;
+    }
+
+    /**
+     * Rebuild the callee expression of the call instruction at the pc, such as
+     * "obj.inner.method" or "list[0]", for a "is not a function" message.
+     * This only runs when a call fails, so the property access instructions do
+     * not track names while the code runs.
+     *
+     * @return the callee expression, or null if it is not a chain of variable and property accesses
+     */
+    public String getCalleeName(int callPc) {
+        for (CallSite callSite : callSites) {
+            if (callSite.callPc() == callPc) {
+                return getExpressionName(callSite.calleeStartPc(), callSite.calleeEndPc());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the variables captured from the enclosing functions, indexed like the
+     * operands of GET_VAR_REF / PUT_VAR_REF / SET_VAR_REF.
+     */
+    public ClosureVar[] getClosureVars() {
+        return closureVars;
+    }
+
     public JSValue getConstant(int index) {
         return constantPool[index];
     }
@@ -50,6 +231,65 @@ public final class Bytecode {
         return constantPool;
     }
 
+    public ExceptionHandler[] getExceptionHandlers() {
+        return exceptionHandlers;
+    }
+
+    private String getExpressionName(int startPc, int endPc) {
+        // Symbolic operand stack of the expression, a null entry is a value without a name
+        List<String> names = new ArrayList<>();
+        int pc = startPc;
+        while (pc < endPc) {
+            // Read the raw instructions, the decoded ones may be fused
+            Opcode op = Opcode.fromInt(readOpcode(pc));
+            int operand = decodeOperand(pc, op);
+            switch (op) {
+                case GET_VAR -> names.add(atomPool[operand]);
+                case GET_LOCAL, GET_LOC8, GET_LOC0, GET_LOC1, GET_LOC2, GET_LOC3 ->
+                        names.add(operand < localNames.length ? localNames[operand] : null);
+                case GET_VAR_REF, GET_VAR_REF0, GET_VAR_REF1, GET_VAR_REF2, GET_VAR_REF3 ->
+                        names.add(closureVars[operand].name());
+                case PUSH_THIS -> names.add("this");
+                case PUSH_I32, PUSH_I16, PUSH_I8, PUSH_MINUS1, PUSH_0, PUSH_1, PUSH_2, PUSH_3, PUSH_4, PUSH_5,
+                     PUSH_6, PUSH_7 -> names.add(Integer.toString(operand));
+                case PUSH_CONST -> names.add(constantPool[operand] instanceof JSString str ? "'" + str.value() + "'" : null);
+                case DUP -> {
+                    if (names.isEmpty()) {
+                        return null;
+                    }
+                    names.add(names.get(names.size() - 1));
+                }
+                case GET_FIELD -> {
+                    if (names.isEmpty()) {
+                        return null;
+                    }
+                    String object = names.remove(names.size() - 1);
+                    names.add(object == null ? null : object + "." + atomPool[operand]);
+                }
+                case GET_ARRAY_EL -> {
+                    if (names.size() < 2) {
+                        return null;
+                    }
+                    String key = names.remove(names.size() - 1);
+                    String object = names.remove(names.size() - 1);
+                    if (object == null || key == null) {
+                        names.add(null);
+                    } else if (key.startsWith("'")) {
+                        // A string key reads as a named property
+                        names.add(object + "." + key.substring(1, key.length() - 1));
+                    } else {
+                        names.add(object + "[" + key + "]");
+                    }
+                }
+                default -> {
+                    return null;
+                }
+            }
+            pc += op.getSize();
+        }
+        return names.isEmpty() ? null : names.get(names.size() - 1);
+    }
+
     public byte[] getInstructions() {
         return instructions;
     }
@@ -62,6 +302,56 @@ public final class Bytecode {
         return localCount;
     }
 
+    public String[] getLocalNames() {
+        return localNames;
+    }
+
+    /**
+     * Get the pre-decoded opcodes, indexed by the program counter of the raw
+     * instructions so that jump targets, exception handlers and inline caches stay
+     * valid. Only the slots at the start of an instruction are set.
+     */
+    public Opcode[] getOpcodes() {
+        Opcode[] decodedOpcodes = opcodes;
+        if (decodedOpcodes == null) {
+            decode();
+            decodedOpcodes = opcodes;
+        }
+        return decodedOpcodes;
+    }
+
+    /**
+     * Get the pre-decoded first operand of each instruction, indexed by pc
+     * like {@link #getOpcodes()}. The operand is read as u8, u16 or u32
+     * depending on the instruction size, which is how the VM reads it.
+     */
+    public int[] getOperands() {
+        int[] decodedOperands = operands;
+        if (decodedOperands == null) {
+            decode();
+            decodedOperands = operands;
+        }
+        return decodedOperands;
+    }
+
+    /**
+     * Get the inline cache of the property access instruction at the pc.
+     * The key is the resolved atom operand of the instruction.
+     */
+    public PropertyCache getPropertyCache(int pc, PropertyKey key) {
+        PropertyCache[] caches = propertyCaches;
+        if (caches == null) {
+            caches = new PropertyCache[instructions.length];
+            propertyCaches = caches;
+        }
+        PropertyCache cache = caches[pc];
+        if (cache == null) {
+            cache = new PropertyCache(key);
+            caches[pc] = cache;
+        }
+        return cache;
+    }
+
     public int readI32(int offset) {
         return readU32(offset);
     }
@@ -14,20 +14,16 @@
  * limitations under the License.
  */
 
-package com.caoccao.qjs4j.core;
+package com.caoccao.qjs4j.vm;
 
 /**
- * Special marker value pushed on stack by CATCH opcode.
- * Contains the PC offset to the catch handler.
- * When an exception occurs, the VM unwinds the stack looking for this marker,
- * then jumps to the catch handler.
- * <p>
- * This is an internal VM type, not a JavaScript value.
+ * A debug table entry of a call instruction.
+ * The instructions in [calleeStartPc, calleeEndPc) push the callee, so the
+ * callee expression can be rebuilt for an error message when the call fails.
+ *
+ * @param callPc        the call instruction
+ * @param calleeStartPc first instruction of the callee expression
+ * @param calleeEndPc   end of the callee expression, exclusive
  */
-public record JSCatchOffset(int offset) implements JSStackValue {
-
-    @Override
-    public String toString() {
-        return "[CatchOffset:" + offset + "]";
-    }
+public record CallSite(int callPc, int calleeStartPc, int calleeEndPc) {
 }
@@ -16,23 +16,54 @@
 
 package com.caoccao.qjs4j.vm;
 
+import com.caoccao.qjs4j.core.JSContext;
 import com.caoccao.qjs4j.core.JSStackValue;
 import com.caoccao.qjs4j.core.JSValue;
+import com.caoccao.qjs4j.exceptions.JSVirtualMachineException;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
 
 /**
  * Represents the value stack for the VM.
  * Following QuickJS stack operations: sp[-1], sp[-2], etc.
  * Can store both JSValue and internal markers like CatchOffset.
+ * <p>
+ * The stack grows on demand up to the max stack size of the runtime,
+ * counting each slot as a 16-byte QuickJS JSValue. Going past the limit
+ * throws a RangeError.
  */
 public final class CallStack {
-    private final JSStackValue[] stack;
+    public static final int INITIAL_CAPACITY = 1024;
+    public static final int SLOT_SIZE = 16;
+    private final JSContext context;
+    private JSStackValue[] stack;
     private int stackTop;
 
-    public CallStack() {
-        this.stack = new JSStackValue[1024];
+    public CallStack(JSContext context) {
+        this.context = context;
+        this.stack = new JSStackValue[INITIAL_CAPACITY];
         this.stackTop = 0;
     }
 
+    /**
+     * Copy the stack values from a position to the top, including internal markers.
+     * Used to save the operand stack of a suspended generator frame.
+     */
+    public JSStackValue[] copy(int from) {
+        JSStackValue[] values = new JSStackValue[stackTop - from];
+        System.arraycopy(stack, from, values, 0, values.length);
+        return values;
+    }
+
+    /**
+     * Copy count values starting at a stack index into an array.
+     * Used to pass arguments that stay on the stack to a callee frame.
+     */
+    public void copyValues(int from, JSValue[] values, int offset, int count) {
+        System.arraycopy(stack, from, values, offset, count);
+    }
+
     /**
      * Drop count values from the stack (QuickJS: sp -= count).
      */
@@ -40,10 +71,51 @@ public final class CallStack {
         stackTop -= count;
     }
 
+    /**
+     * Get the number of slots the stack may hold, derived from the max stack size of the runtime.
+     * A max stack size of 0 or less disables the limit.
+     */
+    private int getMaxCapacity() {
+        long maxStackSize = context.getRuntime().getMaxStackSize();
+        if (maxStackSize <= 0) {
+            return Integer.MAX_VALUE - 8;
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(INITIAL_CAPACITY, maxStackSize / SLOT_SIZE));
+    }
+
     public int getStackTop() {
         return stackTop;
     }
 
+    private void grow(int minCapacity) {
+        int maxCapacity = getMaxCapacity();
+        if (minCapacity > maxCapacity) {
+            throw new JSVirtualMachineException(context.throwRangeError("Maximum call stack size exceeded"));
+        }
+        int newCapacity = (int) Math.min(maxCapacity, Math.max((long) stack.length * 2, minCapacity));
+        stack = Arrays.copyOf(stack, newCapacity);
+    }
+
+    /**
+     * Pass the values on the stack to the mark function, skipping the internal markers.
+     */
+    public void markValues(Consumer<JSValue> markFunction) {
+        for (int i = 0; i < stackTop; i++) {
+            if (stack[i] instanceof JSValue value) {
+                markFunction.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Move the top count values down to a stack index and set the top after them.
+     * Used by tail calls to replace the arguments of the current frame.
+     */
+    public void moveTop(int count, int to) {
+        System.arraycopy(stack, stackTop - count, stack, to, count);
+        stackTop = to + count;
+    }
+
     /**
      * Peek at a value on the stack (QuickJS: sp[-1-offset]).
      * offset=0 means sp[-1], offset=1 means sp[-2], etc.
@@ -78,17 +150,47 @@ public final class CallStack {
         return stack[--stackTop];
     }
 
+    /**
+     * Pop count values into a new array, the bottom-most value first.
+     */
+    public JSValue[] popValues(int count) {
+        if (stackTop < count) {
+            throw new IllegalStateException("Stack underflow in popValues: stackTop=" + stackTop + ", count=" + count);
+        }
+        JSValue[] values = new JSValue[count];
+        stackTop -= count;
+        System.arraycopy(stack, stackTop, values, 0, count);
+        return values;
+    }
+
     /**
      * Push a value onto the stack (QuickJS: *sp++ = value).
      */
     public void push(JSValue value) {
+        if (stackTop == stack.length) {
+            grow(stackTop + 1);
+        }
         stack[stackTop++] = value;
     }
 
+    /**
+     * Push stack values saved by {@link #copy(int)}.
+     */
+    public void pushAll(JSStackValue[] values) {
+        if (stackTop + values.length > stack.length) {
+            grow(stackTop + values.length);
+        }
+        System.arraycopy(values, 0, stack, stackTop, values.length);
+        stackTop += values.length;
+    }
+
     /**
      * Push a stack value (including internal markers like CatchOffset).
      */
     public void pushStackValue(JSStackValue value) {
+        if (stackTop == stack.length) {
+            grow(stackTop + 1);
+        }
         stack[stackTop++] = value;
     }
 
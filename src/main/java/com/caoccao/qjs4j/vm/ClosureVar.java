@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.caoccao.qjs4j.vm;
+
+/**
+ * A variable captured by a function from the functions enclosing it.
+ * Following QuickJS JSClosureVar, the variable is either a local of the
+ * immediately enclosing function or one of its own closure variables, and
+ * FCLOSURE resolves it to a {@link com.caoccao.qjs4j.core.JSVarRef} when the
+ * function object is created.
+ *
+ * @param name    the variable name
+ * @param isLocal whether the index is a local of the enclosing function rather than one of its closure variables
+ * @param index   the local index or the closure variable index in the enclosing function
+ */
+public record ClosureVar(String name, boolean isLocal, int index) {
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.vm;
+
+/**
+ * An exception table entry of a function.
+ * A throw from an instruction in [startPc, endPc) resets the value stack of
+ * the frame to stackDepth values, pushes the exception and jumps to handlerPc.
+ * Entries of nested try statements come before the entries enclosing them.
+ *
+ * @param startPc    first instruction covered by the handler
+ * @param endPc      end of the covered range, exclusive
+ * @param handlerPc  start of the handler code
+ * @param stackDepth operand stack depth of the frame when the try statement starts
+ */
+public record ExceptionHandler(int startPc, int endPc, int handlerPc, int stackDepth) {
+    /**
+     * Check if the handler covers an instruction.
+     */
+    public boolean covers(int pc) {
+        return pc >= startPc && pc < endPc;
+    }
+}
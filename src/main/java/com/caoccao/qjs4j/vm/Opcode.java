@@ -20,7 +20,8 @@ import java.util.stream.Stream;
 
 /**
  * Enumeration of all JavaScript bytecode opcodes.
- * Total: 262 opcodes (144 original + 118 newly added from QuickJS).
+ * Total: 262 opcodes (144 original + 118 newly added from QuickJS),
+ * plus the superinstructions formed by {@link Bytecode} when it pre-decodes the instructions.
  * <p>
  * Note: This implementation uses custom opcode numbers that differ from QuickJS.
  * Comments indicate the corresponding QuickJS opcode number for reference.
@@ -331,11 +332,20 @@ public enum Opcode {
     IS_UNDEFINED(258, 1, 1, 1),          // Is undefined (QuickJS opcode 240)
     IS_NULL(259, 1, 1, 1),               // Is null (QuickJS opcode 241)
     TYPEOF_IS_UNDEFINED(260, 1, 1, 1),   // Typeof is undefined (QuickJS opcode 242)
-    TYPEOF_IS_FUNCTION(261, 1, 1, 1);    // Typeof is function (QuickJS opcode 243)
+    TYPEOF_IS_FUNCTION(261, 1, 1, 1),    // Typeof is function (QuickJS opcode 243)
 
-    // Total: 262 opcodes (144 original + 118 missing = 262 total)
+    // Superinstructions (262-266), formed when the bytecode is pre-decoded and never emitted.
+    // GET_LOC_GET_FIELD packs the local index and the offset of the GET_FIELD in its operand,
+    // its size is the size of the GET_FIELD. The compare and branch forms take the IF_FALSE offset.
+    GET_LOC_GET_FIELD(262, 5, 0, 1),     // Get local, then get field
+    LT_IF_FALSE(263, 6, 2, 0),           // Less than, then if false
+    LTE_IF_FALSE(264, 6, 2, 0),          // Less than or equal, then if false
+    GT_IF_FALSE(265, 6, 2, 0),           // Greater than, then if false
+    GTE_IF_FALSE(266, 6, 2, 0);          // Greater than or equal, then if false
 
-    private static final Opcode[] opcodes = new Opcode[262];  // Use fixed size to accommodate all opcode numbers
+    // Total: 262 opcodes (144 original + 118 missing = 262 total) and 5 superinstructions
+
+    private static final Opcode[] opcodes = new Opcode[267];  // Use fixed size to accommodate all opcode numbers
 
     static {
         Stream.of(values()).forEach(opcode -> opcodes[opcode.code] = opcode);
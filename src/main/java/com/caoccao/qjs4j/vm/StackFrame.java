@@ -20,23 +20,43 @@ import com.caoccao.qjs4j.core.JSBytecodeFunction;
 import com.caoccao.qjs4j.core.JSFunction;
 import com.caoccao.qjs4j.core.JSUndefined;
 import com.caoccao.qjs4j.core.JSValue;
+import com.caoccao.qjs4j.core.JSVarRef;
+
+import java.util.function.Consumer;
 
 /**
  * Represents a call frame (activation record) on the call stack.
+ * <p>
+ * Following QuickJS, frames run by the VM keep their locals in a window of the
+ * register file of the VM, and arguments passed by bytecode calls stay on the
+ * value stack of the caller. The arguments array is then only created on demand.
+ * Generator frames outlive the call that created them, so they own their locals
+ * and arguments.
+ * <p>
+ * Locals captured by closures get a {@link JSVarRef} on first capture. The
+ * references stay open while the frame is live and are closed when it exits,
+ * or by CLOSE_LOC when a loop iteration ends.
  */
 public final class StackFrame {
-    private final JSValue[] arguments;  // Original arguments passed to function
     private final StackFrame caller;
-    private final JSValue[] closureVars;
     private final JSFunction function;
     private final JSValue[] locals;
-    private final JSValue thisArg;
+    private final int localsOffset;  // Index of the first local in the locals array
+    private int argumentCount;
+    private int argumentOffset;  // Value stack index of the first argument, or -1 if held in the arguments array
+    private JSValue[] arguments;  // Original arguments passed to function
+    private int callerStackTop;  // Value stack top to restore when the frame exits
     private int programCounter;
+    private int stackBase;  // Value stack top when the frame was entered
+    private JSValue thisArg;
+    private JSVarRef[] varRefs;  // Open references to captured locals, allocated on first capture
 
+    /**
+     * Create a frame that owns its locals and arguments.
+     */
     public StackFrame(JSFunction function, JSValue thisArg, JSValue[] args, StackFrame caller) {
         this.function = function;
         this.thisArg = thisArg;
-        this.arguments = args;  // Store original arguments for arguments object
 
         // Allocate locals array based on function's local count
         // For bytecode functions, get local count from bytecode metadata
@@ -59,11 +79,71 @@ public final class StackFrame {
             this.locals = args;
         }
 
-        this.closureVars = new JSValue[0];
+        this.localsOffset = 0;
         this.programCounter = 0;
+        this.stackBase = 0;
+        this.caller = caller;
+        setArguments(args);
+    }
+
+    /**
+     * Create a frame whose locals live in a window of the register file.
+     * The caller sets the arguments and initializes the locals.
+     */
+    public StackFrame(JSFunction function, JSValue thisArg, StackFrame caller, JSValue[] locals, int localsOffset) {
+        this.function = function;
+        this.thisArg = thisArg;
         this.caller = caller;
+        this.locals = locals;
+        this.localsOffset = localsOffset;
+        this.programCounter = 0;
+        this.stackBase = 0;
+        this.argumentOffset = -1;
+    }
+
+    /**
+     * Close the reference to a local, so that the next capture of the local
+     * gets a fresh binding. Following QuickJS close_lexical_var.
+     */
+    public void closeVarRef(int localIndex) {
+        if (varRefs != null) {
+            JSVarRef varRef = varRefs[localIndex];
+            if (varRef != null) {
+                varRef.close();
+                varRefs[localIndex] = null;
+            }
+        }
     }
 
+    /**
+     * Close all the references to the locals when the frame exits.
+     * Following QuickJS close_var_refs.
+     */
+    public void closeVarRefs() {
+        if (varRefs != null) {
+            for (JSVarRef varRef : varRefs) {
+                if (varRef != null) {
+                    varRef.close();
+                }
+            }
+            varRefs = null;
+        }
+    }
+
+    public int getArgumentCount() {
+        return argumentCount;
+    }
+
+    /**
+     * Get the value stack index of the first argument, or -1 if the arguments are held in an array.
+     */
+    public int getArgumentOffset() {
+        return argumentOffset;
+    }
+
+    /**
+     * Get the arguments array, or null if the arguments are still on the value stack.
+     */
     public JSValue[] getArguments() {
         return arguments;
     }
@@ -72,6 +152,10 @@ public final class StackFrame {
         return caller;
     }
 
+    public int getCallerStackTop() {
+        return callerStackTop;
+    }
+
     public JSFunction getFunction() {
         return function;
     }
@@ -80,15 +164,85 @@ public final class StackFrame {
         return locals;
     }
 
+    public int getLocalsOffset() {
+        return localsOffset;
+    }
+
     public int getProgramCounter() {
         return programCounter;
     }
 
+    public int getStackBase() {
+        return stackBase;
+    }
+
     public JSValue getThisArg() {
         return thisArg;
     }
 
+    /**
+     * Get the open reference to a local, creating it on first capture.
+     */
+    public JSVarRef getVarRef(int localIndex) {
+        if (varRefs == null) {
+            varRefs = new JSVarRef[((JSBytecodeFunction) function).getBytecode().getLocalCount()];
+        }
+        JSVarRef varRef = varRefs[localIndex];
+        if (varRef == null) {
+            varRef = new JSVarRef(locals, localsOffset + localIndex);
+            varRefs[localIndex] = varRef;
+        }
+        return varRef;
+    }
+
+    /**
+     * Pass the function, the receiver, the arguments array and the locals to the mark function.
+     * Arguments still on the value stack are marked with it.
+     */
+    public void markValues(Consumer<JSValue> markFunction) {
+        markFunction.accept(function);
+        markFunction.accept(thisArg);
+        if (arguments != null) {
+            for (JSValue argument : arguments) {
+                markFunction.accept(argument);
+            }
+        }
+        if (function instanceof JSBytecodeFunction bytecodeFunction) {
+            int localsEnd = Math.min(locals.length, localsOffset + bytecodeFunction.getBytecode().getLocalCount());
+            for (int i = localsOffset; i < localsEnd; i++) {
+                markFunction.accept(locals[i]);
+            }
+        }
+    }
+
+    /**
+     * Set the arguments held on the value stack.
+     */
+    public void setArgumentWindow(int argumentOffset, int argumentCount) {
+        this.arguments = null;
+        this.argumentOffset = argumentOffset;
+        this.argumentCount = argumentCount;
+    }
+
+    public void setArguments(JSValue[] args) {
+        this.arguments = args;
+        this.argumentOffset = -1;
+        this.argumentCount = args.length;
+    }
+
+    public void setCallerStackTop(int callerStackTop) {
+        this.callerStackTop = callerStackTop;
+    }
+
     public void setProgramCounter(int pc) {
         this.programCounter = pc;
     }
+
+    public void setStackBase(int stackBase) {
+        this.stackBase = stackBase;
+    }
+
+    public void setThisArg(JSValue thisArg) {
+        this.thisArg = thisArg;
+    }
 }
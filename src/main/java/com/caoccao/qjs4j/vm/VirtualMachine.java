@@ -19,11 +19,16 @@ package com.caoccao.qjs4j.vm;
 import com.caoccao.qjs4j.builtins.BigIntConstructor;
 import com.caoccao.qjs4j.builtins.SymbolConstructor;
 import com.caoccao.qjs4j.core.*;
+import com.caoccao.qjs4j.exceptions.JSErrorException;
 import com.caoccao.qjs4j.exceptions.JSException;
+import com.caoccao.qjs4j.exceptions.JSInterruptedException;
 import com.caoccao.qjs4j.exceptions.JSVirtualMachineException;
+import com.caoccao.qjs4j.memory.HeapManager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The JavaScript virtual machine bytecode interpreter.
@@ -31,27 +36,78 @@ import java.util.List;
  */
 public final class VirtualMachine {
     private static final boolean DEBUG = false;
+    // Following QuickJS JS_INTERRUPT_COUNTER_INIT
+    private static final int INTERRUPT_COUNTER_INIT = 10000;
+    private static final int REGISTER_CHUNK_SIZE = 4096;
     private final JSContext context;
-    private final StringBuilder propertyAccessChain;  // Track last property access for better error messages
+    private final HeapManager heapManager;
     private final CallStack valueStack;
+    private int callDepth;  // Number of active frames, bounded by the max stack depth of the context
     private StackFrame currentFrame;
+    private long deadline;  // System.nanoTime() at which the running eval times out
+    private boolean hasDeadline;
+    private long instructionBudget;  // Backward jumps and calls the running eval may still take, negative if unlimited
+    private int interruptChecksDepth;  // Number of nested evals enforcing the limits of the outermost one
+    private int interruptCounter;  // Countdown of backward jumps and calls to the next interrupt poll
+    private int interruptCounterStart;  // Value the countdown started from, charged to the budget when it runs out
+    private JSInterruptedException interruption;  // Set once the running code is terminated
     private JSValue pendingException;
-    private boolean propertyAccessLock;  // When true, don't update lastPropertyAccess (during argument evaluation)
+    private int registerTop;
+    private JSValue[] registers;  // Register file chunk holding the locals of running frames
+    private JSValue[] spareRegisters;  // Last released register file chunk, reused when the current one is full
     private YieldResult yieldResult;  // Set when generator yields
-    private int yieldSkipCount;  // How many yields to skip (for resuming generators)
 
     public VirtualMachine(JSContext context) {
-        this.valueStack = new CallStack();
+        this.valueStack = new CallStack(context);
         this.context = context;
+        this.heapManager = context.getRuntime().getHeapManager();
+        this.callDepth = 0;
         this.currentFrame = null;
+        this.deadline = 0;
+        this.hasDeadline = false;
+        this.instructionBudget = -1;
+        this.interruptChecksDepth = 0;
+        this.interruptCounterStart = INTERRUPT_COUNTER_INIT;
+        this.interruptCounter = INTERRUPT_COUNTER_INIT;
+        this.interruption = null;
         this.pendingException = null;
-        this.propertyAccessChain = new StringBuilder();
-        this.propertyAccessLock = false;
+        this.registers = new JSValue[REGISTER_CHUNK_SIZE];
+        this.registerTop = 0;
+        this.spareRegisters = null;
         this.yieldResult = null;
-        this.yieldSkipCount = 0;
     }
 
     // Debug helper: dump top N values from the VM value stack
+    private void debugDisassemble(JSBytecodeFunction function) {
+        // Disassemble bytecode for diagnostics
+        try {
+            Bytecode bytecode = function.getBytecode();
+            System.out.println("=== DISASSEMBLY for function: " + function + " length=" + bytecode.getLength() + " locals=" + bytecode.getLocalCount());
+            int dpc = 0;
+            while (dpc < bytecode.getLength()) {
+                int code = bytecode.readOpcode(dpc);
+                Opcode dop = Opcode.fromInt(code);
+                String extra = "";
+                int size = dop.getSize();
+                if (size == 5) {
+                    int u32 = bytecode.readU32(dpc + 1);
+                    extra = " " + u32;
+                } else if (size == 3) {
+                    int u16 = bytecode.readU16(dpc + 1);
+                    extra = " " + u16;
+                } else if (size == 2) {
+                    int u8 = bytecode.readU8(dpc + 1);
+                    extra = " " + u8;
+                }
+                System.out.println(String.format("%04d: %s%s", dpc, dop.name(), extra));
+                dpc += size;
+            }
+            System.out.println("=== END DISASSEMBLY");
+        } catch (Throwable t) {
+            // ignore disassembly errors
+        }
+    }
+
     private void debugDumpStack(String tag, int pc, int n) {
         if (!DEBUG) {
             return;
@@ -72,6 +128,34 @@ public final class VirtualMachine {
         System.out.print(sb.toString());
     }
 
+    /**
+     * Start enforcing the instruction budget and the execution timeout of an eval.
+     * Nested evals run under the limits of the outermost one, so they cannot renew them.
+     * Every call must be paired with {@link #endInterruptChecks()}.
+     *
+     * @param instructionBudget the number of backward jumps and calls allowed, 0 for no limit
+     * @param timeoutMillis     the wall-clock timeout in milliseconds, 0 for no limit
+     */
+    public void beginInterruptChecks(long instructionBudget, long timeoutMillis) {
+        if (interruptChecksDepth++ > 0) {
+            return;
+        }
+        interruption = null;
+        this.instructionBudget = instructionBudget > 0 ? instructionBudget : -1;
+        hasDeadline = timeoutMillis > 0;
+        deadline = hasDeadline ? System.nanoTime() + timeoutMillis * 1_000_000L : 0;
+        resetInterruptCounter();
+    }
+
+    /**
+     * Throw the termination of the running code again if native code swallowed it.
+     */
+    public void checkInterrupted() {
+        if (interruption != null) {
+            throw interruption;
+        }
+    }
+
     /**
      * Clear the pending exception in the VM.
      * This is needed when an async function catches an exception.
@@ -80,6 +164,40 @@ public final class VirtualMachine {
         this.pendingException = null;
     }
 
+    /**
+     * Close the variable references of the frames left by an exception, from the
+     * throwing frame up to the entry frame, before their register windows are reused.
+     */
+    private void closeVarRefs(StackFrame frame, StackFrame entryFrame) {
+        for (StackFrame exitingFrame = frame; exitingFrame != null; exitingFrame = exitingFrame.getCaller()) {
+            exitingFrame.closeVarRefs();
+            if (exitingFrame == entryFrame) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Create a frame whose locals take the next window of the register file.
+     * The caller sets the arguments and then calls {@link #loadArguments(StackFrame)}.
+     */
+    private StackFrame createFrame(JSBytecodeFunction function, JSValue thisArg, StackFrame caller) {
+        int localCount = function.getBytecode().getLocalCount();
+        if (registerTop + localCount > registers.length) {
+            // Continue in another chunk, frames in the full chunk keep their windows
+            if (spareRegisters != null && spareRegisters.length >= localCount) {
+                registers = spareRegisters;
+                spareRegisters = null;
+            } else {
+                registers = new JSValue[Math.max(REGISTER_CHUNK_SIZE, localCount)];
+            }
+            registerTop = 0;
+        }
+        StackFrame frame = new StackFrame(function, thisArg, caller, registers, registerTop);
+        registerTop += localCount;
+        return frame;
+    }
+
     /**
      * Create special runtime objects based on object type.
      * Based on QuickJS OP_SPECIAL_OBJECT opcode (quickjs.c).
@@ -107,7 +225,7 @@ public final class VirtualMachine {
                 }
 
                 // Create non-mapped arguments object (strict mode or modern)
-                JSValue[] args = targetFrame.getArguments();
+                JSValue[] args = getArguments(targetFrame);
                 boolean isStrict = targetFunc instanceof JSBytecodeFunction func && func.isStrict();
                 // Pass the target function as callee for non-strict mode
                 return new JSArguments(context, args, isStrict, isStrict ? null : targetFunc);
@@ -116,7 +234,7 @@ public final class VirtualMachine {
                 // Legacy mapped arguments (shares with function parameters)
                 // For now, treat same as normal arguments
                 // TODO: Implement parameter mapping for non-strict mode
-                JSValue[] mappedArgs = currentFrame.getArguments();
+                JSValue[] mappedArgs = getArguments(currentFrame);
                 JSFunction mappedFunc = currentFrame.getFunction();
                 return new JSArguments(context, mappedArgs, false, mappedFunc);
 
@@ -149,117 +267,234 @@ public final class VirtualMachine {
         }
     }
 
+    /**
+     * Stop enforcing the limits started by the paired {@link #beginInterruptChecks(long, long)}.
+     */
+    public void endInterruptChecks() {
+        if (--interruptChecksDepth > 0) {
+            return;
+        }
+        interruption = null;
+        instructionBudget = -1;
+        hasDeadline = false;
+        deadline = 0;
+        resetInterruptCounter();
+    }
+
     /**
      * Execute a bytecode function.
      */
     public JSValue execute(JSBytecodeFunction function, JSValue thisArg, JSValue[] args) {
+        JSValue[] savedRegisters = registers;
+        int savedRegisterTop = registerTop;
+        try {
+            StackFrame frame = createFrame(function, thisArg, currentFrame);
+            frame.setArguments(args);
+            loadArguments(frame);
+            return execute(frame, null, null, false);
+        } finally {
+            registers = savedRegisters;
+            registerTop = savedRegisterTop;
+        }
+    }
+
+    /**
+     * Execute a frame from the start, or resume a suspended generator frame.
+     * <p>
+     * Following QuickJS JS_CallInternal(), calls from bytecode to plain
+     * bytecode functions push a frame and continue in the same dispatch loop,
+     * so only native code re-enters this method. The call depth is bounded by
+     * the max stack depth of the context rather than by the Java thread stack.
+     *
+     * @param frame          the frame to run
+     * @param generatorState the generator state if the frame belongs to a generator, otherwise null
+     * @param resumeValue    the value sent by next() or thrown by throw() when resuming
+     * @param resumeThrow    whether the resume value is thrown at the yield point
+     */
+    private JSValue execute(StackFrame frame, GeneratorState generatorState, JSValue resumeValue, boolean resumeThrow) {
+        int savedCallDepth = callDepth;
+        if (callDepth >= context.getMaxStackDepth()) {
+            throw new JSVirtualMachineException(context.throwRangeError("Maximum call stack size exceeded"));
+        }
+        if (--interruptCounter <= 0) {
+            pollInterrupts();
+        }
+        callDepth++;
+        // The outermost call charges the allocations of the code to the heap of the runtime
+        HeapManager savedHeapManager = savedCallDepth == 0 ? HeapManager.enter(heapManager) : heapManager;
+        // Frames left by an exception release their register windows here
+        JSValue[] savedRegisters = registers;
+        int savedRegisterTop = registerTop;
+        try {
+            return executeFrames(frame, generatorState, resumeValue, resumeThrow);
+        } finally {
+            if (savedCallDepth == 0) {
+                HeapManager.enter(savedHeapManager);
+                if (interruptChecksDepth == 0) {
+                    // A termination outside of eval ends with the outermost call
+                    interruption = null;
+                }
+            }
+            callDepth = savedCallDepth;
+            registers = savedRegisters;
+            registerTop = savedRegisterTop;
+        }
+    }
+
+    private JSValue executeFrames(StackFrame frame, GeneratorState generatorState, JSValue resumeValue, boolean resumeThrow) {
         // Save the current value stack position
         // This ensures that nested function calls don't corrupt the caller's stack
         int savedStackTop = valueStack.getStackTop();
-
-        // Save and set strict mode based on function
-        // Following QuickJS: each function has its own strict mode flag
+        // Strict mode is set per function when a frame is loaded and restored on exit
         boolean savedStrictMode = context.isStrictMode();
-        if (function.isStrict()) {
-            context.enterStrictMode();
-        } else {
-            context.exitStrictMode();
-        }
 
-        // Create new stack frame
-        StackFrame frame = new StackFrame(function, thisArg, args, currentFrame);
+        StackFrame entryFrame = frame;
         StackFrame previousFrame = currentFrame;
         currentFrame = frame;
+        frame.setStackBase(savedStackTop);
+        frame.setCallerStackTop(savedStackTop);
+        frame.setProgramCounter(0);
 
         try {
-            Bytecode bytecode = function.getBytecode();
-            // Disassemble bytecode for diagnostics
-            try {
-                if (DEBUG) {
-                    System.out.println("=== DISASSEMBLY for function: " + function + " length=" + bytecode.getLength() + " locals=" + bytecode.getLocalCount());
-                    int dpc = 0;
-                    while (dpc < bytecode.getLength()) {
-                        int code = bytecode.readOpcode(dpc);
-                        Opcode dop = Opcode.fromInt(code);
-                        String extra = "";
-                        int size = dop.getSize();
-                        if (size == 5) {
-                            int u32 = bytecode.readU32(dpc + 1);
-                            extra = " " + u32;
-                        } else if (size == 3) {
-                            int u16 = bytecode.readU16(dpc + 1);
-                            extra = " " + u16;
-                        } else if (size == 2) {
-                            int u8 = bytecode.readU8(dpc + 1);
-                            extra = " " + u8;
-                        }
-                        System.out.println(String.format("%04d: %s%s", dpc, dop.name(), extra));
-                        dpc += size;
-                    }
-                    System.out.println("=== END DISASSEMBLY");
+            if (generatorState != null && generatorState.getSavedStack() != null) {
+                // Resume after the yield with the saved operand stack
+                frame.setProgramCounter(generatorState.getProgramCounter());
+                valueStack.pushAll(generatorState.getSavedStack());
+                if (resumeThrow) {
+                    pendingException = resumeValue;
+                    context.setPendingException(resumeValue);
+                } else {
+                    // The sent value is the result of the yield expression
+                    valueStack.push(resumeValue);
                 }
-            } catch (Throwable t) {
-                // ignore disassembly errors
             }
-            int pc = 0;
 
-            // Main execution loop
-            while (true) {
-                // Keep current frame program counter updated for diagnostics
-                if (currentFrame != null) {
-                    try {
-                        currentFrame.setProgramCounter(pc);
-                    } catch (Throwable ignored) {
-                        // ignore
-                    }
-                }
-                if (pendingException != null) {
-                    // QuickJS-style exception handling: unwind stack looking for catch offset
-                    JSValue exception = pendingException;
-                    pendingException = null;
-
-                    // Unwind the stack looking for a CatchOffset marker
-                    // Only unwind within the current function's stack frame (QuickJS: while (sp > stack_buf))
-                    boolean foundHandler = false;
-                    while (valueStack.getStackTop() > savedStackTop) {
-                        JSStackValue val = valueStack.popStackValue();
-                        if (val instanceof JSCatchOffset catchOffset) {
-                            // Found catch handler - push exception and jump to it
-                            valueStack.push(exception);
-                            pc = catchOffset.offset();
-                            foundHandler = true;
-                            context.clearPendingException();
-                            break;
-                        }
-                    }
+            return executeFramesLoop(entryFrame, previousFrame, savedStackTop, savedStrictMode, generatorState);
+        } catch (JSVirtualMachineException | JSInterruptedException e) {
+            // Restore stack and strict mode on exception, a termination skips the JavaScript handlers
+            closeVarRefs(currentFrame, entryFrame);
+            valueStack.setStackTop(savedStackTop);
+            currentFrame = previousFrame;
+            if (savedStrictMode) {
+                context.enterStrictMode();
+            } else {
+                context.exitStrictMode();
+            }
+            throw e;
+        } catch (Exception e) {
+            // Restore stack and strict mode on exception
+            closeVarRefs(currentFrame, entryFrame);
+            valueStack.setStackTop(savedStackTop);
+            currentFrame = previousFrame;
+            if (savedStrictMode) {
+                context.enterStrictMode();
+            } else {
+                context.exitStrictMode();
+            }
+            throw new JSVirtualMachineException("VM error: " + e.getMessage(), e);
+        }
+    }
 
-                    if (!foundHandler) {
-                        // No handler found - propagate exception
-                        currentFrame = previousFrame;
-                        if (exception instanceof JSError jsError) {
-                            throw new JSVirtualMachineException(jsError);
-                        }
-                        // Safely convert exception to string without calling JavaScript methods
-                        // to avoid issues when already in exception state
-                        String exceptionMessage = safeExceptionToString(context, exception);
-                        throw new JSVirtualMachineException("Unhandled exception: " + exceptionMessage);
-                    }
+    /**
+     * Run the dispatch loop from the entry frame until it returns or yields.
+     * An exception that no handler of the entry frame or the frames it called catches
+     * is thrown to {@link #executeFrames}, which restores the state of the caller.
+     */
+    private JSValue executeFramesLoop(StackFrame entryFrame, StackFrame previousFrame, int savedStackTop,
+                                      boolean savedStrictMode, GeneratorState generatorState) {
+        StackFrame frame = entryFrame;
+        // State of the running frame, reloaded when a call or a return switches frames
+        StackFrame loadedFrame = null;
+        JSBytecodeFunction function = null;
+        Bytecode bytecode = null;
+        PropertyKey[] atomKeys = null;
+        Opcode[] opcodes = null;
+        int[] operands = null;
+        JSValue[] locals = null;
+        int localsOffset = 0;
+        JSVarRef[] varRefs = null;
+        int stackBase = 0;
+        int pc = 0;
+        // Program counter of the instruction that raised the pending exception,
+        // a generator resumed by throw() raises it at the yield
+        int throwPc = frame.getProgramCounter() - 1;
+
+        // Main execution loop
+        while (true) {
+            if (frame != loadedFrame) {
+                loadedFrame = frame;
+                function = (JSBytecodeFunction) frame.getFunction();
+                bytecode = function.getBytecode();
+                atomKeys = bytecode.getAtomKeys(context.getRuntime());
+                opcodes = bytecode.getOpcodes();
+                operands = bytecode.getOperands();
+                locals = frame.getLocals();
+                localsOffset = frame.getLocalsOffset();
+                varRefs = function.getVarRefs();
+                stackBase = frame.getStackBase();
+                pc = frame.getProgramCounter();
+                // Following QuickJS: each function has its own strict mode flag
+                if (function.isStrict()) {
+                    context.enterStrictMode();
+                } else {
+                    context.exitStrictMode();
+                }
+                if (DEBUG) {
+                    debugDisassemble(function);
+                }
+            }
+            if (pendingException != null) {
+                // Following QuickJS, the handler is looked up in the exception table of the
+                // function by the program counter of the throwing instruction
+                JSValue exception = pendingException;
+                pendingException = null;
+
+                ExceptionHandler handler = bytecode.findExceptionHandler(throwPc);
+                if (handler != null) {
+                    // Drop the values pushed inside the try block, then jump to the handler with the exception
+                    valueStack.setStackTop(stackBase + handler.stackDepth());
+                    valueStack.push(exception);
+                    pc = handler.handlerPc();
+                    context.clearPendingException();
+                    continue;
+                }
 
-                    // Continue execution at catch handler
+                if (frame != entryFrame) {
+                    // No handler in this frame - continue unwinding in the caller at its call instruction
+                    valueStack.setStackTop(frame.getCallerStackTop());
+                    releaseFrame(frame);
+                    frame = frame.getCaller();
+                    currentFrame = frame;
+                    callDepth--;
+                    throwPc = frame.getProgramCounter() - 1;
+                    pendingException = exception;
                     continue;
                 }
 
-                int opcode = bytecode.readOpcode(pc);
-                Opcode op = Opcode.fromInt(opcode);
+                // No handler found - propagate exception, executeFrames() restores the caller frame
+                if (exception instanceof JSError jsError) {
+                    throw new JSVirtualMachineException(jsError);
+                }
+                // Safely convert exception to string without calling JavaScript methods
+                // to avoid issues when already in exception state
+                String exceptionMessage = safeExceptionToString(context, exception);
+                throw new JSVirtualMachineException("Unhandled exception: " + exceptionMessage);
+            }
+
+            Opcode op = opcodes[pc];
+            throwPc = pc;
+            try {
                 switch (op) {
                     // ==================== Constants and Literals ====================
                     case INVALID -> throw new JSVirtualMachineException("Invalid opcode at PC " + pc);
-                    case PUSH_I32 -> {
-                        valueStack.push(new JSNumber(bytecode.readI32(pc + 1)));
+                    case PUSH_I32, PUSH_I16, PUSH_I8, PUSH_MINUS1, PUSH_0, PUSH_1, PUSH_2, PUSH_3, PUSH_4, PUSH_5,
+                         PUSH_6, PUSH_7 -> {
+                        // The short forms get their value from the pre-decoded operand
+                        valueStack.push(JSNumber.valueOf(operands[pc]));
                         pc += op.getSize();
                     }
                     case PUSH_CONST -> {
-                        int constIndex = bytecode.readU32(pc + 1);
+                        int constIndex = operands[pc];
                         JSValue constValue = bytecode.getConstants()[constIndex];
 
                         // Initialize prototype chain for functions
@@ -280,7 +515,7 @@ public final class VirtualMachine {
                         // Create a unique private symbol for a private class field
                         // Reads: atom (field name)
                         // Result: pushes new symbol onto stack
-                        int fieldNameAtom = bytecode.readU32(pc + 1);
+                        int fieldNameAtom = operands[pc];
                         String fieldName = bytecode.getAtoms()[fieldNameAtom];
 
                         // Create a unique symbol with the field name as description
@@ -291,15 +526,20 @@ public final class VirtualMachine {
                         pc += op.getSize();
                     }
                     case FCLOSURE -> {
-                        // Load function from constant pool and create closure
-                        int funcIndex = bytecode.readU32(pc + 1);
-                        JSValue funcValue = bytecode.getConstants()[funcIndex];
-                        // Initialize the function's prototype chain to inherit from Function.prototype
-                        if (funcValue instanceof JSFunction func) {
-                            func.initializePrototypeChain(context);
+                        // Following QuickJS js_closure2(): bind the captured variables to a new function
+                        JSBytecodeFunction template = (JSBytecodeFunction) bytecode.getConstants()[operands[pc]];
+                        ClosureVar[] closureVars = template.getBytecode().getClosureVars();
+                        JSVarRef[] closureVarRefs = new JSVarRef[closureVars.length];
+                        for (int i = 0; i < closureVars.length; i++) {
+                            ClosureVar closureVar = closureVars[i];
+                            closureVarRefs[i] = closureVar.isLocal()
+                                    ? frame.getVarRef(closureVar.index())
+                                    : varRefs[closureVar.index()];
                         }
-                        // The function is already a JSBytecodeFunction, just push it
-                        valueStack.push(funcValue);
+                        JSBytecodeFunction closure = template.createClosure(closureVarRefs);
+                        // Initialize the function's prototype chain to inherit from Function.prototype
+                        closure.initializePrototypeChain(context);
+                        valueStack.push(closure);
                         pc += op.getSize();
                     }
                     case UNDEFINED -> {
@@ -325,7 +565,7 @@ public final class VirtualMachine {
                     case SPECIAL_OBJECT -> {
                         // SPECIAL_OBJECT creates special runtime objects
                         // Opcode format: SPECIAL_OBJECT type (1 byte for opcode + 1 byte for type)
-                        int objectType = bytecode.readU8(pc + 1);
+                        int objectType = operands[pc];
                         JSValue specialObj = createSpecialObject(objectType, currentFrame);
                         valueStack.push(specialObj);
                         pc += op.getSize();
@@ -335,8 +575,8 @@ public final class VirtualMachine {
                         // Used at the start of functions with rest parameters (...args)
                         // Opcode format: REST first (1 byte for opcode + 2 bytes for u16)
                         // Reads the index of the first rest parameter
-                        int first = bytecode.readU16(pc + 1);
-                        JSValue[] funcArgs = currentFrame.getArguments();
+                        int first = operands[pc];
+                        JSValue[] funcArgs = getArguments(currentFrame);
                         int argc = funcArgs.length;
 
                         // Determine how many arguments to include in the rest array
@@ -430,9 +670,6 @@ public final class VirtualMachine {
                         JSValue v2 = valueStack.pop();
                         valueStack.push(v1);
                         valueStack.push(v2);
-                        // After SWAP in a method call, we're evaluating arguments
-                        // Lock property access tracking to preserve the callee's property chain
-                        propertyAccessLock = true;
                         pc += op.getSize();
                     }
                     case ROT3L -> {
@@ -645,122 +882,88 @@ public final class VirtualMachine {
 
                     // ==================== Variable Access ====================
                     case GET_VAR -> {
-                        int getVarAtom = bytecode.readU32(pc + 1);
-                        String getVarName = bytecode.getAtoms()[getVarAtom];
-                        JSValue varValue = context.getGlobalObject().get(PropertyKey.fromString(getVarName));
-                        // Start tracking property access from variable name (unless locked)
-                        if (!propertyAccessLock) {
-                            resetPropertyAccessTracking();
-                            propertyAccessChain.append(getVarName);
-                        }
-                        // Diagnostic: log GET_VAR name and value
-                        if (DEBUG) {
-                            System.out.println("GET_VAR " + getVarName + " -> " + (varValue == null ? "null" : varValue.getClass().getSimpleName() + "(" + varValue + ")"));
-                        }
+                        int getVarAtom = operands[pc];
+                        JSValue varValue = bytecode.getPropertyCache(pc, atomKeys[getVarAtom]).get(context.getGlobalObject(), null);
                         valueStack.push(varValue);
                         pc += op.getSize();
                     }
                     case PUT_VAR -> {
-                        int putVarAtom = bytecode.readU32(pc + 1);
-                        String putVarName = bytecode.getAtoms()[putVarAtom];
+                        int putVarAtom = operands[pc];
                         JSValue putValue = valueStack.pop();
-                        context.getGlobalObject().set(PropertyKey.fromString(putVarName), putValue);
-                        // Diagnostic: log PUT_VAR name and value class for debugging
-                        if (DEBUG) {
-                            System.out.println("PUT_VAR " + putVarName + " <- " + (putValue == null ? "null" : putValue.getClass().getSimpleName() + "(" + putValue + ")"));
-                        }
+                        bytecode.getPropertyCache(pc, atomKeys[putVarAtom]).set(context.getGlobalObject(), putValue, null);
                         pc += op.getSize();
                     }
                     case SET_VAR -> {
-                        int setVarAtom = bytecode.readU32(pc + 1);
-                        String setVarName = bytecode.getAtoms()[setVarAtom];
+                        int setVarAtom = operands[pc];
                         JSValue setValue = valueStack.peek(0);
-                        context.getGlobalObject().set(PropertyKey.fromString(setVarName), setValue);
-                        if (DEBUG) {
-                            System.out.println("SET_VAR " + setVarName + " <- " + (setValue == null ? "null" : setValue.getClass().getSimpleName() + "(" + setValue + ")"));
-                        }
+                        bytecode.getPropertyCache(pc, atomKeys[setVarAtom]).set(context.getGlobalObject(), setValue, null);
                         pc += op.getSize();
                     }
-                    case GET_LOCAL -> {
-                        int getLocalIndex = bytecode.readU16(pc + 1);
-                        JSValue localValue = currentFrame.getLocals()[getLocalIndex];
+                    case GET_LOCAL, GET_LOC8, GET_LOC0, GET_LOC1, GET_LOC2, GET_LOC3 -> {
+                        int getLocalIndex = operands[pc];
+                        JSValue localValue = locals[localsOffset + getLocalIndex];
                         valueStack.push(localValue);
                         pc += op.getSize();
                     }
-                    case PUT_LOCAL -> {
-                        int putLocalIndex = bytecode.readU16(pc + 1);
-                        debugDumpStack("BEFORE_PUT_LOCAL", pc, 8);
-                        JSValue value = valueStack.pop();
-                        currentFrame.getLocals()[putLocalIndex] = value;
-                        // Diagnostic: log local write for debugging
-                        if (DEBUG) {
-                            System.out.println("PUT_LOCAL idx=" + putLocalIndex + " <- " + (value == null ? "null" : value.getClass().getSimpleName() + "(" + value + ")"));
-                        }
-                        debugDumpStack("AFTER_PUT_LOCAL", pc, 8);
+                    case PUT_LOCAL, PUT_LOC8, PUT_LOC0, PUT_LOC1, PUT_LOC2, PUT_LOC3 -> {
+                        int putLocalIndex = operands[pc];
+                        locals[localsOffset + putLocalIndex] = valueStack.pop();
+                        pc += op.getSize();
+                    }
+                    case SET_LOCAL, SET_LOC8, SET_LOC0, SET_LOC1, SET_LOC2, SET_LOC3 -> {
+                        int setLocalIndex = operands[pc];
+                        locals[localsOffset + setLocalIndex] = valueStack.peek(0);
+                        pc += op.getSize();
+                    }
+                    case GET_VAR_REF, GET_VAR_REF0, GET_VAR_REF1, GET_VAR_REF2, GET_VAR_REF3 -> {
+                        valueStack.push(varRefs[operands[pc]].get());
+                        pc += op.getSize();
+                    }
+                    case PUT_VAR_REF, PUT_VAR_REF0, PUT_VAR_REF1, PUT_VAR_REF2, PUT_VAR_REF3 -> {
+                        varRefs[operands[pc]].set(valueStack.pop());
                         pc += op.getSize();
                     }
-                    case SET_LOCAL -> {
-                        int setLocalIndex = bytecode.readU16(pc + 1);
-                        currentFrame.getLocals()[setLocalIndex] = valueStack.peek(0);
+                    case SET_VAR_REF, SET_VAR_REF0, SET_VAR_REF1, SET_VAR_REF2, SET_VAR_REF3 -> {
+                        varRefs[operands[pc]].set(valueStack.peek(0));
+                        pc += op.getSize();
+                    }
+                    case CLOSE_LOC -> {
+                        // The closures of this iteration keep their bindings, the next iteration gets new ones
+                        frame.closeVarRef(operands[pc]);
+                        pc += op.getSize();
+                    }
+                    case INC_LOC, DEC_LOC -> {
+                        // Following QuickJS inc_loc / dec_loc: update a local whose value is not used
+                        int localIndex = localsOffset + operands[pc];
+                        JSValue localValue = locals[localIndex];
+                        double number = localValue instanceof JSNumber jsNumber
+                                ? jsNumber.value()
+                                : JSTypeConversions.toNumber(context, localValue).value();
+                        locals[localIndex] = JSNumber.valueOf(op == Opcode.INC_LOC ? number + 1 : number - 1);
                         pc += op.getSize();
                     }
 
                     // ==================== Property Access ====================
                     case GET_FIELD -> {
-                        int getFieldAtom = bytecode.readU32(pc + 1);
-                        String fieldName = bytecode.getAtoms()[getFieldAtom];
-                        JSValue obj = valueStack.pop();
-
-                        // Auto-box primitives to access their prototype methods
-                        JSObject targetObj = toObject(obj);
-                        if (targetObj != null) {
-                            JSValue result = targetObj.get(PropertyKey.fromString(fieldName), context);
-                            if ("x".equals(fieldName)) {
-                                try {
-                                    boolean own = targetObj.hasOwnProperty(fieldName);
-                                    System.out.println("DEBUG_GET_FIELD field='x' targetObjClass=" + targetObj.getClass().getSimpleName() + " own=" + own + " value=" + result);
-                                } catch (Throwable t) {
-                                    // ignore diagnostics
-                                }
-                            }
-                            // Check if getter threw an exception
-                            if (context.hasPendingException()) {
-                                pendingException = context.getPendingException();
-                                context.clearPendingException();
-                                valueStack.push(JSUndefined.INSTANCE);
-                            } else {
-                                // Track property access for better error messages (unless locked)
-                                if (!propertyAccessLock) {
-                                    if (!(propertyAccessChain.length() == 0)) {
-                                        propertyAccessChain.append('.');
-                                    }
-                                    propertyAccessChain.append(fieldName);
-                                }
-                                valueStack.push(result);
-                            }
-                        } else {
-                            resetPropertyAccessTracking();
-                            valueStack.push(JSUndefined.INSTANCE);
-                        }
+                        int getFieldAtom = operands[pc];
+                        handleGetField(valueStack.pop(), bytecode.getPropertyCache(pc, atomKeys[getFieldAtom]));
                         pc += op.getSize();
                     }
+                    case GET_LOC_GET_FIELD -> {
+                        // The operand packs the offset of the GET_FIELD and the local index
+                        int operand = operands[pc];
+                        int fieldPc = pc + (operand >>> 16);
+                        JSValue obj = locals[localsOffset + (operand & 0xFFFF)];
+                        handleGetField(obj, bytecode.getPropertyCache(fieldPc, atomKeys[operands[fieldPc]]));
+                        pc = fieldPc + op.getSize();
+                    }
                     case PUT_FIELD -> {
-                        int putFieldAtom = bytecode.readU32(pc + 1);
-                        String putFieldName = bytecode.getAtoms()[putFieldAtom];
+                        int putFieldAtom = operands[pc];
                         JSValue putFieldObj = valueStack.pop();
                         // The value should be on top of the stack.
                         JSValue putFieldValue = valueStack.peek(0);
                         if (putFieldObj instanceof JSObject jsObj) {
-                            try {
-                                JSValue before = jsObj.get(putFieldName);
-                                jsObj.set(PropertyKey.fromString(putFieldName), putFieldValue, context);
-                                JSValue after = jsObj.get(putFieldName);
-                                if ("x".equals(putFieldName)) {
-                                    System.out.println("DEBUG_PUT_FIELD field='x' objClass=" + jsObj.getClass().getSimpleName() + " before=" + before + " after=" + after + " valueSet=" + putFieldValue);
-                                }
-                            } catch (Throwable t) {
-                                // ignore diagnostics
-                            }
+                            bytecode.getPropertyCache(pc, atomKeys[putFieldAtom]).set(jsObj, putFieldValue, context);
                             // Check if setter threw an exception
                             if (context.hasPendingException()) {
                                 pendingException = context.getPendingException();
@@ -784,28 +987,9 @@ public final class VirtualMachine {
                                 context.clearPendingException();
                                 valueStack.push(JSUndefined.INSTANCE);
                             } else {
-                                // Track property access for better error messages (unless locked)
-                                if (!propertyAccessLock) {
-                                    if (index instanceof JSString jsString) {
-                                        String propertyName = jsString.value();
-                                        if (!(propertyAccessChain.length() == 0)) {
-                                            propertyAccessChain.append('.');
-                                        }
-                                        propertyAccessChain.append(propertyName);
-                                    } else if (index instanceof JSNumber jsNumber) {
-                                        String propertyName = JSTypeConversions.toString(context, jsNumber).value();
-                                        if (!(propertyAccessChain.length() == 0)) {
-                                            propertyAccessChain.append('.');
-                                        }
-                                        propertyAccessChain.append(propertyName);
-                                    } else if (index instanceof JSSymbol jsSymbol) {
-                                        propertyAccessChain.append("[Symbol.").append(jsSymbol.getDescription()).append("]");
-                                    }
-                                }
                                 valueStack.push(result);
                             }
                         } else {
-                            resetPropertyAccessTracking();
                             valueStack.push(JSUndefined.INSTANCE);
                         }
                         pc += op.getSize();
@@ -834,55 +1018,126 @@ public final class VirtualMachine {
                         JSValue condition = valueStack.pop();
                         boolean isFalsy = JSTypeConversions.toBoolean(condition) == JSBoolean.FALSE;
                         if (isFalsy) {
-                            int offset = bytecode.readI32(pc + 1);
+                            int offset = operands[pc];
+                            if (offset < 0 && --interruptCounter <= 0) {
+                                pollInterrupts();
+                            }
                             pc += op.getSize() + offset;
                         } else {
                             pc += op.getSize();
                         }
                     }
+                    case LT_IF_FALSE, LTE_IF_FALSE, GT_IF_FALSE, GTE_IF_FALSE -> {
+                        boolean isTrue;
+                        if (valueStack.peek(1) instanceof JSNumber leftNumber
+                                && valueStack.peek(0) instanceof JSNumber rightNumber) {
+                            valueStack.drop(2);
+                            double left = leftNumber.value();
+                            double right = rightNumber.value();
+                            isTrue = switch (op) {
+                                case LT_IF_FALSE -> left < right;
+                                case LTE_IF_FALSE -> left <= right;
+                                case GT_IF_FALSE -> left > right;
+                                default -> left >= right;
+                            };
+                        } else {
+                            switch (op) {
+                                case LT_IF_FALSE -> handleLt();
+                                case LTE_IF_FALSE -> handleLte();
+                                case GT_IF_FALSE -> handleGt();
+                                default -> handleGte();
+                            }
+                            isTrue = valueStack.pop() == JSBoolean.TRUE;
+                        }
+                        if (isTrue) {
+                            pc += op.getSize();
+                        } else {
+                            int offset = operands[pc];
+                            if (offset < 0 && --interruptCounter <= 0) {
+                                pollInterrupts();
+                            }
+                            pc += op.getSize() + offset;
+                        }
+                    }
                     case IF_TRUE -> {
                         JSValue trueCondition = valueStack.pop();
                         boolean isTruthy = JSTypeConversions.toBoolean(trueCondition) == JSBoolean.TRUE;
                         if (isTruthy) {
-                            int offset = bytecode.readI32(pc + 1);
+                            int offset = operands[pc];
+                            if (offset < 0 && --interruptCounter <= 0) {
+                                pollInterrupts();
+                            }
                             pc += op.getSize() + offset;
                         } else {
                             pc += op.getSize();
                         }
                     }
                     case GOTO -> {
-                        int gotoOffset = bytecode.readI32(pc + 1);
+                        int gotoOffset = operands[pc];
+                        // Following QuickJS, loops poll for interrupts on their backward jumps
+                        if (gotoOffset < 0 && --interruptCounter <= 0) {
+                            pollInterrupts();
+                        }
                         pc += op.getSize() + gotoOffset;
                     }
-                    case RETURN -> {
-                        JSValue returnValue = valueStack.pop();
-                        // Restore stack and strict mode before returning
-                        valueStack.setStackTop(savedStackTop);
-                        currentFrame = previousFrame;
-                        if (savedStrictMode) {
-                            context.enterStrictMode();
-                        } else {
-                            context.exitStrictMode();
+                    case RETURN, RETURN_UNDEF, RETURN_ASYNC, TAIL_CALL -> {
+                        if (op == Opcode.TAIL_CALL) {
+                            // Following QuickJS OP_tail_call: call and return, the callee replaces this frame
+                            frame.setProgramCounter(pc);
+                            if (--interruptCounter <= 0) {
+                                pollInterrupts();
+                            }
+                            int argCount = operands[pc];
+                            if (valueStack.peek(argCount + 1) instanceof JSBytecodeFunction callee
+                                    && !callee.isAsync() && !callee.isGenerator()) {
+                                JSValue receiver = valueStack.peek(argCount);
+                                // The callee, receiver and arguments replace those of this frame
+                                int callerStackTop = frame.getCallerStackTop();
+                                valueStack.moveTop(argCount + 2, callerStackTop);
+                                if (callee == function) {
+                                    // A self tail call re-enters this frame and keeps its register window
+                                    frame.closeVarRefs();
+                                    frame.setThisArg(receiver);
+                                    frame.setArgumentWindow(callerStackTop + 2, argCount);
+                                    loadArguments(frame);
+                                    stackBase = valueStack.getStackTop();
+                                    frame.setStackBase(stackBase);
+                                    pc = 0;
+                                    continue;
+                                }
+                                releaseFrame(frame);
+                                StackFrame calleeFrame = createFrame(callee, receiver, frame.getCaller());
+                                calleeFrame.setArgumentWindow(callerStackTop + 2, argCount);
+                                calleeFrame.setCallerStackTop(callerStackTop);
+                                calleeFrame.setStackBase(valueStack.getStackTop());
+                                loadArguments(calleeFrame);
+                                if (frame == entryFrame) {
+                                    entryFrame = calleeFrame;
+                                }
+                                frame = calleeFrame;
+                                currentFrame = frame;
+                                continue;
+                            }
+                            // Other callees run as a regular call whose result is returned below
+                            handleCall(argCount);
+                            if (pendingException != null) {
+                                continue;
+                            }
                         }
-                        return returnValue;
-                    }
-                    case RETURN_UNDEF -> {
-                        // Restore stack and strict mode before returning
-                        valueStack.setStackTop(savedStackTop);
-                        currentFrame = previousFrame;
-                        if (savedStrictMode) {
-                            context.enterStrictMode();
-                        } else {
-                            context.exitStrictMode();
+                        // For RETURN_ASYNC the wrapping in a promise is handled by JSBytecodeFunction.call()
+                        JSValue returnValue = op == Opcode.RETURN_UNDEF ? JSUndefined.INSTANCE : valueStack.pop();
+                        valueStack.setStackTop(frame.getCallerStackTop());
+                        if (frame != entryFrame) {
+                            // Return to the calling frame in the same loop
+                            releaseFrame(frame);
+                            frame = frame.getCaller();
+                            currentFrame = frame;
+                            callDepth--;
+                            valueStack.push(returnValue);
+                            continue;
                         }
-                        return JSUndefined.INSTANCE;
-                    }
-                    case RETURN_ASYNC -> {
-                        // Return from async function - pops value from stack
-                        // The wrapping in a promise is handled by JSBytecodeFunction.call()
-                        JSValue returnValue = valueStack.pop();
-                        // Restore stack and strict mode before returning
-                        valueStack.setStackTop(savedStackTop);
+                        frame.closeVarRefs();
+                        // Restore strict mode before returning
                         currentFrame = previousFrame;
                         if (savedStrictMode) {
                             context.enterStrictMode();
@@ -894,13 +1149,45 @@ public final class VirtualMachine {
 
                     // ==================== Function Calls ====================
                     case CALL -> {
-                        int argCount = bytecode.readU16(pc + 1);
+                        // The frame program counter is only written back where it can be observed
+                        frame.setProgramCounter(pc);
+                        if (--interruptCounter <= 0) {
+                            pollInterrupts();
+                        }
+                        int argCount = operands[pc];
+                        if (valueStack.peek(argCount + 1) instanceof JSBytecodeFunction callee
+                                && !callee.isAsync() && !callee.isGenerator()) {
+                            // Stack layout (bottom to top): callee, receiver, arg1, arg2, ...
+                            if (callDepth >= context.getMaxStackDepth()) {
+                                valueStack.drop(argCount + 2);
+                                pendingException = context.throwRangeError("Maximum call stack size exceeded");
+                                continue;
+                            }
+                            // The arguments stay on the stack, the callee locals take a register window
+                            JSValue receiver = valueStack.peek(argCount);
+                            int argumentOffset = valueStack.getStackTop() - argCount;
+                            // Push the callee frame and continue in this loop, the caller resumes after the call
+                            frame.setProgramCounter(pc + op.getSize());
+                            StackFrame calleeFrame = createFrame(callee, receiver, frame);
+                            calleeFrame.setArgumentWindow(argumentOffset, argCount);
+                            calleeFrame.setCallerStackTop(argumentOffset - 2);
+                            calleeFrame.setStackBase(valueStack.getStackTop());
+                            loadArguments(calleeFrame);
+                            frame = calleeFrame;
+                            currentFrame = frame;
+                            callDepth++;
+                            continue;
+                        }
                         handleCall(argCount);
                         debugDumpStack("AFTER_CALL", pc, 8);
                         pc += op.getSize();
                     }
                     case CALL_CONSTRUCTOR -> {
-                        int ctorArgCount = bytecode.readU16(pc + 1);
+                        frame.setProgramCounter(pc);
+                        if (--interruptCounter <= 0) {
+                            pollInterrupts();
+                        }
+                        int ctorArgCount = operands[pc];
                         handleCallConstructor(ctorArgCount);
                         pc += op.getSize();
                     }
@@ -918,7 +1205,7 @@ public final class VirtualMachine {
                     case ARRAY_FROM -> {
                         // Create array from N elements on stack
                         // Stack: elem0 elem1 ... elemN-1 -> array
-                        int count = bytecode.readU16(pc + 1);
+                        int count = operands[pc];
                         JSArray array = context.createJSArray();
 
                         // Pop elements in reverse order and add to array
@@ -937,7 +1224,7 @@ public final class VirtualMachine {
                         // Apply function with arguments from array
                         // Stack: thisArg function argsArray -> result
                         // Parameter: isConstructorCall (0=regular, 1=constructor)
-                        int isConstructorCall = bytecode.readU16(pc + 1);
+                        int isConstructorCall = operands[pc];
 
                         JSValue argsArrayValue = valueStack.pop();
                         JSValue functionValue = valueStack.pop();
@@ -1007,27 +1294,34 @@ public final class VirtualMachine {
                             }
 
                             // Iterate and append all elements
-                            while (true) {
-                                JSObject resultObj = JSIteratorHelper.iteratorNext(iterator, context);
-                                if (resultObj == null) {
-                                    break;
+                            if (iterator instanceof JSIterator jsIterator && jsIterator.isNextMethod(jsIterator.get("next"))) {
+                                // Built-in iterators are stepped directly, skipping their result objects
+                                for (JSIterator.IteratorResult result = jsIterator.nextResult(); !result.done; result = jsIterator.nextResult()) {
+                                    array.set(pos++, result.value, context);
                                 }
+                            } else {
+                                while (true) {
+                                    JSObject resultObj = JSIteratorHelper.iteratorNext(iterator, context);
+                                    if (resultObj == null) {
+                                        break;
+                                    }
 
-                                // Check if done
-                                JSValue doneValue = resultObj.get("done");
-                                if (JSTypeConversions.toBoolean(doneValue) == JSBoolean.TRUE) {
-                                    break;
-                                }
+                                    // Check if done
+                                    JSValue doneValue = resultObj.get("done");
+                                    if (JSTypeConversions.toBoolean(doneValue) == JSBoolean.TRUE) {
+                                        break;
+                                    }
 
-                                // Get value and append to array at position
-                                JSValue value = resultObj.get("value");
-                                // Set array element (this will update length automatically)
-                                array.set(pos++, value, context);
+                                    // Get value and append to array at position
+                                    JSValue value = resultObj.get("value");
+                                    // Set array element (this will update length automatically)
+                                    array.set(pos++, value, context);
+                                }
                             }
 
                             // Push array and updated position back onto stack
                             valueStack.push(array);
-                            valueStack.push(new JSNumber(pos));
+                            valueStack.push(JSNumber.valueOf(pos));
 
                         } catch (Exception e) {
                             throw new JSVirtualMachineException("APPEND: error iterating: " + e.getMessage(), e);
@@ -1072,7 +1366,7 @@ public final class VirtualMachine {
                         // Stack: superClass constructor
                         // Reads: atom (class name)
                         // Result: proto constructor (pushes prototype object)
-                        int classNameAtom = bytecode.readU32(pc + 1);
+                        int classNameAtom = operands[pc];
                         String className = bytecode.getAtoms()[classNameAtom];
                         JSValue constructor = valueStack.pop();
                         JSValue superClass = valueStack.pop();
@@ -1109,13 +1403,13 @@ public final class VirtualMachine {
                         // Stack: obj method
                         // Reads: atom (method name)
                         // Result: obj (pops both, adds method to obj, pushes obj back)
-                        int methodNameAtom = bytecode.readU32(pc + 1);
+                        int methodNameAtom = operands[pc];
                         String methodName = bytecode.getAtoms()[methodNameAtom];
                         JSValue method = valueStack.pop();  // Pop method
                         JSValue obj = valueStack.pop();     // Pop obj
 
                         if (obj instanceof JSObject jsObj) {
-                            jsObj.set(PropertyKey.fromString(methodName), method);
+                            jsObj.set(atomKeys[methodNameAtom], method);
                         }
 
                         valueStack.push(obj);  // Push obj back
@@ -1125,13 +1419,13 @@ public final class VirtualMachine {
                         // Stack: obj value
                         // Reads: atom (field name)
                         // Result: obj (pops both, adds field to obj, pushes obj back)
-                        int fieldNameAtom = bytecode.readU32(pc + 1);
+                        int fieldNameAtom = operands[pc];
                         String fieldName = bytecode.getAtoms()[fieldNameAtom];
                         JSValue value = valueStack.pop();   // Pop value
                         JSValue obj = valueStack.pop();     // Pop obj
 
                         if (obj instanceof JSObject jsObj) {
-                            jsObj.set(PropertyKey.fromString(fieldName), value);
+                            jsObj.set(atomKeys[fieldNameAtom], value);
                         }
 
                         valueStack.push(obj);  // Push obj back
@@ -1185,6 +1479,7 @@ public final class VirtualMachine {
 
                     // ==================== Exception Handling ====================
                     case THROW -> {
+                        frame.setProgramCounter(pc);
                         JSValue exception = valueStack.pop();
                         pendingException = exception;
                         context.setPendingException(exception);
@@ -1192,14 +1487,6 @@ public final class VirtualMachine {
                         // This matches QuickJS behavior: goto exception;
                         // Don't advance PC - let the exception handler deal with it
                     }
-                    case CATCH -> {
-                        // QuickJS: pushes catch offset marker onto stack
-                        // This marker is used during exception unwinding to find the catch handler
-                        int catchOffset = bytecode.readI32(pc + 1);
-                        int catchHandlerPC = pc + op.getSize() + catchOffset;
-                        valueStack.pushStackValue(new JSCatchOffset(catchHandlerPC));
-                        pc += op.getSize();
-                    }
 
                     // ==================== Type Operations ====================
                     case TYPEOF -> {
@@ -1217,6 +1504,20 @@ public final class VirtualMachine {
 
                     // ==================== Async Operations ====================
                     case AWAIT -> {
+                        if (generatorState != null && !function.isGenerator()) {
+                            // Suspend the async function until the awaited promise settles
+                            JSPromise awaitedPromise = toAwaitedPromise(valueStack.pop());
+                            pc += op.getSize();
+                            generatorState.suspend(GeneratorState.State.SUSPENDED_AWAIT, pc, valueStack.copy(savedStackTop));
+                            valueStack.setStackTop(savedStackTop);
+                            currentFrame = previousFrame;
+                            if (savedStrictMode) {
+                                context.enterStrictMode();
+                            } else {
+                                context.exitStrictMode();
+                            }
+                            return awaitedPromise;
+                        }
                         handleAwait();
                         pc += op.getSize();
                     }
@@ -1233,7 +1534,7 @@ public final class VirtualMachine {
                         pc += op.getSize();
                     }
                     case FOR_OF_NEXT -> {
-                        int depth = bytecode.readU8(pc + 1);  // Read the depth parameter
+                        int depth = operands[pc];  // Read the depth parameter
                         handleForOfNext(depth);
                         pc += op.getSize();
                     }
@@ -1263,6 +1564,9 @@ public final class VirtualMachine {
                         if (yieldResult != null) {
                             // Return the yielded value - execution will resume here on next()
                             JSValue returnValue = valueStack.pop();
+                            if (generatorState != null) {
+                                generatorState.suspend(GeneratorState.State.SUSPENDED_YIELD, pc, valueStack.copy(savedStackTop));
+                            }
                             valueStack.setStackTop(savedStackTop);
                             currentFrame = previousFrame;
                             if (savedStrictMode) {
@@ -1279,6 +1583,9 @@ public final class VirtualMachine {
                         // Check if we should suspend
                         if (yieldResult != null) {
                             JSValue returnValue = valueStack.pop();
+                            if (generatorState != null) {
+                                generatorState.suspend(GeneratorState.State.SUSPENDED_YIELD, pc, valueStack.copy(savedStackTop));
+                            }
                             valueStack.setStackTop(savedStackTop);
                             currentFrame = previousFrame;
                             if (savedStrictMode) {
@@ -1297,59 +1604,69 @@ public final class VirtualMachine {
                     // ==================== Other Operations ====================
                     default -> throw new JSVirtualMachineException("Unimplemented opcode: " + op + " at PC " + pc);
                 }
+            } catch (JSVirtualMachineException e) {
+                // An error raised by the VM or by a nested call is thrown to the JavaScript handlers
+                JSValue exception = e.getJsError();
+                if (exception == null) {
+                    exception = context.getPendingException();
+                }
+                if (exception == null) {
+                    throw e;
+                }
+                pendingException = exception;
+                context.setPendingException(exception);
+            } catch (JSErrorException e) {
+                // Errors raised by code without a context, such as running out of memory
+                pendingException = context.throwError(e.getErrorType().name(), e.getMessage());
             }
-        } catch (JSVirtualMachineException e) {
-            // Restore stack and strict mode on exception
-            valueStack.setStackTop(savedStackTop);
-            currentFrame = previousFrame;
-            resetPropertyAccessTracking();
-            if (savedStrictMode) {
-                context.enterStrictMode();
-            } else {
-                context.exitStrictMode();
-            }
-            throw e;
-        } catch (Exception e) {
-            // Restore stack and strict mode on exception
-            valueStack.setStackTop(savedStackTop);
-            currentFrame = previousFrame;
-            resetPropertyAccessTracking();
-            if (savedStrictMode) {
-                context.enterStrictMode();
-            } else {
-                context.exitStrictMode();
-            }
-            throw new JSVirtualMachineException("VM error: " + e.getMessage(), e);
         }
     }
 
     // ==================== Arithmetic Operation Handlers ====================
 
     /**
-     * Execute a generator function with state management.
-     * Resumes from saved state if generator was previously yielded.
+     * Execute a generator or async function with state management.
+     * The first call runs the body from the start, later calls resume the
+     * suspended frame right after the yield or await it stopped at.
+     * Following QuickJS js_generator_next() and async_func_resume().
+     *
+     * @param state       the generator state
+     * @param resumeValue the value sent by next() or the awaited result, or the exception to throw
+     * @param isThrow     whether the resume value is thrown at the suspension point
+     * @return the yielded value, the awaited promise if the state is
+     * {@link GeneratorState.State#SUSPENDED_AWAIT}, or the return value if the function completed
      */
-    public JSValue executeGenerator(GeneratorState state, JSContext context) {
-        JSBytecodeFunction function = state.getFunction();
-        JSValue thisArg = state.getThisArg();
-        JSValue[] args = state.getArgs();
+    public JSValue executeGenerator(GeneratorState state, JSValue resumeValue, boolean isThrow) {
+        if (state.getState() == GeneratorState.State.EXECUTING) {
+            throw new JSVirtualMachineException(context.throwTypeError("Generator is already running"));
+        }
+        StackFrame frame = state.getFrame();
+        if (frame == null) {
+            frame = new StackFrame(state.getFunction(), state.getThisArg(), state.getArgs(), currentFrame);
+            state.setFrame(frame);
+        }
+        state.setState(GeneratorState.State.EXECUTING);
 
         // Clear any previous yield result
         yieldResult = null;
-
-        // Set yield skip count - we'll skip this many yields to resume from the right place
-        // This is a workaround since we're not saving/restoring PC
-        yieldSkipCount = state.getYieldCount();
-
-        // Execute (or resume) the generator
-        JSValue result = execute(function, thisArg, args);
+        JSValue result;
+        try {
+            result = execute(frame, state, resumeValue, isThrow);
+        } catch (JSVirtualMachineException e) {
+            // An uncaught exception completes the generator
+            state.setCompleted(true);
+            throw e;
+        }
 
         // Check if generator yielded
         if (yieldResult != null) {
-            // Generator yielded - increment count and update state
-            state.incrementYieldCount();
-            state.setState(GeneratorState.State.SUSPENDED_YIELD);
-            return yieldResult.value();
+            // The frame saved its program counter and operand stack in the state
+            JSValue value = yieldResult.value();
+            yieldResult = null;
+            return value;
+        } else if (state.getState() == GeneratorState.State.SUSPENDED_AWAIT) {
+            // Async function suspended at await, the caller resumes it when the promise settles
+            return result;
         } else {
             // Generator completed (returned)
             state.setCompleted(true);
@@ -1357,10 +1674,39 @@ public final class VirtualMachine {
         }
     }
 
+    /**
+     * Get the arguments of a frame, copying them off the value stack on first use.
+     */
+    private JSValue[] getArguments(StackFrame frame) {
+        JSValue[] args = frame.getArguments();
+        if (args == null) {
+            args = new JSValue[frame.getArgumentCount()];
+            valueStack.copyValues(frame.getArgumentOffset(), args, 0, args.length);
+            frame.setArguments(args);
+        }
+        return args;
+    }
+
+    /**
+     * Get the callee expression of the call instruction the current frame is running.
+     */
+    private String getCalleeName() {
+        if (currentFrame != null && currentFrame.getFunction() instanceof JSBytecodeFunction function) {
+            return function.getBytecode().getCalleeName(currentFrame.getProgramCounter());
+        }
+        return null;
+    }
+
     private void handleAdd() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
 
+        // Fast path for numbers without conversion calls
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSNumber.valueOf(leftNumber.value() + rightNumber.value()));
+            return;
+        }
+
         // String concatenation or numeric addition
         if (left instanceof JSString || right instanceof JSString) {
             String leftStr = JSTypeConversions.toString(context, left).value();
@@ -1369,7 +1715,7 @@ public final class VirtualMachine {
         } else {
             double leftNum = JSTypeConversions.toNumber(context, left).value();
             double rightNum = JSTypeConversions.toNumber(context, right).value();
-            valueStack.push(new JSNumber(leftNum + rightNum));
+            valueStack.push(JSNumber.valueOf(leftNum + rightNum));
         }
     }
 
@@ -1377,7 +1723,7 @@ public final class VirtualMachine {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
         int result = JSTypeConversions.toInt32(context, left) & JSTypeConversions.toInt32(context, right);
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleAsyncYieldStar() {
@@ -1385,19 +1731,12 @@ public final class VirtualMachine {
         throw new JSVirtualMachineException("Async yield* expression not yet implemented");
     }
 
+    /**
+     * Await without suspending, used where no resumable frame exists
+     * (async generators and top-level code).
+     */
     private void handleAwait() {
-        JSValue value = valueStack.pop();
-
-        // If the value is already a promise, use it directly
-        // Otherwise, wrap it in a resolved promise
-        JSPromise promise;
-        if (value instanceof JSPromise) {
-            promise = (JSPromise) value;
-        } else {
-            // Create a new promise and immediately fulfill it
-            promise = new JSPromise();
-            promise.fulfill(value);
-        }
+        JSPromise promise = toAwaitedPromise(valueStack.pop());
 
         // For proper async/await support, we need to wait for the promise to settle
         // and push the resolved value (not the promise itself)
@@ -1433,10 +1772,7 @@ public final class VirtualMachine {
     private void handleCall(int argCount) {
         // Stack layout (bottom to top): method, receiver, arg1, arg2, ...
         // Pop arguments from stack
-        JSValue[] args = new JSValue[argCount];
-        for (int i = argCount - 1; i >= 0; i--) {
-            args[i] = valueStack.pop();
-        }
+        JSValue[] args = valueStack.popValues(argCount);
 
         // Pop receiver (thisArg)
         JSValue receiver = valueStack.pop();
@@ -1444,29 +1780,10 @@ public final class VirtualMachine {
         // Pop callee (method)
         JSValue callee = valueStack.pop();
 
-        // Diagnostic: record stack snapshot before performing call logic
-        if (DEBUG) {
-            try {
-                System.out.println("VM DIAG: handleCall ENTRY argCount=" + argCount + " stackTop=" + valueStack.getStackTop());
-                int top = valueStack.getStackTop();
-                for (int i = 0; i < Math.min(6, top + 1); i++) {
-                    try {
-                        JSValue v = valueStack.peek(i);
-                        String cls = v == null ? "null" : v.getClass().getSimpleName();
-                        System.out.println("  [+" + i + "] " + cls + " -> " + String.valueOf(v));
-                    } catch (Throwable t) {
-                        System.out.println("  [+" + i + "] <no-value>");
-                    }
-                }
-            } catch (Throwable ignored) {
-            }
-        }
-
         // Handle proxy apply trap (QuickJS: js_proxy_call)
         if (callee instanceof JSProxy proxy) {
             JSValue result = proxyApply(proxy, receiver, args);
             valueStack.push(result);
-            resetPropertyAccessTracking();
             return;
         }
 
@@ -1493,7 +1810,6 @@ public final class VirtualMachine {
                 // Check if this function requires 'new'
                 if (nativeFunc.requiresNew()) {
                     String constructorName = nativeFunc.getName() != null ? nativeFunc.getName() : "constructor";
-                    resetPropertyAccessTracking();
                     String errorMessage = switch (constructorName) {
                         case JSPromise.NAME -> "Promise constructor cannot be invoked without 'new'";
                         default -> "Constructor " + constructorName + " requires 'new'";
@@ -1528,59 +1844,14 @@ public final class VirtualMachine {
             } else {
                 valueStack.push(JSUndefined.INSTANCE);
             }
-            // Clear property access tracking after successful call
-            resetPropertyAccessTracking();
         } else {
             // Not a function - throw TypeError
             // Generate a descriptive error message similar to V8/QuickJS
-            // Enhanced diagnostics for non-function call
-            try {
-                System.out.println("VM DIAG: CALL attempted on non-function - class=" + (callee == null ? "null" : callee.getClass().getSimpleName()) + " value=" + String.valueOf(callee) + " propChain=" + propertyAccessChain + " framePC=" + (currentFrame == null ? "null" : currentFrame.getProgramCounter()));
-                // If current frame is bytecode function, dump surrounding bytecode
-                if (currentFrame != null && currentFrame.getFunction() instanceof JSBytecodeFunction bfunc) {
-                    try {
-                        Bytecode bc = bfunc.getBytecode();
-                        int fpc = currentFrame.getProgramCounter();
-                        System.out.println("VM DIAG: Bytecode context around PC=" + fpc);
-                        int start = Math.max(0, fpc - 32);
-                        int end = Math.min(bc.getLength(), fpc + 32);
-                        int dpc = start;
-                        while (dpc < end) {
-                            int code = bc.readOpcode(dpc);
-                            Opcode dop = Opcode.fromInt(code);
-                            String extra = "";
-                            int size = dop.getSize();
-                            if (size == 5) {
-                                int u32 = bc.readU32(dpc + 1);
-                                String atomName = "";
-                                try {
-                                    String[] atoms = bc.getAtoms();
-                                    if (atoms != null && u32 >= 0 && u32 < atoms.length) {
-                                        atomName = "('" + atoms[u32] + "')";
-                                    }
-                                } catch (Throwable ignored) {
-                                }
-                                extra = " " + u32 + atomName;
-                            } else if (size == 3) {
-                                int u16 = bc.readU16(dpc + 1);
-                                extra = " " + u16;
-                            } else if (size == 2) {
-                                int u8 = bc.readU8(dpc + 1);
-                                extra = " " + u8;
-                            }
-                            System.out.println(String.format(" %04d: %s%s", dpc, dop.name(), extra));
-                            dpc += size;
-                        }
-                    } catch (Throwable t) {
-                        // ignore diagnostic failure
-                    }
-                }
-            } catch (Throwable ignored) {
-            }
             String message;
-            if (!(propertyAccessChain.length() == 0)) {
-                // Use the tracked property access for better error messages
-                message = propertyAccessChain + " is not a function";
+            String calleeName = getCalleeName();
+            if (calleeName != null) {
+                // The callee expression is rebuilt from the bytecode of the failing call
+                message = calleeName + " is not a function";
             } else if (callee instanceof JSUndefined) {
                 message = "undefined is not a function";
             } else if (callee instanceof JSNull) {
@@ -1592,7 +1863,6 @@ public final class VirtualMachine {
             } else {
                 message = JSTypeChecking.typeof(callee) + " is not a function";
             }
-            resetPropertyAccessTracking();
             throw new JSVirtualMachineException(context.throwTypeError(message));
         }
     }
@@ -1714,57 +1984,18 @@ public final class VirtualMachine {
                 }
             }
         } else {
-            // Enhanced diagnostics for invalid constructor
-            try {
-                System.out.println("VM DIAG: CONSTRUCT attempted on non-function - value=" + String.valueOf(constructor) + " class=" + (constructor == null ? "null" : constructor.getClass().getSimpleName()) + " framePC=" + (currentFrame == null ? "null" : currentFrame.getProgramCounter()));
-                if (currentFrame != null && currentFrame.getFunction() instanceof JSBytecodeFunction bfunc) {
-                    try {
-                        Bytecode bc = bfunc.getBytecode();
-                        int fpc = currentFrame.getProgramCounter();
-                        System.out.println("VM DIAG: Bytecode context around PC=" + fpc);
-                        int start = Math.max(0, fpc - 32);
-                        int end = Math.min(bc.getLength(), fpc + 32);
-                        int dpc = start;
-                        while (dpc < end) {
-                            int code = bc.readOpcode(dpc);
-                            Opcode dop = Opcode.fromInt(code);
-                            String extra = "";
-                            int size = dop.getSize();
-                            if (size == 5) {
-                                int u32 = bc.readU32(dpc + 1);
-                                String atomName = "";
-                                try {
-                                    String[] atoms = bc.getAtoms();
-                                    if (atoms != null && u32 >= 0 && u32 < atoms.length) {
-                                        atomName = "('" + atoms[u32] + "')";
-                                    }
-                                } catch (Throwable ignored) {
-                                }
-                                extra = " " + u32 + atomName;
-                            } else if (size == 3) {
-                                int u16 = bc.readU16(dpc + 1);
-                                extra = " " + u16;
-                            } else if (size == 2) {
-                                int u8 = bc.readU8(dpc + 1);
-                                extra = " " + u8;
-                            }
-                            System.out.println(String.format(" %04d: %s%s", dpc, dop.name(), extra));
-                            dpc += size;
-                        }
-                    } catch (Throwable t) {
-                        // ignore diagnostic failure
-                    }
-                }
-            } catch (Throwable ignored) {
-            }
             throw new JSVirtualMachineException("Cannot construct non-function value");
         }
     }
 
     private void handleDec() {
         JSValue operand = valueStack.pop();
+        if (operand instanceof JSNumber number) {
+            valueStack.push(JSNumber.valueOf(number.value() - 1));
+            return;
+        }
         double result = JSTypeConversions.toNumber(context, operand).value() - 1;
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleDelete() {
@@ -1781,13 +2012,21 @@ public final class VirtualMachine {
     private void handleDiv() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSNumber.valueOf(leftNumber.value() / rightNumber.value()));
+            return;
+        }
         double result = JSTypeConversions.toNumber(context, left).value() / JSTypeConversions.toNumber(context, right).value();
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleEq() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSBoolean.valueOf(leftNumber.value() == rightNumber.value()));
+            return;
+        }
         boolean result = JSTypeConversions.abstractEquals(context, left, right);
         valueStack.push(JSBoolean.valueOf(result));
     }
@@ -1796,7 +2035,7 @@ public final class VirtualMachine {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
         double result = Math.pow(JSTypeConversions.toNumber(context, left).value(), JSTypeConversions.toNumber(context, right).value());
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleForAwaitOfNext() {
@@ -1872,7 +2111,7 @@ public final class VirtualMachine {
         // Push iterator, next method, and catch offset (0) onto the stack
         valueStack.push(iterator);         // Iterator object
         valueStack.push(nextMethod);       // next() method
-        valueStack.push(new JSNumber(0));  // Catch offset (placeholder)
+        valueStack.push(JSNumber.valueOf(0));  // Catch offset (placeholder)
     }
 
     // ==================== Bitwise Operation Handlers ====================
@@ -1923,57 +2162,50 @@ public final class VirtualMachine {
         // The depth parameter tells us how many values are between catch_offset and top
         // Following QuickJS: offset = -3 - depth
         // iter is at sp[offset] = sp[-3-depth], next is at sp[offset+1] = sp[-2-depth]
+        // They stay on the stack for the next iteration
+        JSValue nextMethod = valueStack.peek(depth + 1);
+        JSValue iterator = valueStack.peek(depth + 2);
+
+        JSValue value;
+        boolean done;
+        if (iterator instanceof JSIterator jsIterator && jsIterator.isNextMethod(nextMethod)) {
+            // The built-in iterators of arrays, Maps, Sets and strings are stepped
+            // directly, skipping the result object their next() would create
+            JSIterator.IteratorResult result = jsIterator.nextResult();
+            value = result.value;
+            done = result.done;
+        } else {
+            // Call iterator.next()
+            if (!(nextMethod instanceof JSFunction nextFunc)) {
+                String actualType = nextMethod == null ? "null" : nextMethod.getClass().getSimpleName();
+                String iterType = iterator == null ? "null" : iterator.getClass().getSimpleName();
+                throw new JSVirtualMachineException(
+                        "Next method must be a function in FOR_OF_NEXT (nextMethod=" + actualType + ", iterator=" + iterType + ")"
+                );
+            }
 
-        // Pop depth values temporarily
-        List<JSValue> tempValues = new ArrayList<>(depth);
-        for (int i = 0; i < depth; i++) {
-            tempValues.add(valueStack.pop());
-        }
-        // Now top of stack is catch_offset
-        JSValue catchOffset = valueStack.pop();
+            JSValue result = nextFunc.call(context, iterator, new JSValue[0]);
 
-        // Now peek next method and iterator (don't pop - they stay for next iteration)
-        // Stack is now: ... iter next (top)
-        JSValue nextMethod = valueStack.peek(0);  // next method (top)
-        JSValue iterator = valueStack.peek(1);    // iterator object (below next)
+            // For sync iterators, extract value and done from the result object
+            // QuickJS FOR_OF_NEXT pushes: iter, next, catch_offset, value, done
+            // So we need to extract {value, done} from result
 
-        // Call iterator.next()
-        if (!(nextMethod instanceof JSFunction nextFunc)) {
-            String actualType = nextMethod == null ? "null" : nextMethod.getClass().getSimpleName();
-            String iterType = iterator == null ? "null" : iterator.getClass().getSimpleName();
-            throw new JSVirtualMachineException(
-                    "Next method must be a function in FOR_OF_NEXT (nextMethod=" + actualType + ", iterator=" + iterType + ")"
-            );
-        }
-
-        JSValue result = nextFunc.call(context, iterator, new JSValue[0]);
+            if (!(result instanceof JSObject resultObj)) {
+                throw new JSVirtualMachineException("Iterator result must be an object");
+            }
 
-        // For sync iterators, extract value and done from the result object
-        // QuickJS FOR_OF_NEXT pushes: iter, next, catch_offset, value, done
-        // So we need to extract {value, done} from result
+            // Get the value property
+            value = resultObj.get("value");
 
-        if (!(result instanceof JSObject resultObj)) {
-            throw new JSVirtualMachineException("Iterator result must be an object");
+            // Get the done property
+            JSValue doneValue = resultObj.get("done");
+            done = doneValue instanceof JSBoolean boolVal && boolVal.isBooleanTrue();
         }
-
-        // Get the value property
-        JSValue value = resultObj.get("value");
         if (value == null) {
             value = JSUndefined.INSTANCE;
         }
 
-        // Get the done property
-        JSValue doneValue = resultObj.get("done");
-        boolean done = false;
-        if (doneValue instanceof JSBoolean boolVal) {
-            done = boolVal.isBooleanTrue();
-        }
-
-        // Push catch_offset back, then restore temp values, then push value and done
-        valueStack.push(catchOffset);
-        for (int i = tempValues.size() - 1; i >= 0; i--) {
-            valueStack.push(tempValues.get(i));
-        }
+        // Push value and done above the values kept on the stack
         valueStack.push(value);
         valueStack.push(done ? JSBoolean.TRUE : JSBoolean.FALSE);
     }
@@ -2022,12 +2254,34 @@ public final class VirtualMachine {
         // Push iterator, next method, and catch offset (0) onto the stack
         valueStack.push(iterator);         // Iterator object
         valueStack.push(nextMethod);       // next() method
-        valueStack.push(new JSNumber(0));  // Catch offset (placeholder)
+        valueStack.push(JSNumber.valueOf(0));  // Catch offset (placeholder)
+    }
+
+    private void handleGetField(JSValue obj, PropertyCache propertyCache) {
+        // Auto-box primitives to access their prototype methods
+        JSObject targetObj = toObject(obj);
+        if (targetObj == null) {
+            valueStack.push(JSUndefined.INSTANCE);
+            return;
+        }
+        JSValue result = propertyCache.get(targetObj, context);
+        // Check if getter threw an exception
+        if (context.hasPendingException()) {
+            pendingException = context.getPendingException();
+            context.clearPendingException();
+            valueStack.push(JSUndefined.INSTANCE);
+        } else {
+            valueStack.push(result);
+        }
     }
 
     private void handleGt() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSBoolean.valueOf(leftNumber.value() > rightNumber.value()));
+            return;
+        }
         boolean result = JSTypeConversions.lessThan(context, right, left);
         valueStack.push(JSBoolean.valueOf(result));
     }
@@ -2035,6 +2289,10 @@ public final class VirtualMachine {
     private void handleGte() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSBoolean.valueOf(leftNumber.value() >= rightNumber.value()));
+            return;
+        }
         boolean result = JSTypeConversions.lessThan(context, right, left) ||
                 JSTypeConversions.abstractEquals(context, left, right);
         valueStack.push(JSBoolean.valueOf(result));
@@ -2053,8 +2311,12 @@ public final class VirtualMachine {
 
     private void handleInc() {
         JSValue operand = valueStack.pop();
+        if (operand instanceof JSNumber number) {
+            valueStack.push(JSNumber.valueOf(number.value() + 1));
+            return;
+        }
         double result = JSTypeConversions.toNumber(context, operand).value() + 1;
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleInitialYield() {
@@ -2142,6 +2404,10 @@ public final class VirtualMachine {
     private void handleLt() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSBoolean.valueOf(leftNumber.value() < rightNumber.value()));
+            return;
+        }
         boolean result = JSTypeConversions.lessThan(context, left, right);
         valueStack.push(JSBoolean.valueOf(result));
     }
@@ -2149,6 +2415,10 @@ public final class VirtualMachine {
     private void handleLte() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSBoolean.valueOf(leftNumber.value() <= rightNumber.value()));
+            return;
+        }
         boolean result = JSTypeConversions.lessThan(context, left, right) ||
                 JSTypeConversions.abstractEquals(context, left, right);
         valueStack.push(JSBoolean.valueOf(result));
@@ -2157,26 +2427,42 @@ public final class VirtualMachine {
     private void handleMod() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSNumber.valueOf(leftNumber.value() % rightNumber.value()));
+            return;
+        }
         double result = JSTypeConversions.toNumber(context, left).value() % JSTypeConversions.toNumber(context, right).value();
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleMul() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSNumber.valueOf(leftNumber.value() * rightNumber.value()));
+            return;
+        }
         double result = JSTypeConversions.toNumber(context, left).value() * JSTypeConversions.toNumber(context, right).value();
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleNeg() {
         JSValue operand = valueStack.pop();
+        if (operand instanceof JSNumber number) {
+            valueStack.push(JSNumber.valueOf(-number.value()));
+            return;
+        }
         double result = -JSTypeConversions.toNumber(context, operand).value();
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleNeq() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSBoolean.valueOf(leftNumber.value() != rightNumber.value()));
+            return;
+        }
         boolean result = !JSTypeConversions.abstractEquals(context, left, right);
         valueStack.push(JSBoolean.valueOf(result));
     }
@@ -2184,7 +2470,7 @@ public final class VirtualMachine {
     private void handleNot() {
         JSValue operand = valueStack.pop();
         int result = ~JSTypeConversions.toInt32(context, operand);
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     // ==================== Logical Operation Handlers ====================
@@ -2204,23 +2490,26 @@ public final class VirtualMachine {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
         int result = JSTypeConversions.toInt32(context, left) | JSTypeConversions.toInt32(context, right);
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handlePlus() {
         JSValue operand = valueStack.pop();
+        if (operand instanceof JSNumber) {
+            valueStack.push(operand);
+            return;
+        }
         double result = JSTypeConversions.toNumber(context, operand).value();
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handlePostDec() {
         // POST_DEC: [value] -> [old_value, new_value]
         // Takes value on top, pushes old value then new value
         JSValue operand = valueStack.pop();
-        double oldValue = JSTypeConversions.toNumber(context, operand).value();
-        double newValue = oldValue - 1;
-        valueStack.push(new JSNumber(oldValue));
-        valueStack.push(new JSNumber(newValue));
+        JSNumber oldNumber = operand instanceof JSNumber number ? number : JSTypeConversions.toNumber(context, operand);
+        valueStack.push(oldNumber);
+        valueStack.push(JSNumber.valueOf(oldNumber.value() - 1));
     }
 
     // ==================== Type Operation Handlers ====================
@@ -2229,13 +2518,9 @@ public final class VirtualMachine {
         // POST_INC: [value] -> [old_value, new_value]
         // Takes value on top, pushes old value then new value
         JSValue operand = valueStack.pop();
-        double oldValue = JSTypeConversions.toNumber(context, operand).value();
-        double newValue = oldValue + 1;
-        // Diagnostic: log POST_INC operand and produced values
-        System.out.println("POST_INC operand=" + (operand == null ? "null" : operand.getClass().getName() + "(" + operand + ")") +
-                " old=" + oldValue + " new=" + newValue);
-        valueStack.push(new JSNumber(oldValue));
-        valueStack.push(new JSNumber(newValue));
+        JSNumber oldNumber = operand instanceof JSNumber number ? number : JSTypeConversions.toNumber(context, operand);
+        valueStack.push(oldNumber);
+        valueStack.push(JSNumber.valueOf(oldNumber.value() + 1));
     }
 
     private void handleSar() {
@@ -2243,7 +2528,7 @@ public final class VirtualMachine {
         JSValue left = valueStack.pop();
         int leftInt = JSTypeConversions.toInt32(context, left);
         int rightInt = JSTypeConversions.toInt32(context, right);
-        valueStack.push(new JSNumber(leftInt >> (rightInt & 0x1F)));
+        valueStack.push(JSNumber.valueOf(leftInt >> (rightInt & 0x1F)));
     }
 
     // ==================== Async Operation Handlers ====================
@@ -2253,7 +2538,7 @@ public final class VirtualMachine {
         JSValue left = valueStack.pop();
         int leftInt = JSTypeConversions.toInt32(context, left);
         int rightInt = JSTypeConversions.toInt32(context, right);
-        valueStack.push(new JSNumber(leftInt << (rightInt & 0x1F)));
+        valueStack.push(JSNumber.valueOf(leftInt << (rightInt & 0x1F)));
     }
 
     // ==================== Function Call Handlers ====================
@@ -2263,12 +2548,16 @@ public final class VirtualMachine {
         JSValue left = valueStack.pop();
         int leftInt = JSTypeConversions.toInt32(context, left);
         int rightInt = JSTypeConversions.toInt32(context, right);
-        valueStack.push(new JSNumber((leftInt >>> (rightInt & 0x1F)) & 0xFFFFFFFFL));
+        valueStack.push(JSNumber.valueOf((leftInt >>> (rightInt & 0x1F)) & 0xFFFFFFFFL));
     }
 
     private void handleStrictEq() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSBoolean.valueOf(leftNumber.value() == rightNumber.value()));
+            return;
+        }
         boolean result = JSTypeConversions.strictEquals(left, right);
         valueStack.push(JSBoolean.valueOf(result));
     }
@@ -2276,6 +2565,10 @@ public final class VirtualMachine {
     private void handleStrictNeq() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSBoolean.valueOf(leftNumber.value() != rightNumber.value()));
+            return;
+        }
         boolean result = !JSTypeConversions.strictEquals(left, right);
         valueStack.push(JSBoolean.valueOf(result));
     }
@@ -2283,8 +2576,12 @@ public final class VirtualMachine {
     private void handleSub() {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
+        if (left instanceof JSNumber leftNumber && right instanceof JSNumber rightNumber) {
+            valueStack.push(JSNumber.valueOf(leftNumber.value() - rightNumber.value()));
+            return;
+        }
         double result = JSTypeConversions.toNumber(context, left).value() - JSTypeConversions.toNumber(context, right).value();
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleTypeof() {
@@ -2297,18 +2594,10 @@ public final class VirtualMachine {
         JSValue right = valueStack.pop();
         JSValue left = valueStack.pop();
         int result = JSTypeConversions.toInt32(context, left) ^ JSTypeConversions.toInt32(context, right);
-        valueStack.push(new JSNumber(result));
+        valueStack.push(JSNumber.valueOf(result));
     }
 
     private void handleYield() {
-        // Check if we should skip this yield (resuming from later point)
-        if (yieldSkipCount > 0) {
-            yieldSkipCount--;
-            // Don't yield - just continue execution
-            // The value is already on the stack from the yield expression
-            return;
-        }
-
         // Pop the yielded value from stack
         JSValue value = valueStack.pop();
 
@@ -2328,6 +2617,69 @@ public final class VirtualMachine {
         valueStack.push(value);
     }
 
+    /**
+     * Initialize the locals of a frame from its arguments.
+     * Parameters take the passed arguments, the other locals start as undefined.
+     */
+    private void loadArguments(StackFrame frame) {
+        JSValue[] locals = frame.getLocals();
+        int localsOffset = frame.getLocalsOffset();
+        int localCount = ((JSBytecodeFunction) frame.getFunction()).getBytecode().getLocalCount();
+        int count = Math.min(frame.getArgumentCount(), localCount);
+        JSValue[] args = frame.getArguments();
+        if (args != null) {
+            System.arraycopy(args, 0, locals, localsOffset, count);
+        } else {
+            valueStack.copyValues(frame.getArgumentOffset(), locals, localsOffset, count);
+        }
+        Arrays.fill(locals, localsOffset + count, localsOffset + localCount, JSUndefined.INSTANCE);
+    }
+
+    /**
+     * Pass the values of the running frames to the mark function of the garbage collector.
+     * Following QuickJS mark_children() for the stack frames of JS_MarkContext().
+     */
+    public void markRoots(Consumer<JSValue> markFunction) {
+        valueStack.markValues(markFunction);
+        for (StackFrame frame = currentFrame; frame != null; frame = frame.getCaller()) {
+            frame.markValues(markFunction);
+        }
+        markFunction.accept(pendingException);
+    }
+
+    /**
+     * Following QuickJS js_poll_interrupts(): called when the countdown of backward jumps
+     * and calls runs out, it charges the countdown to the instruction budget and checks
+     * the deadline and the interrupt handler of the runtime.
+     * The termination is raised again at every later check, so JavaScript code that
+     * outlives a native catch block stops at its next backward jump or call.
+     */
+    private void pollInterrupts() {
+        if (interruption == null) {
+            String message = null;
+            if (instructionBudget >= 0) {
+                instructionBudget -= interruptCounterStart;
+                if (instructionBudget < 0) {
+                    message = "instruction budget exhausted";
+                }
+            }
+            if (message == null && hasDeadline && System.nanoTime() - deadline >= 0) {
+                message = "execution timed out";
+            }
+            if (message == null && context.getRuntime().shouldInterrupt()) {
+                message = "interrupted";
+            }
+            if (message == null) {
+                resetInterruptCounter();
+                return;
+            }
+            interruption = new JSInterruptedException(message);
+        }
+        interruptCounterStart = 0;
+        interruptCounter = 0;
+        throw interruption;
+    }
+
     /**
      * Invoke proxy apply trap when calling a proxy as a function.
      * Based on QuickJS js_proxy_call (quickjs.c:50338).
@@ -2471,9 +2823,28 @@ public final class VirtualMachine {
         return result;
     }
 
-    private void resetPropertyAccessTracking() {
-        this.propertyAccessChain.setLength(0);
-        this.propertyAccessLock = false;
+    /**
+     * Release the register window of a frame that returns to its caller in the dispatch loop.
+     */
+    private void releaseFrame(StackFrame frame) {
+        frame.closeVarRefs();
+        if (frame.getLocals() != registers) {
+            // The frame is in an earlier chunk, keep the current one for the next overflow
+            spareRegisters = registers;
+            registers = frame.getLocals();
+        }
+        registerTop = frame.getLocalsOffset();
+    }
+
+    /**
+     * Restart the countdown to the next interrupt poll, which comes early enough
+     * to stop at the first backward jump or call beyond the instruction budget.
+     */
+    private void resetInterruptCounter() {
+        interruptCounterStart = instructionBudget >= 0
+                ? (int) Math.min(INTERRUPT_COUNTER_INIT, instructionBudget + 1)
+                : INTERRUPT_COUNTER_INIT;
+        interruptCounter = interruptCounterStart;
     }
 
     /**
@@ -2517,6 +2888,19 @@ public final class VirtualMachine {
         return exceptionObj.toString();
     }
 
+    /**
+     * Get the promise an await waits on.
+     * A promise is used directly, any other value is wrapped in a fulfilled promise.
+     */
+    private JSPromise toAwaitedPromise(JSValue value) {
+        if (value instanceof JSPromise promise) {
+            return promise;
+        }
+        JSPromise promise = new JSPromise();
+        promise.fulfill(value);
+        return promise;
+    }
+
     /**
      * Convert a value to an object (auto-boxing for primitives).
      * Returns null for null and undefined.
@@ -2548,7 +2932,7 @@ public final class VirtualMachine {
                     // Add length property as own property (shadows prototype's length)
                     // This is a data property with the actual string length
                     wrapper.defineProperty(PropertyKey.fromString("length"),
-                            PropertyDescriptor.dataDescriptor(new JSNumber(str.value().length()), false, false, false));
+                            PropertyDescriptor.dataDescriptor(JSNumber.valueOf(str.value().length()), false, false, false));
                     return wrapper;
                 }
             }
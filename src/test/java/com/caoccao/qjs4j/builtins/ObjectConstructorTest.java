@@ -843,6 +843,20 @@ public class ObjectConstructorTest extends BaseJavetTest {
         // Edge case: invalid prototype
         assertTypeError(ObjectConstructor.setPrototypeOf(context, JSUndefined.INSTANCE, new JSValue[]{obj, new JSString("invalid")}));
         assertPendingException(context);
+
+        // Edge case: cyclic prototype chain
+        JSObject child = new JSObject(obj);
+        assertTypeError(ObjectConstructor.setPrototypeOf(context, JSUndefined.INSTANCE, new JSValue[]{obj, child}), "Cyclic __proto__ value");
+        assertPendingException(context);
+        assertThat(obj.getPrototype()).isNull();
+        assertTypeError(ObjectConstructor.setPrototypeOf(context, JSUndefined.INSTANCE, new JSValue[]{obj, obj}), "Cyclic __proto__ value");
+        assertPendingException(context);
+
+        // Edge case: non-extensible object
+        obj.preventExtensions();
+        assertTypeError(ObjectConstructor.setPrototypeOf(context, JSUndefined.INSTANCE, new JSValue[]{obj, newProto}));
+        assertPendingException(context);
+        assertThat(ObjectConstructor.setPrototypeOf(context, JSUndefined.INSTANCE, new JSValue[]{obj, JSNull.INSTANCE})).isSameAs(obj);
     }
 
     @Test
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.compiler;
+
+import com.caoccao.qjs4j.BaseJavetTest;
+import com.caoccao.qjs4j.vm.Bytecode;
+import com.caoccao.qjs4j.vm.Opcode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConstantFolderTest extends BaseJavetTest {
+    @Test
+    public void testConstantLoopConditions() {
+        assertIntegerWithJavet("""
+                let n = 0;
+                while (true) { n++; if (n > 3) break; }
+                for (; 1;) { n += 2; if (n > 10) break; }
+                n;""");
+    }
+
+    @Test
+    public void testDeadBranchesAreRemoved() {
+        Bytecode bytecode = Compiler.compile("""
+                if (false) { sideEffect(); } else { 1; }
+                while (false) { sideEffect(); }
+                true ? 2 : sideEffect();
+                false && sideEffect();""", "test").getBytecode();
+        assertThat(Arrays.asList(bytecode.getOpcodes())).doesNotContain(Opcode.IF_FALSE, Opcode.GET_VAR);
+    }
+
+    @Test
+    public void testFoldedExpressions() {
+        assertStringWithJavet("""
+                [
+                    "a" + "b", 1 << 10, 2 ** 10, 1 / -0, Object.is(-0 * 1, -0), -1 >>> 0, ~5, 10 % 3,
+                    "3" * "4", 1 + "2", typeof (1 + 1), !0, void 0, null ?? 5, 0 || "d", 1 && 2,
+                    1 < 2, "a" < "b", 1 == "1", 1 === "1", `x${1 + 2}y${"z"}${null}`
+                ].join();""");
+    }
+
+    @Test
+    public void testHoistedDeclarationsInDeadBranches() {
+        assertStringWithJavet("""
+                function f() {
+                    if (false) { var v = 1; }
+                    while (false) { var w = 1; }
+                    return typeof v + typeof w;
+                }
+                f();""");
+    }
+
+    @Test
+    public void testShortCircuitWithConstantLeft() {
+        assertStringWithJavet("""
+                var calls = 0;
+                function g() { calls++; return 'g'; }
+                [false && g(), true || g(), 'x' ?? g(), true && g(), 0 || g(), null ?? g(), calls].join();""");
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.compiler;
+
+import com.caoccao.qjs4j.BaseTest;
+import com.caoccao.qjs4j.core.JSBytecodeFunction;
+import com.caoccao.qjs4j.core.JSNumber;
+import com.caoccao.qjs4j.core.JSString;
+import com.caoccao.qjs4j.vm.Bytecode;
+import com.caoccao.qjs4j.vm.Opcode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PeepholeOptimizerTest extends BaseTest {
+    private static List<Opcode> getOpcodes(Bytecode bytecode) {
+        List<Opcode> opcodes = new ArrayList<>();
+        int pc = 0;
+        while (pc < bytecode.getLength()) {
+            Opcode op = Opcode.fromInt(bytecode.readOpcode(pc));
+            opcodes.add(op);
+            pc += op.getSize();
+        }
+        return opcodes;
+    }
+
+    @Test
+    public void testBranchesIntoRewrittenCode() {
+        assertThat(context.eval("""
+                function f(n) {
+                    let s = 0;
+                    for (let i = 0; i < n; i++) {
+                        if (i % 2) continue;
+                        s = i > 5 ? s + i : s - 1;
+                        try { if (i === 4) throw i; s++; } catch (e) { s += 100; }
+                    }
+                    return s;
+                }
+                f(10);""")).isEqualTo(JSNumber.valueOf(115));
+    }
+
+    @Test
+    public void testShortFormsAndFusedUpdates() {
+        JSBytecodeFunction function = Compiler.compile("""
+                function f(o, n) {
+                    var s = 0;
+                    for (var i = 0; i < n; i++) { s += o.x; }
+                    var j = 1; j++; --j; j = 300;
+                    return s + j;
+                }""", "test");
+        Bytecode bytecode = ((JSBytecodeFunction) function.getBytecode().getConstants()[0]).getBytecode();
+        List<Opcode> opcodes = getOpcodes(bytecode);
+        assertThat(opcodes)
+                .contains(Opcode.PUSH_0, Opcode.PUSH_1, Opcode.PUSH_I16, Opcode.GET_LOC0, Opcode.PUT_LOC2, Opcode.PUT_LOC8)
+                .contains(Opcode.INC_LOC, Opcode.DEC_LOC)
+                .doesNotContain(Opcode.GET_LOCAL, Opcode.PUT_LOCAL, Opcode.SET_LOCAL, Opcode.PUSH_I32, Opcode.DROP);
+        // Local loads followed by a field access and compares followed by a branch are fused when decoded
+        assertThat(bytecode.getOpcodes()).contains(Opcode.GET_LOC_GET_FIELD, Opcode.LT_IF_FALSE);
+    }
+
+    @Test
+    public void testUpdatesKeepSemantics() {
+        assertThat(context.eval("""
+                function f() {
+                    let a = '5';
+                    let b = 1.5;
+                    let c = 0;
+                    a++; b--; ++c; --c; c++;
+                    let d = c++;
+                    return [a, b, c, d, 2 ** 40, -129, 70000].join();
+                }
+                f();""")).isEqualTo(new JSString("6,0.5,2,1,1099511627776,-129,70000"));
+    }
+}
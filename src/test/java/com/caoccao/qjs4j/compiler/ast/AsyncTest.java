@@ -17,6 +17,9 @@
 package com.caoccao.qjs4j.compiler.ast;
 
 import com.caoccao.qjs4j.BaseJavetTest;
+import com.caoccao.qjs4j.core.JSNumber;
+import com.caoccao.qjs4j.core.JSPromise;
+import com.caoccao.qjs4j.core.JSValue;
 import org.junit.jupiter.api.Test;
 
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -142,6 +145,33 @@ public class AsyncTest extends BaseJavetTest {
                 typeof gen;""");
     }
 
+    @Test
+    void testAwaitHostSettledPromise() {
+        // The async function suspends at await and resumes once the host settles the promise
+        JSPromise hostPromise = context.createJSPromise();
+        context.getGlobalObject().set("hostPromise", hostPromise);
+        JSValue result = context.eval("""
+                var log = [];
+                async function test() {
+                    log.push('start');
+                    const value = await hostPromise;
+                    log.push('resumed');
+                    return value * 2;
+                }
+                const promise = test();
+                log.push('sync');
+                promise;""");
+        assertThat(result).isInstanceOf(JSPromise.class);
+        JSPromise promise = (JSPromise) result;
+        assertThat(promise.getState()).isEqualTo(JSPromise.PromiseState.PENDING);
+        assertThat(context.eval("log.join()").toJavaObject()).isEqualTo("start,sync");
+
+        hostPromise.fulfill(new JSNumber(21));
+        assertThat(awaitPromise(promise)).isTrue();
+        assertThat(promise.getResult()).isEqualTo(new JSNumber(42));
+        assertThat(context.eval("log.join()").toJavaObject()).isEqualTo("start,sync,resumed");
+    }
+
     @Test
     void testAwaitInExpression() {
         assertIntegerWithJavet("""
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.compiler.ast;
+
+import com.caoccao.qjs4j.BaseJavetTest;
+import org.junit.jupiter.api.Test;
+
+public class CallExpressionTest extends BaseJavetTest {
+    @Test
+    public void testNotAFunctionMessageNamesCallee() {
+        assertStringWithJavet("""
+                const r = [];
+                const obj = { inner: {} };
+                const arr = [1];
+                function f() {
+                    const o = {};
+                    let x;
+                    try { o.nope(); } catch (e) { r.push(e.message); }
+                    try { x(1); } catch (e) { r.push(e.message); }
+                    try { this.m(); } catch (e) { r.push(e.message); }
+                }
+                f.call({});
+                try { obj.inner.method(obj.x, arr.length); } catch (e) { r.push(e.message); }
+                try { arr[0](); } catch (e) { r.push(e.message); }
+                try { obj['inner'].z(); } catch (e) { r.push(e.message); }
+                JSON.stringify(r);""");
+    }
+}
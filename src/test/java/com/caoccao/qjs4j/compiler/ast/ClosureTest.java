@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.compiler.ast;
+
+import com.caoccao.qjs4j.BaseJavetTest;
+import com.caoccao.qjs4j.compiler.Compiler;
+import com.caoccao.qjs4j.core.JSBytecodeFunction;
+import com.caoccao.qjs4j.vm.Bytecode;
+import com.caoccao.qjs4j.vm.Opcode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for variables captured by closures.
+ */
+public class ClosureTest extends BaseJavetTest {
+    private static List<String> getClosedLocals(JSBytecodeFunction function) {
+        Bytecode bytecode = ((JSBytecodeFunction) function.getBytecode().getConstants()[0]).getBytecode();
+        List<String> closedLocals = new ArrayList<>();
+        int pc = 0;
+        while (pc < bytecode.getLength()) {
+            Opcode op = Opcode.fromInt(bytecode.readOpcode(pc));
+            if (op == Opcode.CLOSE_LOC) {
+                closedLocals.add(bytecode.getLocalNames()[bytecode.readU16(pc + 1)]);
+            }
+            pc += op.getSize();
+        }
+        return closedLocals;
+    }
+
+    @Test
+    void testCapturedVariablesOutliveTheFrame() {
+        assertStringWithJavet("""
+                function counter() {
+                    var c = 0;
+                    return function () { c++; return c; };
+                }
+                const c1 = counter();
+                const c2 = counter();
+                c1(); c1();
+                function setter() {
+                    let x = 1;
+                    const inc = () => { x += 2; return x; };
+                    inc();
+                    return [x, inc(), x];
+                }
+                function thrower() {
+                    let s = 'kept';
+                    const f = () => s;
+                    try { (function () { throw 1; })(); } catch (e) {}
+                    return f();
+                }
+                JSON.stringify([c1(), c2(), setter(), thrower()]);""");
+    }
+
+    @Test
+    void testDeclarationsAfterTheClosure() {
+        assertStringWithJavet("""
+                function later() {
+                    const f = function () { return v; };
+                    var v = 7;
+                    return f();
+                }
+                function mutual(n) {
+                    function isEven(k) { return k === 0 ? true : isOdd(k - 1); }
+                    function isOdd(k) { return k === 0 ? false : isEven(k - 1); }
+                    return isEven(n);
+                }
+                function blockVar(c) {
+                    if (c) { var q = 5; }
+                    return q;
+                }
+                JSON.stringify([later(), mutual(10), blockVar(true)]);""");
+    }
+
+    @Test
+    void testEachEvaluationCreatesAFunction() {
+        assertBooleanWithJavet("""
+                function make() { return function () {}; }
+                make() !== make();""");
+    }
+
+    @Test
+    void testLoopBindings() {
+        assertStringWithJavet("""
+                function run() {
+                    const fors = [];
+                    for (let i = 0; i < 3; i++) fors.push(() => i);
+                    const vars = [];
+                    for (var j = 0; j < 3; j++) vars.push(() => j);
+                    const whiles = [];
+                    let n = 0;
+                    while (n < 3) { let k = n * 10; whiles.push(() => k); n++; }
+                    const ofs = [];
+                    for (const v of [4, 5]) { ofs.push(() => v); }
+                    const continues = [];
+                    for (let i = 0; i < 4; i++) { if (i % 2) continue; continues.push(() => i); }
+                    return [fors, vars, whiles, ofs, continues].map(fs => fs.map(f => f()));
+                }
+                const topLevel = [];
+                for (let i = 0; i < 3; i++) topLevel.push(() => i);
+                JSON.stringify([run(), topLevel.map(f => f())]);""");
+    }
+
+    @Test
+    void testLoopBindingsAreRenewedOnlyWhenTheyEscape() {
+        assertThat(getClosedLocals(Compiler.compile("""
+                function f(n) {
+                    let s = 0;
+                    for (let i = 0; i < n; i++) { let sq = i * i; s += sq; }
+                    let j = 0;
+                    while (j < n) { const t = j; s += t; j++; }
+                    return s;
+                }""", "test"))).isEmpty();
+        assertThat(getClosedLocals(Compiler.compile("""
+                function f(n) {
+                    const fs = [];
+                    for (let i = 0; i < n; i++) { let k = i; let unused = k + 1; fs.push(() => k); }
+                    return fs;
+                }""", "test"))).containsExactly("k");
+    }
+
+    @Test
+    void testNestedCapture() {
+        assertStringWithJavet("""
+                function outer(x) {
+                    return function (y) {
+                        return function (z) { return x + y + z; };
+                    };
+                }
+                function gen() {
+                    let n = 0;
+                    function* g() { while (n < 3) { n++; yield n; } }
+                    return [...g(), n];
+                }
+                function classCapture() {
+                    let base = 40;
+                    class A { value() { return base + 2; } }
+                    return new A().value();
+                }
+                JSON.stringify([outer(1)(2)(3), [1, 2, 3].map(n => x => x + n).map(f => f(10)), gen(), classCapture()]);""");
+    }
+}
@@ -29,6 +29,26 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 public class FunctionDeclarationTest extends BaseTest {
 
+    @Test
+    void testArgumentsOfInlinedCalls() {
+        String code = """
+                function f(a, b) {
+                    a = 10;
+                    return [a, b, arguments.length, arguments[0], arguments[2]].join();
+                }
+                function r(a, ...rest) {
+                    return a + ':' + rest.join('|');
+                }
+                function outer() {
+                    const g = () => arguments[1];
+                    return g();
+                }
+                [f(1, 2, 3), r(1, 2, 3), r(1), outer(5, 6)].join(' ; ');
+                """;
+
+        assertThat(context.eval(code).toJavaObject()).isEqualTo("10,2,3,1,3 ; 1:2|3 ; 1: ; 6");
+    }
+
     @Test
     void testAsyncFunctionDeclarationCall() {
         String code = """
@@ -56,6 +76,66 @@ public class FunctionDeclarationTest extends BaseTest {
         });
     }
 
+    @Test
+    void testCallerCatchesCalleeException() {
+        String code = """
+                function thrower(x) {
+                    throw new TypeError('t' + x);
+                }
+                function middle(x) {
+                    return thrower(x) + 1;
+                }
+                let result;
+                try {
+                    middle(1);
+                } catch (e) {
+                    result = e.message;
+                }
+                result;
+                """;
+
+        assertThat(context.eval(code).toJavaObject()).isEqualTo("t1");
+    }
+
+    @Test
+    void testDeepRecursionGrowsStacks() {
+        String code = """
+                function big(n) {
+                    var a1 = 1, a2 = 2, a3 = 3, a4 = 4, a5 = 5, a6 = 6, a7 = 7, a8 = 8, a9 = 9, a10 = 10;
+                    if (n === 0) return a10;
+                    return big(n - 1) + 0;
+                }
+                function deep(n) {
+                    return n === 0 ? 0 : 1 + deep(n - 1);
+                }
+                let sum = 0;
+                for (let i = 0; i < 3; i++) {
+                    sum += deep(900) + big(900);
+                }
+                sum;
+                """;
+
+        assertThat(context.eval(code).toJavaObject()).isEqualTo(2730.0);
+    }
+
+    @Test
+    void testDeepRecursionThrowsRangeError() {
+        String code = """
+                function depth(n) {
+                    return n === 0 ? 0 : 1 + depth(n - 1);
+                }
+                let result;
+                try {
+                    depth(1000000);
+                } catch (e) {
+                    result = e.name + ': ' + e.message;
+                }
+                result + ', ' + depth(100);
+                """;
+
+        assertThat(context.eval(code).toJavaObject()).isEqualTo("RangeError: Maximum call stack size exceeded, 100");
+    }
+
     @Test
     void testFunctionDeclarationCall() {
         String code = """
@@ -81,4 +161,70 @@ public class FunctionDeclarationTest extends BaseTest {
             assertThat(func.getName()).isEqualTo("test");
         });
     }
+
+    @Test
+    void testStrictTailCallsRunInConstantDepth() {
+        String code = """
+                'use strict';
+                function count(n, acc) {
+                    if (n === 0) return acc;
+                    return count(n - 1, acc + 1);
+                }
+                function isEven(n) {
+                    if (n === 0) return true;
+                    return isOdd(n - 1);
+                }
+                function isOdd(n) {
+                    if (n === 0) return false;
+                    return isEven(n - 1);
+                }
+                function guarded() {
+                    try {
+                        return thrower();
+                    } catch (e) {
+                        return 'caught ' + e;
+                    }
+                }
+                function thrower() {
+                    throw 'x';
+                }
+                [count(50000, 0), isEven(20001), guarded(), Math.max(1, 3)].join();
+                """;
+
+        assertThat(context.eval(code).toJavaObject()).isEqualTo("50000,false,caught x,3");
+    }
+
+    @Test
+    void testStrictTailCallsInConditionalAndLogicalExpressions() {
+        String code = """
+                'use strict';
+                let calls = 0;
+                function choose(n, acc) {
+                    return n === 0 ? acc : choose(n - 1, acc + 1);
+                }
+                function any(n) {
+                    return n <= 0 || any(n - 1);
+                }
+                function all(n) {
+                    return n > 0 && all(n - 1);
+                }
+                function coalesce(n, v) {
+                    return v ?? coalesce(n - 1, n <= 0 ? 'done' : null);
+                }
+                function sequence(n) {
+                    return calls++, n <= 0 ? 'end' : sequence(n - 1);
+                }
+                function side() {
+                    calls++;
+                    return 'side';
+                }
+                function shortCircuit(x) {
+                    return x || side();
+                }
+                [choose(50000, 0), any(50000), all(50000), coalesce(50000, null), sequence(50000),
+                    shortCircuit(1), shortCircuit(0), calls].join();
+                """;
+
+        assertThat(context.eval(code).toJavaObject()).isEqualTo("50000,true,false,done,end,1,side,50002");
+    }
 }
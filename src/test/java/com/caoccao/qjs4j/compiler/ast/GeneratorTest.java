@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.compiler.ast;
+
+import com.caoccao.qjs4j.BaseJavetTest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for generator suspension and resumption.
+ */
+public class GeneratorTest extends BaseJavetTest {
+    @Test
+    void testGeneratorKeepsLocalsAcrossYields() {
+        assertStringWithJavet("""
+                function* side() {
+                    var x = 0;
+                    x++;
+                    yield x;
+                    x++;
+                    yield x;
+                }
+                const s = side();
+                const s1 = s.next();
+                const s2 = s.next();
+                const s3 = s.next();
+                JSON.stringify([s1, s2, s3]);""");
+    }
+
+    @Test
+    void testGeneratorLoop() {
+        assertStringWithJavet("""
+                function* g(n) {
+                    for (let i = 0; i < n; i++) {
+                        yield i * i;
+                    }
+                    return 'done';
+                }
+                const it = g(2);
+                const a = it.next();
+                const b = it.next();
+                const c = it.next();
+                const d = it.next();
+                JSON.stringify([[...g(5)], a, b, c, d]);""");
+    }
+
+    @Test
+    void testGeneratorNextValue() {
+        assertIntegerWithJavet("""
+                function* echo() {
+                    const got = yield 1;
+                    yield got * 2;
+                }
+                const e = echo();
+                e.next();
+                e.next(21).value;""");
+    }
+
+    @Test
+    void testGeneratorThrowIsCaught() {
+        assertStringWithJavet("""
+                function* g() {
+                    try {
+                        yield 1;
+                    } catch (e) {
+                        yield 'caught ' + e;
+                    }
+                }
+                const it = g();
+                it.next();
+                const r = it.throw('x');
+                JSON.stringify([r, it.next()]);""");
+    }
+}
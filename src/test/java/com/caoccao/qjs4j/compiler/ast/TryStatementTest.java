@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.compiler.ast;
+
+import com.caoccao.qjs4j.BaseJavetTest;
+import org.junit.jupiter.api.Test;
+
+public class TryStatementTest extends BaseJavetTest {
+    @Test
+    public void testCatchVirtualMachineErrors() {
+        assertStringWithJavet("""
+                const r = [];
+                function f() { const o = {}; return o.nope(); }
+                try { f(); } catch (e) { r.push(e instanceof TypeError); }
+                try { Promise(); } catch (e) { r.push(e.name); }
+                r.join();""");
+    }
+
+    @Test
+    public void testFinallyRunsOnThrow() {
+        assertStringWithJavet("""
+                const log = [];
+                try {
+                    try { throw 1; } catch (e) { throw e + 1; } finally { log.push('f1'); }
+                } catch (e) {
+                    log.push(e);
+                }
+                try {
+                    try { throw new Error('x'); } finally { log.push('f2'); }
+                } catch (e) {
+                    log.push(e.message);
+                }
+                log.join();""");
+    }
+
+    @Test
+    public void testHandlerIsNotLeftActive() {
+        assertStringWithJavet("""
+                const r = [];
+                try { r.push('t'); } catch (e) { r.push('c'); }
+                try { throw 'after'; } catch (e) { r.push('outer:' + e); }
+                r.join();""");
+    }
+
+    @Test
+    public void testTryInLoopKeepsStackBalanced() {
+        assertIntegerWithJavet("""
+                let n = 0;
+                for (let i = 0; i < 20000; i++) {
+                    try { n++; } catch (e) { }
+                    try { throw i; } catch (e) { n++; } finally { n++; }
+                }
+                for (const x of [1, 2, 3]) {
+                    try { if (x === 2) throw x; n += x; } catch (e) { n += 10 * e; }
+                }
+                n;""");
+    }
+
+    @Test
+    public void testUnwindThroughCalls() {
+        assertStringWithJavet("""
+                function g() { throw 'boom'; }
+                function f() { try { return g(); } catch (e) { return 'c:' + e; } }
+                f();""");
+    }
+}
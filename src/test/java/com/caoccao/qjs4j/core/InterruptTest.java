@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import com.caoccao.qjs4j.BaseTest;
+import com.caoccao.qjs4j.exceptions.JSInterruptedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InterruptTest extends BaseTest {
+    @Test
+    public void testExecutionTimeout() {
+        context.setExecutionTimeout(50);
+        assertThatThrownBy(() -> context.eval("while (true) {}"))
+                .isInstanceOf(JSInterruptedException.class)
+                .hasMessage("execution timed out");
+        // The timeout restarts with each eval
+        assertThat(context.eval("1 + 1")).isEqualTo(JSNumber.valueOf(2));
+    }
+
+    @Test
+    public void testInstructionBudget() {
+        context.setInstructionBudget(1000);
+        assertThat(context.eval("let s = 0; for (let i = 0; i < 100; i++) s += i; s")).isEqualTo(JSNumber.valueOf(4950));
+        assertThatThrownBy(() -> context.eval("function f(n) { return n > 0 ? f(n - 1) : 0; } for (;;) f(10);"))
+                .isInstanceOf(JSInterruptedException.class)
+                .hasMessage("instruction budget exhausted");
+        // Nested evals run under the budget of the outermost one
+        assertThatThrownBy(() -> context.eval("for (let i = 0; i < 100; i++) eval('for (let j = 0; j < 100; j++) {}');"))
+                .isInstanceOf(JSInterruptedException.class);
+        context.setInstructionBudget(0);
+        assertThat(context.eval("let t = 0; for (let i = 0; i < 10000; i++) t++; t")).isEqualTo(JSNumber.valueOf(10000));
+    }
+
+    @Test
+    public void testInterruptHandler() {
+        AtomicInteger polls = new AtomicInteger();
+        context.getRuntime().setInterruptHandler(runtime -> polls.incrementAndGet() > 3);
+        assertThatThrownBy(() -> context.eval("let n = 0; while (true) { n++; }"))
+                .isInstanceOf(JSInterruptedException.class)
+                .hasMessage("interrupted");
+        assertThat(polls.get()).isEqualTo(4);
+        context.getRuntime().setInterruptHandler(null);
+        assertThat(context.getRuntime().shouldInterrupt()).isFalse();
+        assertThat(context.eval("n > 0")).isEqualTo(JSBoolean.TRUE);
+    }
+
+    @Test
+    public void testTerminationIsNotCatchable() {
+        context.setInstructionBudget(10000);
+        assertThatThrownBy(() -> context.eval("""
+                var log = [];
+                try {
+                    for (;;) {
+                        try { while (true) {} } catch (e) { log.push('inner'); }
+                    }
+                } catch (e) {
+                    log.push('outer');
+                } finally {
+                    log.push('finally');
+                }"""))
+                .isInstanceOf(JSInterruptedException.class);
+        assertThatThrownBy(() -> context.eval("[1, 2, 3].forEach(() => { try { while (true) {} } catch (e) {} });"))
+                .isInstanceOf(JSInterruptedException.class);
+        context.setInstructionBudget(0);
+        assertThat(context.eval("log.length")).isEqualTo(JSNumber.valueOf(0));
+    }
+}
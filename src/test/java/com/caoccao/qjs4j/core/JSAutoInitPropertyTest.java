@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import com.caoccao.qjs4j.BaseTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JSAutoInitPropertyTest extends BaseTest {
+    @Test
+    public void testBuiltInsAreCreatedOnFirstAccess() {
+        JSObject global = context.getGlobalObject();
+        PropertyDescriptor descriptor = global.getOwnPropertyDescriptor(PropertyKey.fromString("Proxy"));
+        assertThat(descriptor.getValue()).isInstanceOf(JSNativeFunction.class);
+        assertThat(context.eval("""
+                const view = new DataView(new ArrayBuffer(4));
+                view.setInt8(1, 7);
+                JSON.stringify([
+                    view.getInt8(1),
+                    Uint16Array.BYTES_PER_ELEMENT,
+                    Object.getPrototypeOf(Float64Array) === Function.prototype,
+                    Int8Array.prototype.constructor === Int8Array,
+                    Reflect.ownKeys({a: 1}),
+                    new Date(5).getTime(),
+                    typeof Atomics.add]);"""))
+                .isEqualTo(new JSString("[7,2,true,true,[\\"a\\"],5,\\"function\\"]"));
+    }
+
+    @Test
+    public void testOverwrittenPropertiesAreKept() {
+        assertThat(context.eval("""
+                Int8Array = 5;
+                delete globalThis.Uint16Array;
+                JSON.stringify([Int8Array, typeof Uint16Array, typeof Int32Array, 'Uint16Array' in globalThis]);"""))
+                .isEqualTo(new JSString("[5,\\"undefined\\",\\"function\\",false]"));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import com.caoccao.qjs4j.BaseTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JSContextPoolTest extends BaseTest {
+    @Test
+    public void testModifiedBuiltinsDiscardTheContext() {
+        try (JSContextPool pool = context.getRuntime().createContextPool()) {
+            JSContext context1 = pool.acquire();
+            context1.eval("Array.prototype.extra = 1;");
+            pool.release(context1);
+            assertThat(pool.getIdleCount()).isEqualTo(0);
+            JSContext context2 = pool.acquire();
+            assertThat(context2).isNotSameAs(context1);
+            assertThat(context2.eval("typeof [].extra")).isEqualTo(new JSString("undefined"));
+        }
+    }
+
+    @Test
+    public void testOptions() {
+        JSRuntime runtime = context.getRuntime();
+        try (JSContextPool pool = runtime.createContextPool(new JSContextPool.PoolOptions().maxReuseCount(2).maxSize(1))) {
+            JSContext context1 = pool.acquire();
+            JSContext context2 = pool.acquire();
+            assertThat(pool.getBorrowedCount()).isEqualTo(2);
+            pool.release(context1);
+            pool.release(context2);
+            assertThat(pool.getIdleCount()).isEqualTo(1);
+            assertThat(runtime.getContexts()).contains(context1).doesNotContain(context2);
+            assertThat(pool.acquire()).isSameAs(context1);
+            pool.release(context1);
+            assertThat(pool.getIdleCount()).isEqualTo(0);
+            assertThatThrownBy(() -> pool.release(context1)).isInstanceOf(IllegalArgumentException.class);
+        }
+        try (JSContextPool pool = runtime.createContextPool(new JSContextPool.PoolOptions().idleTimeout(1))) {
+            JSContext context1 = pool.acquire();
+            pool.release(context1);
+            long deadline = System.nanoTime() + 2_000_000;
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertThat(pool.acquire()).isNotSameAs(context1);
+            assertThat(pool.getIdleCount()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void testReleasedContextIsReset() {
+        try (JSContextPool pool = context.getRuntime().createContextPool()) {
+            JSContext context1 = pool.acquire();
+            String code = """
+                    [typeof leaked, typeof implicit, typeof Math.max, typeof JSON, typeof Date,
+                        Object.getOwnPropertyNames(globalThis).length].join()""";
+            JSValue pristine = context1.eval(code);
+            context1.eval("""
+                    var leaked = 1;
+                    implicit = 2;
+                    Math = 3;
+                    delete globalThis.JSON;
+                    new Date(0);
+                    Promise.resolve().then(() => { globalThis.late = 1; });""");
+            pool.release(context1);
+            assertThat(pool.getIdleCount()).isEqualTo(1);
+            JSContext context2 = pool.acquire();
+            assertThat(context2).isSameAs(context1);
+            assertThat(context2.eval(code)).isEqualTo(pristine);
+            assertThat(context2.eval("typeof late")).isEqualTo(new JSString("undefined"));
+            assertThat(context2.eval("new Date(0).getTime()")).isEqualTo(JSNumber.valueOf(0));
+        }
+    }
+}
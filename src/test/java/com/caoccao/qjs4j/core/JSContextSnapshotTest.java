@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import com.caoccao.qjs4j.BaseTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JSContextSnapshotTest extends BaseTest {
+    @Test
+    public void testCopiedContextsAreIsolated() {
+        JSRuntime runtime = context.getRuntime();
+        JSContext context1 = runtime.createContext();
+        context1.eval("""
+                Array.prototype.extra = 1;
+                Math.extra = 2;
+                delete globalThis.JSON;
+                TypeError.prototype.extra = 3;""");
+        JSContext context2 = runtime.createContext();
+        assertThat(context2.eval("[typeof [].extra, typeof Math.extra, typeof JSON, typeof new TypeError().extra].join()"))
+                .isEqualTo(new JSString("undefined,undefined,object,undefined"));
+        assertThat(context1.eval("[typeof [].extra, typeof Math.extra, typeof JSON, typeof new TypeError().extra].join()"))
+                .isEqualTo(new JSString("number,number,undefined,number"));
+        assertThat(runtime.getContexts()).contains(context1, context2);
+    }
+
+    @Test
+    public void testCopiedContextMatchesBuiltContext() {
+        JSContext copiedContext = context.getRuntime().createContext();
+        String code = """
+                async function f() {}
+                const errors = [];
+                try { null.x; } catch (e) { errors.push(e instanceof TypeError, Object.getPrototypeOf(e) === TypeError.prototype); }
+                const accessor = Object.getOwnPropertyDescriptor(Function.prototype, 'caller');
+                JSON.stringify([
+                    Object.getOwnPropertyNames(globalThis).length,
+                    Object.getOwnPropertyNames(Object.prototype),
+                    errors,
+                    accessor.get === accessor.set,
+                    Object.getPrototypeOf(f).constructor.name,
+                    Array.isArray(Array.prototype),
+                    globalThis.globalThis === globalThis,
+                    [1, 2, 3].map(x => x * 2),
+                    String(new RangeError('r'))]);""";
+        assertThat(copiedContext.eval(code)).isEqualTo(context.eval(code));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import com.caoccao.qjs4j.BaseTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JSIteratorTest extends BaseTest {
+    @Test
+    public void testForOfOverBuiltinIterators() {
+        assertThat(context.eval("""
+                const out = [];
+                const array = [1, , 3];
+                for (const v of array) { if (v === 1) array.push(4); out.push(v); }
+                for (const [k, v] of new Map([[1, 'a'], [2, 'b']])) out.push(k + v);
+                for (const v of new Set([5, 5, 6])) { if (v === 6) break; out.push(v); }
+                for (const c of 'xy') out.push(c);
+                out.push(...[7].values(), ...new Set([8]));
+                JSON.stringify(out);""")).isEqualTo(new JSString("[1,null,3,4,\\"1a\\",\\"2b\\",5,\\"x\\",\\"y\\",7,8]"));
+    }
+
+    @Test
+    public void testIteratorResultsSharePrecomputedShape() {
+        JSObject arrayResult = (JSObject) context.eval("[1][Symbol.iterator]().next()");
+        JSObject generatorResult = (JSObject) context.eval("(function* () { yield 2; })().next()");
+        assertThat(arrayResult.shape).isSameAs(JSShape.ITERATOR_RESULT);
+        assertThat(generatorResult.shape).isSameAs(JSShape.ITERATOR_RESULT);
+        assertThat(generatorResult.getPrototype()).isSameAs(context.eval("Object.prototype"));
+        assertThat(context.eval("""
+                const r = [1][Symbol.iterator]().next();
+                r.value = 2;
+                r.extra = 3;
+                JSON.stringify([Object.keys(r), r.value, Object.getOwnPropertyDescriptor(r, 'done')]);""")).isEqualTo(
+                new JSString("[[\\"value\\",\\"done\\",\\"extra\\"],2,{\\"value\\":false,\\"writable\\":true,\\"enumerable\\":true,\\"configurable\\":true}]"));
+    }
+
+    @Test
+    public void testReplacedNextIsCalled() {
+        assertThat(context.eval("""
+                const it = [5, 6][Symbol.iterator]();
+                let n = 0;
+                it.next = function () { n++; return { value: n * 10, done: n > 2 }; };
+                const out = [];
+                for (const v of it) out.push(v);
+                n = 0;
+                out.push(...it);
+                out.join();""")).isEqualTo(new JSString("10,20,10,20"));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import com.caoccao.qjs4j.BaseTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JSNumberTest extends BaseTest {
+    @Test
+    public void testArithmeticKeepsNegativeZero() {
+        assertThat(context.eval("var z = -0; Object.is(z * 1, -0) && Object.is(-0 - 0, -0) && Object.is(-(0), -0)"))
+                .isEqualTo(JSBoolean.TRUE);
+        assertThat(context.eval("var n = 0; n++; n--; Object.is(n, 0)")).isEqualTo(JSBoolean.TRUE);
+    }
+
+    @Test
+    public void testValueOfCachesSmallIntegers() {
+        assertThat(JSNumber.valueOf(0)).isSameAs(JSNumber.valueOf(0.0));
+        assertThat(JSNumber.valueOf(JSNumber.CACHE_LOW)).isSameAs(JSNumber.valueOf(JSNumber.CACHE_LOW));
+        assertThat(JSNumber.valueOf(JSNumber.CACHE_HIGH)).isSameAs(JSNumber.valueOf((double) JSNumber.CACHE_HIGH));
+        assertThat(JSNumber.valueOf(JSNumber.CACHE_HIGH + 1)).isNotSameAs(JSNumber.valueOf(JSNumber.CACHE_HIGH + 1));
+        assertThat(JSNumber.valueOf(1.5)).isEqualTo(new JSNumber(1.5));
+    }
+
+    @Test
+    public void testValueOfKeepsNegativeZero() {
+        JSNumber negativeZero = JSNumber.valueOf(-0.0);
+        assertThat(negativeZero).isNotSameAs(JSNumber.valueOf(0));
+        assertThat(Double.doubleToRawLongBits(negativeZero.value())).isEqualTo(Double.doubleToRawLongBits(-0.0));
+        assertThat(JSNumber.valueOf(Double.NaN).value()).isNaN();
+    }
+}
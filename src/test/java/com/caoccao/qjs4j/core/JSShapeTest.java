@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import com.caoccao.qjs4j.BaseTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JSShapeTest extends BaseTest {
+
+    @Test
+    public void testAccessorSwitchesToDictionary() {
+        JSObject obj = new JSObject();
+        obj.set("a", new JSNumber(1));
+        JSFunction getter = new JSNativeFunction("get", 0, (ctx, thisArg, args) -> new JSNumber(2));
+        obj.defineProperty(PropertyKey.fromString("b"), PropertyDescriptor.accessorDescriptor(getter, null, true, true));
+
+        assertThat(obj.shape.isDictionary()).isTrue();
+        assertThat(obj.get(PropertyKey.fromString("b"), context)).isEqualTo(new JSNumber(2));
+        PropertyDescriptor descriptor = obj.getOwnPropertyDescriptor(PropertyKey.fromString("b"));
+        assertThat(descriptor.isAccessorDescriptor()).isTrue();
+        assertThat(descriptor.getGetter()).isSameAs(getter);
+    }
+
+    @Test
+    public void testAtomsOfDifferentRuntimesAreDistinct() {
+        try (JSRuntime runtime1 = new JSRuntime(); JSRuntime runtime2 = new JSRuntime()) {
+            // "Aa" and "BB" have the same hash code and the same atom index in two fresh runtimes
+            PropertyKey key1 = runtime1.getAtomKey("Aa");
+            PropertyKey key2 = runtime2.getAtomKey("BB");
+            assertThat(key1).isNotEqualTo(key2);
+            assertThat(key1).isEqualTo(PropertyKey.fromString("Aa"));
+            assertThat(key1).isEqualTo(runtime2.getAtomKey("Aa"));
+
+            runtime1.createContext().eval("var o1 = {}; o1.Aa = 1;");
+            assertThat(runtime2.createContext().eval("var o2 = {}; o2.BB = 2; JSON.stringify(o2);"))
+                    .isEqualTo(new JSString("{\"BB\":2}"));
+        }
+    }
+
+    @Test
+    public void testCollectedTransitionsArePurged() throws InterruptedException {
+        JSShape parent = JSShape.ROOT.addProperty(PropertyKey.fromString("transitionParent"), JSShape.FLAGS_DEFAULT);
+        for (int i = 0; i < 1000; i++) {
+            parent.addProperty(PropertyKey.fromString("k" + i), JSShape.FLAGS_DEFAULT);
+        }
+        // The children are not used by any object, so the collector clears them and the next addProperty() purges them
+        for (int i = 0; i < 100 && parent.getTransitionCount() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+            JSShape.ROOT.addProperty(PropertyKey.fromString("transitionParent"), JSShape.FLAGS_DEFAULT);
+        }
+        assertThat(parent.getTransitionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDeleteCompactsValues() {
+        JSObject obj = new JSObject();
+        for (int i = 0; i < 20; i++) {
+            obj.set("k" + i, new JSNumber(i));
+        }
+        for (int i = 2; i < 20; i += 2) {
+            obj.delete("k" + i);
+        }
+        for (int i = 3; i < 20; i += 2) {
+            obj.delete("k" + i);
+        }
+
+        assertThat(obj.shape.isDictionary()).isTrue();
+        assertThat(obj.shape.getDeletedPropCount()).isEqualTo(0);
+        assertThat(obj.get("k0")).isEqualTo(new JSNumber(0));
+        assertThat(obj.get("k1")).isEqualTo(new JSNumber(1));
+        assertThat(obj.get("k2")).isEqualTo(JSUndefined.INSTANCE);
+    }
+
+    @Test
+    public void testDescriptorReflectsCurrentValue() {
+        JSObject obj = new JSObject();
+        obj.set("a", new JSNumber(1));
+        obj.set("a", new JSNumber(2));
+
+        PropertyDescriptor descriptor = obj.getOwnPropertyDescriptor(PropertyKey.fromString("a"));
+        assertThat(descriptor.getValue()).isEqualTo(new JSNumber(2));
+        assertThat(descriptor.isWritable()).isTrue();
+        assertThat(descriptor.isEnumerable()).isTrue();
+        assertThat(descriptor.isConfigurable()).isTrue();
+    }
+
+    @Test
+    public void testHashedLookup() {
+        JSObject obj = new JSObject();
+        for (int i = 0; i < 1000; i++) {
+            obj.set("k" + i, new JSNumber(i));
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            obj.delete("k" + i);
+        }
+        obj.set("extra", new JSNumber(-1));
+
+        assertThat(obj.get("k1")).isEqualTo(new JSNumber(1));
+        assertThat(obj.get("k999")).isEqualTo(JSUndefined.INSTANCE);
+        assertThat(obj.get("k998")).isEqualTo(new JSNumber(998));
+        assertThat(obj.get("extra")).isEqualTo(new JSNumber(-1));
+        assertThat(obj.hasOwnProperty("k3")).isFalse();
+        assertThat(obj.ownPropertyKeys()[0].toPropertyString()).isEqualTo("k1");
+        assertThat(obj.ownPropertyKeys()[obj.ownPropertyKeys().length - 1].toPropertyString()).isEqualTo("extra");
+    }
+
+    @Test
+    public void testLargeObjectSwitchesToDictionary() {
+        JSObject obj = new JSObject();
+        for (int i = 0; i <= JSShape.MAX_SHARED_PROPERTY_COUNT; i++) {
+            obj.set("p" + i, new JSNumber(i));
+        }
+
+        assertThat(obj.shape.isDictionary()).isTrue();
+        assertThat(obj.get("p0")).isEqualTo(new JSNumber(0));
+        assertThat(obj.get("p" + JSShape.MAX_SHARED_PROPERTY_COUNT))
+                .isEqualTo(new JSNumber(JSShape.MAX_SHARED_PROPERTY_COUNT));
+    }
+
+    @Test
+    public void testSameLayoutSharesShape() {
+        JSObject obj1 = new JSObject();
+        obj1.set("x", new JSNumber(1));
+        obj1.set("y", new JSNumber(2));
+        JSObject obj2 = new JSObject();
+        obj2.set("x", new JSNumber(3));
+        obj2.set("y", new JSNumber(4));
+        JSObject obj3 = new JSObject();
+        obj3.set("y", new JSNumber(5));
+        obj3.set("x", new JSNumber(6));
+
+        assertThat(obj1.shape).isSameAs(obj2.shape);
+        assertThat(obj1.shape).isNotSameAs(obj3.shape);
+        assertThat(obj1.shape.isDictionary()).isFalse();
+        assertThat(obj2.get("x")).isEqualTo(new JSNumber(3));
+        assertThat(obj1.get("y")).isEqualTo(new JSNumber(2));
+    }
+
+    @Test
+    public void testSharedShapesHoldNoAtoms() {
+        try (JSRuntime runtime = new JSRuntime()) {
+            PropertyKey atomKey = runtime.getAtomKey("sharedShapeKey");
+            JSShape shape = JSShape.ROOT.addProperty(atomKey, JSShape.FLAGS_DEFAULT);
+            // The shape may be reused by other runtimes after this one is closed
+            assertThat(shape.getKeyAt(0).isInterned()).isFalse();
+            assertThat(shape.getPropertyOffset(atomKey)).isEqualTo(0);
+            assertThat(JSShape.ROOT.addProperty(atomKey, JSShape.FLAGS_DEFAULT)).isSameAs(shape);
+        }
+    }
+
+    @Test
+    public void testValueUpdateKeepsShape() {
+        JSObject obj = new JSObject();
+        obj.set("x", new JSNumber(1));
+        JSShape shape = obj.shape;
+        obj.set("x", new JSNumber(2));
+
+        assertThat(obj.shape).isSameAs(shape);
+        assertThat(obj.get("x")).isEqualTo(new JSNumber(2));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import com.caoccao.qjs4j.BaseTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MemoryLimitTest extends BaseTest {
+    @Test
+    public void testGarbageIsNotCounted() {
+        context.getRuntime().setMaxMemoryUsage(8 * 1024 * 1024);
+        // Far more than the limit is allocated in total, but little of it stays reachable
+        assertThat(context.eval("""
+                let n = 0;
+                for (let i = 0; i < 200000; i++) {
+                    const o = {i: i, s: 'v' + i};
+                    n += o.s.length;
+                }
+                n""")).isEqualTo(JSNumber.valueOf(1288890));
+    }
+
+    @Test
+    public void testOutOfMemoryIsCatchable() {
+        context.getRuntime().setMaxMemoryUsage(8 * 1024 * 1024);
+        assertThat(context.eval("""
+                let message;
+                let kept = [];
+                try {
+                    for (;;) kept.push({a: 1, b: 2});
+                } catch (e) {
+                    message = e instanceof RangeError ? e.message : 'wrong error';
+                }
+                kept = null;
+                message""")).isEqualTo(new JSString("out of memory"));
+        // Once the values are unreachable the context keeps running
+        assertThat(context.eval("[1, 2, 3].map(x => x * 2).join()")).isEqualTo(new JSString("2,4,6"));
+    }
+
+    @Test
+    public void testOutOfMemoryRecoversInTopLevelCode() {
+        context.getRuntime().setMaxMemoryUsage(8 * 1024 * 1024);
+        // The block left by the exception no longer keeps its values alive
+        assertThat(context.eval("""
+                try {
+                    {
+                        const a = [];
+                        for (;;) a.push({});
+                    }
+                } catch (e) {
+                }
+                const b = [];
+                for (let i = 0; i < 30000; i++) b.push({i: i});
+                b.length""")).isEqualTo(JSNumber.valueOf(30000));
+    }
+
+    @Test
+    public void testPendingReactionsAreCounted() {
+        context.getRuntime().setMaxMemoryUsage(8 * 1024 * 1024);
+        assertThat(context.eval("""
+                const errors = [];
+                const resolvers = [];
+                try {
+                    for (let i = 0; i < 60; i++) {
+                        const data = new Array(100000).fill(i);
+                        new Promise(resolve => resolvers.push(resolve)).then(() => data);
+                    }
+                } catch (e) {
+                    errors.push('reaction ' + e.message);
+                }
+                resolvers.length = 0;
+                try {
+                    for (let i = 0; i < 60; i++) {
+                        let resolve;
+                        new Promise(r => resolve = r).then(() => 0);
+                        resolve(new Array(100000).fill(i));
+                    }
+                } catch (e) {
+                    errors.push('job ' + e.message);
+                }
+                errors.join()""")).isEqualTo(new JSString("reaction out of memory,job out of memory"));
+    }
+
+    @Test
+    public void testStringsAndBuffersAreCounted() {
+        context.getRuntime().setMaxMemoryUsage(8 * 1024 * 1024);
+        assertThat(context.eval("""
+                const errors = [];
+                try { let s = 'x'; for (;;) s += s; } catch (e) { errors.push(e.message); }
+                try { new ArrayBuffer(64 * 1024 * 1024); } catch (e) { errors.push(e.message); }
+                try { const m = new Map(); for (let i = 0; ; i++) m.set(i, i); } catch (e) { errors.push(e.message); }
+                errors.join()""")).isEqualTo(new JSString("out of memory,out of memory,out of memory"));
+    }
+
+    @Test
+    public void testSuspendedFunctionsAreCounted() {
+        context.getRuntime().setMaxMemoryUsage(8 * 1024 * 1024);
+        context.eval("""
+                var errors = [];
+                const generators = [];
+                function* generate(i) {
+                    const data = new Array(100000).fill(i);
+                    yield 1;
+                    yield data.length;
+                }
+                try {
+                    for (let i = 0; i < 60; i++) {
+                        const generator = generate(i);
+                        generator.next();
+                        generators.push(generator);
+                    }
+                } catch (e) {
+                    errors.push('generator ' + e.message);
+                }
+                generators.length = 0;
+                const resolvers = [];
+                async function wait(i) {
+                    const data = new Array(100000).fill(i);
+                    await new Promise(resolve => resolvers.push(resolve));
+                    return data.length;
+                }
+                for (let i = 0; i < 60; i++) {
+                    wait(i).catch(e => errors.push('async ' + e.message));
+                }""");
+        assertThat(context.eval("[...new Set(errors)].join()"))
+                .isEqualTo(new JSString("generator out of memory,async out of memory"));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.core;
+
+import com.caoccao.qjs4j.BaseTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PropertyCacheTest extends BaseTest {
+
+    @Test
+    public void testGetGlobalCell() {
+        JSObject global = context.getGlobalObject();
+        global.set("cellValue", new JSNumber(1));
+        PropertyCache cache = new PropertyCache(PropertyKey.fromString("cellValue"));
+
+        assertThat(cache.get(global, null)).isEqualTo(new JSNumber(1));
+        // Adding bindings keeps the cached slot valid
+        global.set("otherValue", new JSNumber(2));
+        global.set("cellValue", new JSNumber(3));
+        assertThat(cache.get(global, null)).isEqualTo(new JSNumber(3));
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+
+        // Deleting the binding invalidates the slot
+        global.delete("cellValue");
+        assertThat(cache.get(global, null)).isEqualTo(JSUndefined.INSTANCE);
+    }
+
+    @Test
+    public void testGetMegamorphic() {
+        PropertyCache cache = new PropertyCache(PropertyKey.fromString("x"));
+        for (int i = 0; i <= PropertyCache.MAX_ENTRIES; i++) {
+            JSObject obj = new JSObject();
+            obj.set("p" + i, new JSNumber(i));
+            obj.set("x", new JSNumber(i));
+            assertThat(cache.get(obj, context)).isEqualTo(new JSNumber(i));
+        }
+        assertThat(cache.isMegamorphic()).isTrue();
+        assertThat(cache.getEntryCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testGetMissingProperty() {
+        PropertyCache cache = new PropertyCache(PropertyKey.fromString("x"));
+        JSObject obj = new JSObject();
+        obj.set("a", new JSNumber(1));
+
+        assertThat(cache.get(obj, context)).isEqualTo(JSUndefined.INSTANCE);
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+        assertThat(cache.get(obj, context)).isEqualTo(JSUndefined.INSTANCE);
+        obj.set("x", new JSNumber(2));
+        assertThat(cache.get(obj, context)).isEqualTo(new JSNumber(2));
+    }
+
+    @Test
+    public void testGetOwnProperty() {
+        PropertyCache cache = new PropertyCache(PropertyKey.fromString("x"));
+        JSObject obj1 = new JSObject();
+        obj1.set("x", new JSNumber(1));
+        JSObject obj2 = new JSObject();
+        obj2.set("x", new JSNumber(2));
+
+        assertThat(cache.get(obj1, context)).isEqualTo(new JSNumber(1));
+        assertThat(cache.get(obj2, context)).isEqualTo(new JSNumber(2));
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetPrototypeProperty() {
+        PropertyCache cache = new PropertyCache(PropertyKey.fromString("m"));
+        JSObject proto = new JSObject();
+        proto.set("m", new JSNumber(1));
+        JSObject obj = new JSObject(proto);
+        obj.set("a", new JSNumber(0));
+
+        assertThat(cache.get(obj, context)).isEqualTo(new JSNumber(1));
+        assertThat(cache.get(obj, context)).isEqualTo(new JSNumber(1));
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+
+        // Shadowing on the receiver changes its shape
+        obj.set("m", new JSNumber(2));
+        assertThat(cache.get(obj, context)).isEqualTo(new JSNumber(2));
+
+        // Swapping the prototype invalidates the entry
+        JSObject other = new JSObject(new JSObject());
+        other.set("a", new JSNumber(0));
+        assertThat(cache.get(other, context)).isEqualTo(JSUndefined.INSTANCE);
+    }
+
+    @Test
+    public void testSetAddsProperty() {
+        PropertyCache cache = new PropertyCache(PropertyKey.fromString("x"));
+        JSObject obj1 = new JSObject();
+        cache.set(obj1, new JSNumber(1), context);
+        JSObject obj2 = new JSObject();
+        cache.set(obj2, new JSNumber(2), context);
+
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+        assertThat(obj2.shape).isSameAs(obj1.shape);
+        assertThat(obj2.get("x")).isEqualTo(new JSNumber(2));
+
+        JSObject obj3 = new JSObject();
+        obj3.preventExtensions();
+        cache.set(obj3, new JSNumber(3), context);
+        assertThat(obj3.hasOwnProperty("x")).isFalse();
+    }
+
+    @Test
+    public void testSetReadOnlyProperty() {
+        PropertyCache cache = new PropertyCache(PropertyKey.fromString("x"));
+        JSObject obj = new JSObject();
+        obj.set("x", new JSNumber(1));
+        cache.set(obj, new JSNumber(2), context);
+        obj.freeze();
+        cache.set(obj, new JSNumber(3), context);
+
+        assertThat(obj.get("x")).isEqualTo(new JSNumber(2));
+    }
+}
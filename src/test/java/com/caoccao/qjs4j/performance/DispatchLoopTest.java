@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2025-2026. caoccao.com Sam Cao
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.caoccao.qjs4j.performance;
+
+import com.caoccao.qjs4j.BaseTest;
+import com.caoccao.qjs4j.core.JSNumber;
+import com.caoccao.qjs4j.core.JSValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Performance test of the bytecode dispatch loop on arithmetic, comparison and jumps.
+ * Run with: ./gradlew performanceTest
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchLoopTest extends BaseTest {
+
+    private String code;
+
+    @Benchmark
+    public void benchmarkQjs4j() {
+        resetContext();
+        JSValue jsValue = context.eval(code);
+        assertThat(jsValue).isInstanceOf(JSNumber.class);
+    }
+
+    @Setup
+    public void jmhSetup() throws Exception {
+        setUp();
+    }
+
+    @TearDown
+    public void jmhTearDown() throws Exception {
+        tearDown();
+    }
+
+    private void loadDispatchLoopCode() throws IOException {
+        code = "const count = 1000000;\n" + loadCode("performance/dispatch-loop.js");
+    }
+
+    @BeforeEach
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        loadDispatchLoopCode();
+    }
+
+    /**
+     * JUnit test wrapper for qjs4j benchmark.
+     */
+    @Test
+    @Tag("performance")
+    public void testQjs4jPerformance() throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(this.getClass().getSimpleName() + ".benchmarkQjs4j")
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,11 @@
+function loop(count) {
+    let sum = 0;
+    for (let i = 0; i < count; i++) {
+        sum = (sum + i * 3) % 1000003;
+        if ((i & 1) === 0) {
+            sum -= 1;
+        }
+    }
+    return sum;
+}
+loop(count);